@@ -47,4 +47,18 @@ public interface ContextCalculator<T> {
     @Nonnull
     MutableContextSet giveApplicableContext(@Nonnull T subject, @Nonnull MutableContextSet accumulator);
 
+    /**
+     * Gets if the contexts given by this calculator only change in response to
+     * events, upon which {@link ContextManager#invalidateCache(Object)} is called.
+     *
+     * <p>The results of event-driven calculators are cached until the subjects
+     * cache is invalidated, instead of being recalculated roughly every tick.</p>
+     *
+     * @return true if this calculator is event-driven
+     * @since 4.1
+     */
+    default boolean isEventDriven() {
+        return false;
+    }
+
 }
@@ -25,11 +25,15 @@
 
 package me.lucko.luckperms.api.context;
 
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import com.google.common.collect.Multimap;
 
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.Immutable;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
@@ -37,11 +41,20 @@ import java.util.Set;
 /**
  * An immutable implementation of {@link ContextSet}.
  *
+ * <p>Instances are canonicalized - any two equal sets which are in use at the
+ * same time will be the same instance.</p>
+ *
  * @since 2.16
  */
 @Immutable
 public final class ImmutableContextSet extends AbstractContextSet implements ContextSet {
-    private static final ImmutableContextSet EMPTY = new ImmutableContextSet(ImmutableSetMultimap.of());
+    private static final String[] EMPTY_ARRAY = new String[0];
+    private static final ImmutableContextSet EMPTY = new ImmutableContextSet(EMPTY_ARRAY, EMPTY_ARRAY);
+
+    /**
+     * The pool of canonical instances
+     */
+    private static final Interner<ImmutableContextSet> INTERNER = Interners.newWeakInterner();
 
     /**
      * Creates an {@link ImmutableContextSet.Builder}.
@@ -64,7 +77,7 @@ public final class ImmutableContextSet extends AbstractContextSet implements Con
      */
     @Nonnull
     public static ImmutableContextSet singleton(@Nonnull String key, @Nonnull String value) {
-        return new ImmutableContextSet(ImmutableSetMultimap.of(sanitizeKey(key), sanitizeValue(value)));
+        return create(new String[]{sanitizeKey(key)}, new String[]{sanitizeValue(value)}, 1);
     }
 
     /**
@@ -80,12 +93,11 @@ public final class ImmutableContextSet extends AbstractContextSet implements Con
      */
     @Nonnull
     public static ImmutableContextSet of(@Nonnull String key1, @Nonnull String value1, @Nonnull String key2, @Nonnull String value2) {
-        return new ImmutableContextSet(ImmutableSetMultimap.of(
-                sanitizeKey(key1),
-                sanitizeValue(value1),
-                sanitizeKey(key2),
-                sanitizeValue(value2)
-        ));
+        return create(
+                new String[]{sanitizeKey(key1), sanitizeKey(key2)},
+                new String[]{sanitizeValue(value1), sanitizeValue(value2)},
+                2
+        );
     }
 
     /**
@@ -154,17 +166,157 @@ public final class ImmutableContextSet extends AbstractContextSet implements Con
         return EMPTY;
     }
 
-    private final ImmutableSetMultimap<String, String> map;
+    /**
+     * Creates a canonical {@link ImmutableContextSet} from the given pairs.
+     *
+     * <p>The pairs must already be sanitized. The arrays are sorted in place
+     * and may be retained by the returned instance.</p>
+     *
+     * @param keys the keys
+     * @param values the values
+     * @param size the number of pairs in the arrays
+     * @return a canonical instance
+     */
+    static ImmutableContextSet create(String[] keys, String[] values, int size) {
+        if (size == 0) {
+            return EMPTY;
+        }
+
+        // insertion sort - context sets are almost always small
+        for (int i = 1; i < size; i++) {
+            String key = keys[i];
+            String value = values[i];
+            int j = i - 1;
+            while (j >= 0 && compare(keys[j], values[j], key, value) > 0) {
+                keys[j + 1] = keys[j];
+                values[j + 1] = values[j];
+                j--;
+            }
+            keys[j + 1] = key;
+            values[j + 1] = value;
+        }
+
+        // remove duplicate pairs
+        int unique = 1;
+        for (int i = 1; i < size; i++) {
+            if (compare(keys[unique - 1], values[unique - 1], keys[i], values[i]) != 0) {
+                keys[unique] = keys[i];
+                values[unique] = values[i];
+                unique++;
+            }
+        }
+
+        if (unique != keys.length) {
+            keys = Arrays.copyOf(keys, unique);
+            values = Arrays.copyOf(values, unique);
+        }
+
+        return INTERNER.intern(new ImmutableContextSet(keys, values));
+    }
+
+    /**
+     * Creates a canonical {@link ImmutableContextSet} from the entries in a multimap
+     * of sanitized pairs.
+     *
+     * @param multimap the multimap
+     * @return a canonical instance
+     */
+    static ImmutableContextSet copyOf(Multimap<String, String> multimap) {
+        int size = multimap.size();
+        String[] keys = new String[size];
+        String[] values = new String[size];
+
+        int i = 0;
+        for (Map.Entry<String, String> e : multimap.entries()) {
+            // the multimap may have been modified concurrently
+            if (i == size) {
+                break;
+            }
+            keys[i] = e.getKey();
+            values[i] = e.getValue();
+            i++;
+        }
+        return create(keys, values, i);
+    }
+
+    private static int compare(String key1, String value1, String key2, String value2) {
+        int i = key1.compareTo(key2);
+        return i != 0 ? i : value1.compareTo(value2);
+    }
+
+    /**
+     * The context keys, in sorted order
+     */
+    private final String[] keys;
+
+    /**
+     * The context values, sorted within each key
+     */
+    private final String[] values;
+
     private final int hashCode;
 
-    ImmutableContextSet(ImmutableSetMultimap<String, String> contexts) {
-        this.map = contexts;
-        this.hashCode = this.map.hashCode();
+    /**
+     * A multimap view of the set, lazily created
+     */
+    private ImmutableSetMultimap<String, String> map = null;
+
+    private ImmutableContextSet(String[] keys, String[] values) {
+        this.keys = keys;
+        this.values = values;
+        this.hashCode = calculateHashCode(keys, values);
+    }
+
+    /**
+     * Calculates a hash code consistent with that of {@link Multimap#hashCode()},
+     * so that equal mutable and immutable sets share the same hash.
+     */
+    private static int calculateHashCode(String[] keys, String[] values) {
+        int hash = 0;
+        int i = 0;
+        while (i < keys.length) {
+            String key = keys[i];
+            int valuesHash = 0;
+            while (i < keys.length && keys[i].equals(key)) {
+                valuesHash += values[i].hashCode();
+                i++;
+            }
+            hash += key.hashCode() ^ valuesHash;
+        }
+        return hash;
+    }
+
+    /**
+     * Finds the index of the first pair with the given key.
+     *
+     * @param key the key
+     * @return the index, or the index where the key would be inserted
+     */
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = this.keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (this.keys[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
     }
 
     @Override
     protected Multimap<String, String> backing() {
-        return this.map;
+        ImmutableSetMultimap<String, String> map = this.map;
+        if (map == null) {
+            ImmutableSetMultimap.Builder<String, String> builder = ImmutableSetMultimap.builder();
+            for (int i = 0; i < this.keys.length; i++) {
+                builder.put(this.keys[i], this.values[i]);
+            }
+            this.map = map = builder.build();
+        }
+        return map;
     }
 
     @Override
@@ -188,13 +340,113 @@ public final class ImmutableContextSet extends AbstractContextSet implements Con
     @Nonnull
     @Override
     public Set<Map.Entry<String, String>> toSet() {
-        return this.map.entries();
+        return ((ImmutableSetMultimap<String, String>) backing()).entries();
     }
 
     @Nonnull
     @Override
     public Multimap<String, String> toMultimap() {
-        return this.map;
+        return backing();
+    }
+
+    @Override
+    public boolean containsKey(@Nonnull String key) {
+        key = sanitizeKey(key);
+        int i = lowerBound(key);
+        return i < this.keys.length && this.keys[i].equals(key);
+    }
+
+    @Nonnull
+    @Override
+    public Set<String> getValues(@Nonnull String key) {
+        key = sanitizeKey(key);
+        int start = lowerBound(key);
+        int end = start;
+        while (end < this.keys.length && this.keys[end].equals(key)) {
+            end++;
+        }
+        return start == end ? ImmutableSet.of() : ImmutableSet.copyOf(Arrays.asList(this.values).subList(start, end));
+    }
+
+    @Override
+    public boolean has(@Nonnull String key, @Nonnull String value) {
+        key = sanitizeKey(key);
+        value = sanitizeValue(value);
+        for (int i = lowerBound(key); i < this.keys.length && this.keys[i].equals(key); i++) {
+            if (this.values[i].equals(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean hasIgnoreCase(@Nonnull String key, @Nonnull String value) {
+        key = sanitizeKey(key);
+        value = sanitizeValue(value);
+        for (int i = lowerBound(key); i < this.keys.length && this.keys[i].equals(key); i++) {
+            if (this.values[i].equalsIgnoreCase(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isSatisfiedBy(@Nonnull ContextSet other, boolean caseSensitive) {
+        if (this == other || this.keys.length == 0) {
+            return true;
+        }
+
+        if (!caseSensitive || !(other instanceof ImmutableContextSet)) {
+            return super.isSatisfiedBy(other, caseSensitive);
+        }
+
+        // both sets are sorted, so merge through them in a single pass
+        ImmutableContextSet that = (ImmutableContextSet) other;
+        if (this.keys.length > that.keys.length) {
+            return false;
+        }
+
+        int j = 0;
+        for (int i = 0; i < this.keys.length; i++) {
+            while (true) {
+                if (j == that.keys.length) {
+                    return false;
+                }
+
+                int c = compare(this.keys[i], this.values[i], that.keys[j], that.values[j]);
+                j++;
+                if (c == 0) {
+                    break;
+                }
+                if (c < 0) {
+                    // the pair would have come before this one in the other set
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.keys.length == 0;
+    }
+
+    @Override
+    public int size() {
+        return this.keys.length;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) return true;
+        if (o instanceof ImmutableContextSet) {
+            ImmutableContextSet that = (ImmutableContextSet) o;
+            return this.hashCode == that.hashCode && Arrays.equals(this.keys, that.keys) && Arrays.equals(this.values, that.values);
+        }
+        return super.equals(o);
     }
 
     @Override
@@ -204,7 +456,7 @@ public final class ImmutableContextSet extends AbstractContextSet implements Con
 
     @Override
     public String toString() {
-        return "ImmutableContextSet(contexts=" + this.map + ")";
+        return "ImmutableContextSet(contexts=" + backing() + ")";
     }
 
     /**
@@ -213,21 +465,23 @@ public final class ImmutableContextSet extends AbstractContextSet implements Con
      * @since 4.1
      */
     public static final class Builder {
-        private ImmutableSetMultimap.Builder<String, String> builder;
+        private String[] keys = EMPTY_ARRAY;
+        private String[] values = EMPTY_ARRAY;
+        private int size = 0;
 
         private Builder() {
 
         }
 
-        private synchronized ImmutableSetMultimap.Builder<String, String> builder() {
-            if (this.builder == null) {
-                this.builder = ImmutableSetMultimap.builder();
-            }
-            return this.builder;
-        }
-
         private void put(String key, String value) {
-            builder().put(key, value);
+            if (this.size == this.keys.length) {
+                int capacity = Math.max(4, this.size * 2);
+                this.keys = Arrays.copyOf(this.keys, capacity);
+                this.values = Arrays.copyOf(this.values, capacity);
+            }
+            this.keys[this.size] = key;
+            this.values[this.size] = value;
+            this.size++;
         }
 
         /**
@@ -316,10 +570,14 @@ public final class ImmutableContextSet extends AbstractContextSet implements Con
         @Nonnull
         public Builder addAll(@Nonnull ContextSet contextSet) {
             Objects.requireNonNull(contextSet, "contextSet");
-            if (contextSet instanceof AbstractContextSet) {
-                AbstractContextSet other = ((AbstractContextSet) contextSet);
-                if (!other.isEmpty()) {
-                    builder().putAll(other.backing());
+            if (contextSet instanceof ImmutableContextSet) {
+                ImmutableContextSet other = (ImmutableContextSet) contextSet;
+                for (int i = 0; i < other.keys.length; i++) {
+                    put(other.keys[i], other.values[i]);
+                }
+            } else if (contextSet instanceof AbstractContextSet) {
+                for (Map.Entry<String, String> e : ((AbstractContextSet) contextSet).backing().entries()) {
+                    put(e.getKey(), e.getValue());
                 }
             } else {
                 addAll(contextSet.toMultimap());
@@ -335,11 +593,8 @@ public final class ImmutableContextSet extends AbstractContextSet implements Con
          */
         @Nonnull
         public ImmutableContextSet build() {
-            if (this.builder == null) {
-                return empty();
-            } else {
-                return new ImmutableContextSet(this.builder.build());
-            }
+            // copy the arrays, so the builder can continue to be used
+            return create(Arrays.copyOf(this.keys, this.size), Arrays.copyOf(this.values, this.size), this.size);
         }
     }
 }
@@ -180,7 +180,7 @@ public final class MutableContextSet extends AbstractContextSet implements Conte
         if (this.map.isEmpty()) {
             return ImmutableContextSet.empty();
         }
-        return new ImmutableContextSet(ImmutableSetMultimap.copyOf(this.map));
+        return ImmutableContextSet.copyOf(this.map);
     }
 
     @Nonnull
@@ -30,6 +30,7 @@ import me.lucko.luckperms.api.User;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.Collection;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
@@ -84,6 +85,23 @@ public interface UserManager {
         return loadUser(uuid, null);
     }
 
+    /**
+     * Loads a number of users from the plugin's storage provider into memory.
+     *
+     * <p>Where the storage provider supports it, the users are loaded in bulk,
+     * which is considerably faster than loading each user individually.</p>
+     *
+     * <p>When the users cannot be loaded, the future will be
+     * {@link CompletableFuture completed exceptionally}.</p>
+     *
+     * @param uuids the uuids of the users
+     * @return the resultant users
+     * @throws NullPointerException if the collection of uuids is null
+     * @since 4.1
+     */
+    @Nonnull
+    CompletableFuture<Set<User>> loadUsers(@Nonnull Collection<UUID> uuids);
+
     /**
      * Saves a user's data back to the plugin's storage provider.
      *
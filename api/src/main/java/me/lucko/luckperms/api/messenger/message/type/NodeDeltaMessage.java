@@ -0,0 +1,103 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.api.messenger.message.type;
+
+import me.lucko.luckperms.api.Node;
+import me.lucko.luckperms.api.messenger.message.Message;
+
+import javax.annotation.Nonnull;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Represents a "node delta" message.
+ *
+ * <p>Used to notify other servers of the nodes which were added to and removed
+ * from a specific user or group, so that the changes can be applied without
+ * loading the holder from storage.</p>
+ *
+ * @since 4.1
+ */
+public interface NodeDeltaMessage extends Message {
+
+    /**
+     * Gets the unique id of the server which the changes originated from.
+     *
+     * @return the origin server id
+     */
+    @Nonnull
+    UUID getOrigin();
+
+    /**
+     * Gets the type of holder the changes were made to.
+     *
+     * @return the holder type
+     */
+    @Nonnull
+    HolderType getHolderType();
+
+    /**
+     * Gets the identifier of the holder. (the uuid of a user, or the name of a group)
+     *
+     * @return the holder identifier
+     */
+    @Nonnull
+    String getHolder();
+
+    /**
+     * Gets the revision of the changes.
+     *
+     * <p>Each server numbers the changes it sends for a holder consecutively,
+     * starting from 1.</p>
+     *
+     * @return the revision
+     */
+    long getRevision();
+
+    /**
+     * Gets the nodes which were added to the holder.
+     *
+     * @return the added nodes
+     */
+    @Nonnull
+    Set<Node> getAdded();
+
+    /**
+     * Gets the nodes which were removed from the holder.
+     *
+     * @return the removed nodes
+     */
+    @Nonnull
+    Set<Node> getRemoved();
+
+    /**
+     * The type of holder a {@link NodeDeltaMessage} is for.
+     */
+    enum HolderType {
+        USER, GROUP
+    }
+
+}
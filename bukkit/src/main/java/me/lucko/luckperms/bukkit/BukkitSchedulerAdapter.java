@@ -48,6 +48,12 @@ public class BukkitSchedulerAdapter implements SchedulerAdapter {
 
     private final Set<SchedulerTask> tasks = ConcurrentHashMap.newKeySet();
 
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+            .setDaemon(true)
+            .setNameFormat("luckperms-timer")
+            .build()
+    );
+
     public BukkitSchedulerAdapter(LPBukkitPlugin plugin) {
         this.plugin = plugin;
 
@@ -61,6 +67,11 @@ public class BukkitSchedulerAdapter implements SchedulerAdapter {
         return this.plugin.getServer().getScheduler();
     }
 
+    @Override
+    public ScheduledExecutorService timer() {
+        return this.timer;
+    }
+
     @Override
     public void doAsync(Runnable runnable) {
         async().execute(runnable);
@@ -99,6 +110,9 @@ public class BukkitSchedulerAdapter implements SchedulerAdapter {
     public void shutdown() {
         SafeIteration.iterate(this.tasks, SchedulerTask::cancel);
 
+        // pending timers still fire, but nothing new can be scheduled
+        this.timer.shutdown();
+
         // wait for executor
         this.asyncFallback.shutdown();
         try {
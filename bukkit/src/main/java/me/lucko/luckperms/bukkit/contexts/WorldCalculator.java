@@ -52,4 +52,9 @@ public class WorldCalculator implements ContextCalculator<Player> {
 
         return accumulator;
     }
+
+    @Override
+    public boolean isEventDriven() {
+        return true;
+    }
 }
@@ -387,7 +387,7 @@ public class VaultPermissionHook extends AbstractVaultPermission {
         }
         if (holder.getType().isGroup()) {
             Group g = (Group) holder;
-            this.plugin.getStorage().saveGroup(g).thenRunAsync(() -> this.plugin.getUpdateTaskBuffer().request(), this.plugin.getScheduler().async());
+            this.plugin.getStorage().saveGroup(g).thenRunAsync(() -> this.plugin.getInheritanceHandler().refreshDependents(g), this.plugin.getScheduler().async());
         }
     }
 
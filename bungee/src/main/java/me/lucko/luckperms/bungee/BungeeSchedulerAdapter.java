@@ -25,6 +25,7 @@
 
 package me.lucko.luckperms.bungee;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import me.lucko.luckperms.common.plugin.SchedulerAdapter;
 import me.lucko.luckperms.common.plugin.SchedulerTask;
 import me.lucko.luckperms.common.utils.SafeIteration;
@@ -34,6 +35,8 @@ import net.md_5.bungee.api.scheduler.TaskScheduler;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 public class BungeeSchedulerAdapter implements SchedulerAdapter {
@@ -54,6 +57,12 @@ public class BungeeSchedulerAdapter implements SchedulerAdapter {
     private final Executor asyncExecutor;
     private final Set<SchedulerTask> tasks = ConcurrentHashMap.newKeySet();
 
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+            .setDaemon(true)
+            .setNameFormat("luckperms-timer")
+            .build()
+    );
+
     public BungeeSchedulerAdapter(LPBungeePlugin plugin) {
         this.plugin = plugin;
         this.asyncExecutor = r -> plugin.getProxy().getScheduler().runAsync(plugin, r);
@@ -63,6 +72,11 @@ public class BungeeSchedulerAdapter implements SchedulerAdapter {
         return this.plugin.getProxy().getScheduler();
     }
 
+    @Override
+    public ScheduledExecutorService timer() {
+        return this.timer;
+    }
+
     @Override
     public Executor async() {
         return this.asyncExecutor;
@@ -109,6 +123,9 @@ public class BungeeSchedulerAdapter implements SchedulerAdapter {
     @Override
     public void shutdown() {
         SafeIteration.iterate(this.tasks, SchedulerTask::cancel);
+
+        // pending timers still fire, but nothing new can be scheduled
+        this.timer.shutdown();
     }
 
     private static final class BungeeSchedulerTask implements SchedulerTask {
@@ -40,6 +40,7 @@ import me.lucko.luckperms.common.api.ApiRegistrationUtil;
 import me.lucko.luckperms.common.api.LuckPermsApiProvider;
 import me.lucko.luckperms.common.buffers.BufferedRequest;
 import me.lucko.luckperms.common.buffers.UpdateTaskBuffer;
+import me.lucko.luckperms.common.caching.CalculationScheduler;
 import me.lucko.luckperms.common.caching.handlers.CachedStateManager;
 import me.lucko.luckperms.common.calculators.CalculatorFactory;
 import me.lucko.luckperms.common.commands.CommandManager;
@@ -111,6 +112,7 @@ public class LPBungeePlugin extends Plugin implements LuckPermsPlugin {
     private PluginClassLoader pluginClassLoader;
     private DependencyManager dependencyManager;
     private InheritanceHandler inheritanceHandler;
+    private CalculationScheduler calculationScheduler;
     private CachedStateManager cachedStateManager;
     private ContextManager<ProxiedPlayer> contextManager;
     private CalculatorFactory calculatorFactory;
@@ -182,6 +184,7 @@ public class LPBungeePlugin extends Plugin implements LuckPermsPlugin {
         // load internal managers
         getLog().info("Loading internal permission managers...");
         this.inheritanceHandler = new InheritanceHandler(this);
+        this.calculationScheduler = new CalculationScheduler();
         this.userManager = new StandardUserManager(this);
         this.groupManager = new StandardGroupManager(this);
         this.trackManager = new StandardTrackManager(this);
@@ -250,6 +253,7 @@ public class LPBungeePlugin extends Plugin implements LuckPermsPlugin {
 
         getLog().info("Shutting down internal scheduler...");
         this.scheduler.shutdown();
+        this.calculationScheduler.shutdown();
 
         getProxy().getScheduler().cancel(this);
         getProxy().getPluginManager().unregisterListeners(this);
@@ -464,6 +468,11 @@ public class LPBungeePlugin extends Plugin implements LuckPermsPlugin {
         return this.inheritanceHandler;
     }
 
+    @Override
+    public CalculationScheduler getCalculationScheduler() {
+        return this.calculationScheduler;
+    }
+
     @Override
     public CalculatorFactory getCalculatorFactory() {
         return this.calculatorFactory;
@@ -35,6 +35,7 @@ import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.processors.MapProcessor;
 import me.lucko.luckperms.common.processors.PermissionProcessor;
 import me.lucko.luckperms.common.processors.RegexProcessor;
+import me.lucko.luckperms.common.processors.TrieProcessor;
 import me.lucko.luckperms.common.processors.WildcardProcessor;
 
 public class BungeeCalculatorFactory extends AbstractCalculatorFactory {
@@ -55,7 +56,11 @@ public class BungeeCalculatorFactory extends AbstractCalculatorFactory {
         }
 
         if (this.plugin.getConfiguration().get(ConfigKeys.APPLYING_WILDCARDS)) {
-            processors.add(new WildcardProcessor());
+            if (this.plugin.getConfiguration().get(ConfigKeys.USE_PERMISSION_TRIE)) {
+                processors.add(new TrieProcessor());
+            } else {
+                processors.add(new WildcardProcessor());
+            }
         }
 
         return registerCalculator(new PermissionCalculator(this.plugin, metadata, processors.build()));
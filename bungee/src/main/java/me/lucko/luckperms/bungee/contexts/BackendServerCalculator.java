@@ -57,4 +57,9 @@ public class BackendServerCalculator implements ContextCalculator<ProxiedPlayer>
 
         return accumulator;
     }
+
+    @Override
+    public boolean isEventDriven() {
+        return true;
+    }
 }
@@ -36,6 +36,7 @@ import net.md_5.bungee.api.connection.ProxiedPlayer;
 import net.md_5.bungee.api.event.LoginEvent;
 import net.md_5.bungee.api.event.PlayerDisconnectEvent;
 import net.md_5.bungee.api.event.PostLoginEvent;
+import net.md_5.bungee.api.event.ServerSwitchEvent;
 import net.md_5.bungee.api.plugin.Listener;
 import net.md_5.bungee.event.EventHandler;
 import net.md_5.bungee.event.EventPriority;
@@ -128,6 +129,12 @@ public class BungeeConnectionListener extends AbstractLoginListener implements L
         }
     }
 
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onServerSwitch(ServerSwitchEvent e) {
+        // the backend server context has changed
+        this.plugin.getContextManager().invalidateCache(e.getPlayer());
+    }
+
     // Wait until the last priority to unload, so plugins can still perform permission checks on this event
     @EventHandler(priority = EventPriority.HIGHEST)
     public void onPlayerQuit(PlayerDisconnectEvent e) {
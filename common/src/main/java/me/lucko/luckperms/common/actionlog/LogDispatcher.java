@@ -84,7 +84,7 @@ public class LogDispatcher {
     public void dispatchFromApi(ExtendedLogEntry entry) {
         if (!this.plugin.getEventFactory().handleLogPublish(false, entry)) {
             try {
-                this.plugin.getStorage().logAction(entry).get();
+                this.plugin.getStorage().noBuffer().logAction(entry).get();
             } catch (Exception e) {
                 e.printStackTrace();
             }
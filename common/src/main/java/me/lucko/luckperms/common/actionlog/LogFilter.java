@@ -0,0 +1,135 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.actionlog;
+
+import me.lucko.luckperms.api.LogEntry;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+/**
+ * A filter for entries in the action log, which storage implementations are
+ * able to apply when querying the log.
+ */
+public final class LogFilter implements Predicate<LogEntry> {
+    private static final LogFilter ALL = new LogFilter(null, null, null, null);
+
+    /**
+     * Gets a filter which matches all entries
+     *
+     * @return the filter
+     */
+    public static LogFilter all() {
+        return ALL;
+    }
+
+    /**
+     * Gets a filter which matches entries made by the given actor
+     *
+     * @param actor the actor
+     * @return the filter
+     */
+    public static LogFilter actor(UUID actor) {
+        return new LogFilter(Objects.requireNonNull(actor, "actor"), null, null, null);
+    }
+
+    /**
+     * Gets a filter which matches entries acting upon the given user
+     *
+     * @param uuid the uuid of the user
+     * @return the filter
+     */
+    public static LogFilter user(UUID uuid) {
+        return new LogFilter(null, LogEntry.Type.USER, Objects.requireNonNull(uuid, "uuid"), null);
+    }
+
+    /**
+     * Gets a filter which matches entries acting upon the given group
+     *
+     * @param name the name of the group
+     * @return the filter
+     */
+    public static LogFilter group(String name) {
+        return new LogFilter(null, LogEntry.Type.GROUP, null, Objects.requireNonNull(name, "name"));
+    }
+
+    /**
+     * Gets a filter which matches entries acting upon the given track
+     *
+     * @param name the name of the track
+     * @return the filter
+     */
+    public static LogFilter track(String name) {
+        return new LogFilter(null, LogEntry.Type.TRACK, null, Objects.requireNonNull(name, "name"));
+    }
+
+    private final UUID actor;
+    private final LogEntry.Type type;
+    private final UUID acted;
+    private final String actedName;
+
+    private LogFilter(UUID actor, LogEntry.Type type, UUID acted, String actedName) {
+        this.actor = actor;
+        this.type = type;
+        this.acted = acted;
+        this.actedName = actedName;
+    }
+
+    public Optional<UUID> getActor() {
+        return Optional.ofNullable(this.actor);
+    }
+
+    public Optional<LogEntry.Type> getType() {
+        return Optional.ofNullable(this.type);
+    }
+
+    public Optional<UUID> getActed() {
+        return Optional.ofNullable(this.acted);
+    }
+
+    public Optional<String> getActedName() {
+        return Optional.ofNullable(this.actedName);
+    }
+
+    @Override
+    public boolean test(LogEntry entry) {
+        return (this.actor == null || this.actor.equals(entry.getActor())) &&
+                (this.type == null || this.type == entry.getType()) &&
+                (this.acted == null || entry.getActed().filter(this.acted::equals).isPresent()) &&
+                (this.actedName == null || this.actedName.equals(entry.getActedName()));
+    }
+
+    @Override
+    public String toString() {
+        return "LogFilter(" +
+                "actor=" + this.actor + ", " +
+                "type=" + this.type + ", " +
+                "acted=" + this.acted + ", " +
+                "actedName=" + this.actedName + ")";
+    }
+}
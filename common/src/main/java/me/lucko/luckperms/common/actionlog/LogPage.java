@@ -0,0 +1,183 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.actionlog;
+
+import com.google.common.collect.ImmutableSortedMap;
+
+import java.util.Collection;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * A page of entries from the action log.
+ *
+ * <p>Entries are numbered in the order they were made, starting at 1 for the
+ * oldest entry matching the filter used to query the log.</p>
+ */
+public final class LogPage {
+
+    /**
+     * The page number used to request the most recent page
+     */
+    public static final int LATEST = Integer.MIN_VALUE;
+
+    /**
+     * Gets a page from the given entries.
+     *
+     * @param entries all of the entries matching the filter
+     * @param pageNo the page number, or {@link #LATEST}
+     * @param entriesPerPage the number of entries on each page
+     * @return the page
+     */
+    public static LogPage of(SortedSet<ExtendedLogEntry> entries, int pageNo, int entriesPerPage) {
+        int totalEntries = entries.size();
+        pageNo = resolvePageNo(pageNo, totalEntries, entriesPerPage);
+        if (!isInRange(pageNo, totalEntries, entriesPerPage)) {
+            return new LogPage(pageNo, totalEntries, entriesPerPage, ImmutableSortedMap.of());
+        }
+
+        int skip = (pageNo - 1) * entriesPerPage;
+        return of(entries.stream().skip(skip).limit(entriesPerPage).collect(Collectors.toList()), pageNo, totalEntries, entriesPerPage);
+    }
+
+    /**
+     * Gets a page from the entries read for it.
+     *
+     * @param entries the entries on the page, in any order
+     * @param pageNo the resolved page number
+     * @param totalEntries the number of entries matching the filter
+     * @param entriesPerPage the number of entries on each page
+     * @return the page
+     */
+    public static LogPage of(Collection<ExtendedLogEntry> entries, int pageNo, int totalEntries, int entriesPerPage) {
+        SortedMap<Integer, ExtendedLogEntry> numbered = new TreeMap<>();
+        int index = (pageNo - 1) * entriesPerPage;
+        for (ExtendedLogEntry e : new TreeSet<>(entries)) {
+            numbered.put(++index, e);
+        }
+        return new LogPage(pageNo, totalEntries, entriesPerPage, ImmutableSortedMap.copyOfSorted(numbered));
+    }
+
+    /**
+     * Resolves {@link #LATEST} to the number of the most recent page.
+     *
+     * @param pageNo the requested page number
+     * @param totalEntries the number of entries matching the filter
+     * @param entriesPerPage the number of entries on each page
+     * @return the page number
+     */
+    public static int resolvePageNo(int pageNo, int totalEntries, int entriesPerPage) {
+        return pageNo == LATEST ? getMaxPages(totalEntries, entriesPerPage) : pageNo;
+    }
+
+    public static boolean isInRange(int pageNo, int totalEntries, int entriesPerPage) {
+        return pageNo >= 1 && pageNo <= getMaxPages(totalEntries, entriesPerPage);
+    }
+
+    /**
+     * Gets the number of entries to skip to reach the end of the given page,
+     * when reading the entries from the most recent.
+     *
+     * @param pageNo the resolved page number
+     * @param totalEntries the number of entries matching the filter
+     * @param entriesPerPage the number of entries on each page
+     * @return the number of entries to skip
+     */
+    public static int getOffsetFromLatest(int pageNo, int totalEntries, int entriesPerPage) {
+        return Math.max(0, totalEntries - pageNo * entriesPerPage);
+    }
+
+    /**
+     * Gets the number of entries on the given page.
+     *
+     * @param pageNo the resolved page number
+     * @param totalEntries the number of entries matching the filter
+     * @param entriesPerPage the number of entries on each page
+     * @return the number of entries
+     */
+    public static int getPageSize(int pageNo, int totalEntries, int entriesPerPage) {
+        return Math.min(pageNo * entriesPerPage, totalEntries) - (pageNo - 1) * entriesPerPage;
+    }
+
+    private static int getMaxPages(int totalEntries, int entriesPerPage) {
+        return (int) Math.ceil((double) totalEntries / (double) entriesPerPage);
+    }
+
+    private final int pageNo;
+    private final int totalEntries;
+    private final int entriesPerPage;
+    private final SortedMap<Integer, ExtendedLogEntry> entries;
+
+    private LogPage(int pageNo, int totalEntries, int entriesPerPage, SortedMap<Integer, ExtendedLogEntry> entries) {
+        this.pageNo = pageNo;
+        this.totalEntries = totalEntries;
+        this.entriesPerPage = entriesPerPage;
+        this.entries = entries;
+    }
+
+    /**
+     * Gets the number of this page
+     *
+     * @return the page number
+     */
+    public int getPageNo() {
+        return this.pageNo;
+    }
+
+    /**
+     * Gets the number of entries matching the filter, across all pages
+     *
+     * @return the number of entries
+     */
+    public int getTotalEntries() {
+        return this.totalEntries;
+    }
+
+    public int getMaxPages() {
+        return getMaxPages(this.totalEntries, this.entriesPerPage);
+    }
+
+    /**
+     * Gets if this page is one of the pages in the log
+     *
+     * @return true if the page is in range
+     */
+    public boolean isInRange() {
+        return isInRange(this.pageNo, this.totalEntries, this.entriesPerPage);
+    }
+
+    /**
+     * Gets the entries on this page, keyed by their number
+     *
+     * @return the entries
+     */
+    public SortedMap<Integer, ExtendedLogEntry> getEntries() {
+        return this.entries;
+    }
+}
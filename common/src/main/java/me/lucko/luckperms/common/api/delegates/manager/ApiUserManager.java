@@ -35,6 +35,7 @@ import me.lucko.luckperms.common.utils.ImmutableCollectors;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.Collection;
 import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
@@ -67,6 +68,23 @@ public class ApiUserManager extends ApiAbstractManager<User, me.lucko.luckperms.
                 .thenApply(this::getDelegateFor);
     }
 
+    @Nonnull
+    @Override
+    public CompletableFuture<Set<me.lucko.luckperms.api.User>> loadUsers(@Nonnull Collection<UUID> uuids) {
+        Objects.requireNonNull(uuids, "uuids");
+
+        for (UUID uuid : uuids) {
+            if (this.plugin.getUserManager().getIfLoaded(uuid) == null) {
+                this.plugin.getUserManager().getHouseKeeper().registerApiUsage(uuid);
+            }
+        }
+
+        return this.plugin.getStorage().noBuffer().loadUsers(uuids)
+                .thenApply(users -> users.values().stream()
+                        .map(this::getDelegateFor)
+                        .collect(ImmutableCollectors.toSet()));
+    }
+
     @Nonnull
     @Override
     public CompletableFuture<Void> saveUser(@Nonnull me.lucko.luckperms.api.User user) {
@@ -25,9 +25,11 @@
 
 package me.lucko.luckperms.common.buffers;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.ListIterator;
+import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.locks.ReentrantLock;
@@ -37,22 +39,53 @@ import java.util.function.Function;
  * Thread-safe buffer utility. Holds a buffer of objects to be processed after they've been waiting in the buffer
  * for a given time. If the same object is pushed to the buffer again in that time, its wait time is reset.
  *
+ * <p>Objects are processed in batches. The buffer holds at most a limited number of objects which are either
+ * waiting or being processed. Once the limit is reached, the waiting objects are processed straight away instead
+ * of waiting out the rest of their time, and newly pushed objects are held back until there is room. Pushing an
+ * object never blocks - the returned future just completes later.</p>
+ *
  * @param <T> the type of objects in the buffer
  * @param <R> the type of result produced by the final process
  */
 public class Buffer<T, R> implements Runnable {
     private static final long DEFAULT_FLUSH_TIME = 1000; // 1 second
 
-    public static <T, R> Buffer<T, R> of(Function<T, R> dequeueFunc) {
-        return new Buffer<>(dequeueFunc);
+    public static <T, R> Buffer<T, R> of(Function<List<T>, CompletableFuture<R>> dequeueFunc, int batchSize, int limit) {
+        return new Buffer<>(dequeueFunc, batchSize, limit);
     }
 
     private final ReentrantLock lock = new ReentrantLock();
-    private final List<BufferedObject<T, R>> buffer = new LinkedList<>();
-    private final Function<T, R> dequeueFunc;
 
-    private Buffer(Function<T, R> dequeueFunc) {
+    /**
+     * The buffered objects, ordered from the least to the most recently pushed
+     */
+    private final LinkedHashMap<T, BufferedObject<R>> buffer = new LinkedHashMap<>();
+
+    /**
+     * The objects which have been pushed while the buffer was full, in the order
+     * they were pushed. Pushing one of these again returns the same future.
+     */
+    private final LinkedHashMap<T, BufferedObject<R>> overflow = new LinkedHashMap<>();
+
+    private final Function<List<T>, CompletableFuture<R>> dequeueFunc;
+    private final int batchSize;
+    private final int limit;
+
+    /**
+     * The number of objects which are either waiting or being processed
+     */
+    private int outstanding = 0;
+
+    private Buffer(Function<List<T>, CompletableFuture<R>> dequeueFunc, int batchSize, int limit) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be at least 1");
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be at least 1");
+        }
         this.dequeueFunc = dequeueFunc;
+        this.batchSize = batchSize;
+        this.limit = limit;
     }
 
     public CompletableFuture<R> enqueue(T object) {
@@ -60,75 +93,151 @@ public class Buffer<T, R> implements Runnable {
 
         this.lock.lock();
         try {
-            ListIterator<BufferedObject<T, R>> it = this.buffer.listIterator();
+            // remove & re-add so the object moves to the end of the buffer
+            BufferedObject<R> o = this.buffer.remove(object);
 
-            BufferedObject<T, R> o = null;
+            if (o == null) {
+                // the object is already waiting for room in the buffer
+                BufferedObject<R> waiting = this.overflow.get(object);
+                if (waiting != null) {
+                    return waiting.getFuture();
+                }
 
-            while (it.hasNext()) {
-                BufferedObject<T, R> obj = it.next();
+                o = new BufferedObject<>(System.currentTimeMillis(), new CompletableFuture<>());
 
-                if (obj.getObject().equals(object)) {
-                    o = obj;
-                    it.remove();
-                    break;
+                // hold the object back until some of the outstanding objects have been processed
+                if (this.outstanding >= this.limit) {
+                    this.overflow.put(object, o);
+                    return o.getFuture();
                 }
-            }
-
-            if (o == null) {
-                o = new BufferedObject<>(System.currentTimeMillis(), object, new CompletableFuture<R>());
+                this.outstanding++;
             } else {
                 o.setBufferTime(System.currentTimeMillis());
             }
 
-            this.buffer.add(o);
+            this.buffer.put(object, o);
             return o.getFuture();
         } finally {
             this.lock.unlock();
         }
     }
 
-    protected R dequeue(T t) {
-        return this.dequeueFunc.apply(t);
+    protected CompletableFuture<R> dequeue(List<T> batch) {
+        return this.dequeueFunc.apply(batch);
     }
 
-    public void flush(long flushTime) {
-        long time = System.currentTimeMillis();
+    /**
+     * Processes the objects which have been waiting for longer than the given time.
+     *
+     * @param flushTime the time in milliseconds
+     * @return a future which completes once the objects have been processed
+     */
+    public CompletableFuture<Void> flush(long flushTime) {
+        List<T> objects = new ArrayList<>();
+        List<BufferedObject<R>> buffered = new ArrayList<>();
 
         this.lock.lock();
         try {
-            ListIterator<BufferedObject<T, R>> it = this.buffer.listIterator(this.buffer.size());
+            long time = System.currentTimeMillis();
+
+            // if the buffer is full, don't make anything wait any longer
+            boolean full = this.outstanding >= this.limit;
+
+            Iterator<Map.Entry<T, BufferedObject<R>>> it = this.buffer.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<T, BufferedObject<R>> e = it.next();
+                long bufferedTime = time - e.getValue().getBufferTime();
+
+                // the rest of the buffer was pushed more recently
+                if (!full && bufferedTime <= flushTime) {
+                    break;
+                }
+
+                objects.add(e.getKey());
+                buffered.add(e.getValue());
+                it.remove();
+            }
+        } finally {
+            this.lock.unlock();
+        }
+
+        if (objects.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
 
-            while (it.hasPrevious()) {
-                BufferedObject<T, R> obj = it.previous();
-                long bufferedTime = time - obj.getBufferTime();
+        List<CompletableFuture<?>> futures = new ArrayList<>();
+        for (int i = 0; i < objects.size(); i += this.batchSize) {
+            int end = Math.min(i + this.batchSize, objects.size());
+            List<BufferedObject<R>> batch = buffered.subList(i, end);
 
-                if (bufferedTime > flushTime) {
+            CompletableFuture<R> result;
+            try {
+                result = dequeue(new ArrayList<>(objects.subList(i, end)));
+            } catch (Exception e) {
+                result = new CompletableFuture<>();
+                result.completeExceptionally(e);
+            }
 
-                    // Flush
-                    R r = dequeue(obj.getObject());
-                    obj.getFuture().complete(r);
-                    it.remove();
+            futures.add(result.handle((r, ex) -> {
+                release(batch.size());
+                for (BufferedObject<R> obj : batch) {
+                    if (ex != null) {
+                        obj.getFuture().completeExceptionally(ex);
+                    } else {
+                        obj.getFuture().complete(r);
+                    }
                 }
+                return null;
+            }));
+        }
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+    }
+
+    private void release(int count) {
+        this.lock.lock();
+        try {
+            this.outstanding -= count;
+
+            // move objects which were held back into the buffer
+            Iterator<Map.Entry<T, BufferedObject<R>>> it = this.overflow.entrySet().iterator();
+            while (it.hasNext() && this.outstanding < this.limit) {
+                Map.Entry<T, BufferedObject<R>> e = it.next();
+                it.remove();
+                this.buffer.put(e.getKey(), e.getValue());
+                this.outstanding++;
             }
         } finally {
             this.lock.unlock();
         }
     }
 
+    /**
+     * Gets if there are any objects waiting to be processed.
+     *
+     * @return true if objects are waiting
+     */
+    public boolean hasWaiting() {
+        this.lock.lock();
+        try {
+            return !this.buffer.isEmpty() || !this.overflow.isEmpty();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
     @Override
     public void run() {
         flush(DEFAULT_FLUSH_TIME);
     }
 
-    private static final class BufferedObject<T, R> {
+    private static final class BufferedObject<R> {
 
         private long bufferTime;
-        private final T object;
         private final CompletableFuture<R> future;
 
-        public BufferedObject(long bufferTime, T object, CompletableFuture<R> future) {
+        public BufferedObject(long bufferTime, CompletableFuture<R> future) {
             this.bufferTime = bufferTime;
-            this.object = object;
             this.future = future;
         }
 
@@ -140,25 +249,8 @@ public class Buffer<T, R> implements Runnable {
             this.bufferTime = bufferTime;
         }
 
-        public T getObject() {
-            return this.object;
-        }
-
         public CompletableFuture<R> getFuture() {
             return this.future;
         }
-
-        @Override
-        public boolean equals(Object o) {
-            if (o == this) return true;
-            if (!(o instanceof Buffer.BufferedObject)) return false;
-            final BufferedObject that = (BufferedObject) o;
-            return Objects.equals(this.getObject(), that.getObject());
-        }
-
-        @Override
-        public int hashCode() {
-            return Objects.hashCode(this.object);
-        }
     }
 }
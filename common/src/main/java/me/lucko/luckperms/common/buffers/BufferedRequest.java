@@ -25,11 +25,12 @@
 
 package me.lucko.luckperms.common.buffers;
 
-import java.lang.ref.WeakReference;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
-import java.util.function.Supplier;
 
 /**
  * Thread-safe request buffer.
@@ -37,36 +38,39 @@ import java.util.function.Supplier;
  * Waits for the buffer time to pass before performing the operation. If the task is called again in that time, the
  * buffer time is reset.
  *
+ * Pending requests are timed by the plugins timer, and are only passed to the executor once they're due to be
+ * performed.
+ *
  * @param <T> the return type
  */
 public abstract class BufferedRequest<T> {
-    private final long bufferTimeMillis;
-    private final long sleepInterval;
+
+    private final long bufferTimeNanos;
+    private final ScheduledExecutorService timer;
     private final Executor executor;
 
-    private WeakReference<Processor<T>> processor = null;
+    private Processor processor = null;
     private final ReentrantLock lock = new ReentrantLock();
 
-    public BufferedRequest(long bufferTimeMillis, long sleepInterval, Executor executor) {
-        this.bufferTimeMillis = bufferTimeMillis;
-        this.sleepInterval = sleepInterval;
+    public BufferedRequest(long bufferTimeMillis, ScheduledExecutorService timer, Executor executor) {
+        this.bufferTimeNanos = TimeUnit.MILLISECONDS.toNanos(bufferTimeMillis);
+        this.timer = timer;
         this.executor = executor;
     }
 
     public CompletableFuture<T> request() {
         this.lock.lock();
         try {
-            if (this.processor != null) {
-                Processor<T> p = this.processor.get();
-                if (p != null && p.isUsable()) {
-                    return p.getAndExtend();
-                }
+            if (this.processor != null && this.processor.usable) {
+                // push back the execution time. the processor will reschedule itself when it's next run.
+                this.processor.executionTime = System.nanoTime() + this.bufferTimeNanos;
+                return this.processor.future;
             }
 
-            Processor<T> p = new Processor<>(this.bufferTimeMillis, this.sleepInterval, this::perform);
-            this.executor.execute(p);
-            this.processor = new WeakReference<>(p);
-            return p.get();
+            Processor p = new Processor(System.nanoTime() + this.bufferTimeNanos);
+            p.schedule(this.bufferTimeNanos);
+            this.processor = p;
+            return p.future;
 
         } finally {
             this.lock.unlock();
@@ -79,70 +83,51 @@ public abstract class BufferedRequest<T> {
 
     protected abstract T perform();
 
-    private static class Processor<R> implements Runnable {
-        private final long delayMillis;
-        private final long sleepMillis;
-        private final Supplier<R> supplier;
-        private final ReentrantLock lock = new ReentrantLock();
-        private final CompletableFuture<R> future = new CompletableFuture<>();
+    private final class Processor implements Runnable {
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        // guarded by BufferedRequest.this.lock
         private boolean usable = true;
         private long executionTime;
 
-        public Processor(long delayMillis, long sleepMillis, Supplier<R> supplier) {
-            this.delayMillis = delayMillis;
-            this.sleepMillis = sleepMillis;
-            this.supplier = supplier;
+        private Processor(long executionTime) {
+            this.executionTime = executionTime;
         }
 
-        @Override
-        public void run() {
-            this.lock.lock();
+        private void schedule(long delayNanos) {
             try {
-                this.executionTime = System.currentTimeMillis() + this.delayMillis;
-            } finally {
-                this.lock.unlock();
-            }
-
-            while (true) {
-                this.lock.lock();
-                try {
-                    if (System.currentTimeMillis() > this.executionTime) {
-                        this.usable = false;
-                        break;
-                    }
-
-                } finally {
-                    this.lock.unlock();
-                }
-
-                try {
-                    Thread.sleep(this.sleepMillis);
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
+                BufferedRequest.this.timer.schedule(this, delayNanos, TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                // the timer has been shutdown, so just perform the request now
+                this.executionTime = System.nanoTime();
+                run();
             }
-
-            R result = this.supplier.get();
-            this.future.complete(result);
         }
 
-        public CompletableFuture<R> get() {
-            return this.future;
-        }
-
-        public CompletableFuture<R> getAndExtend() {
-            this.lock.lock();
+        @Override
+        public void run() {
+            BufferedRequest.this.lock.lock();
             try {
-                this.executionTime = System.currentTimeMillis() + this.delayMillis;
+                long remaining = this.executionTime - System.nanoTime();
+                if (remaining > 0) {
+                    // the request was extended since we were scheduled
+                    schedule(remaining);
+                    return;
+                }
+
+                this.usable = false;
             } finally {
-                this.lock.unlock();
+                BufferedRequest.this.lock.unlock();
             }
 
-            return this.future;
-        }
-
-        public boolean isUsable() {
-            return this.usable;
+            BufferedRequest.this.executor.execute(() -> {
+                try {
+                    this.future.complete(perform());
+                } catch (Throwable t) {
+                    this.future.completeExceptionally(t);
+                    throw t;
+                }
+            });
         }
     }
 
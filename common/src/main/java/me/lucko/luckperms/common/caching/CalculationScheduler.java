@@ -0,0 +1,225 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.caching;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Schedules the recalculation of cached data.
+ *
+ * <p>Calculations are performed by a bounded pool of worker threads, in order of
+ * {@link Priority}. Requests for a calculation which is already waiting to be
+ * performed are coalesced with the existing request.</p>
+ */
+public class CalculationScheduler {
+
+    /**
+     * The priority of a calculation
+     */
+    public enum Priority {
+
+        /**
+         * For data needed by players who are currently online
+         */
+        HIGH,
+
+        /**
+         * For data which other calculations may depend upon
+         */
+        NORMAL,
+
+        /**
+         * For data which has recently been requested, but isn't needed by an online player
+         */
+        RECENT,
+
+        /**
+         * For data which isn't actively being used
+         */
+        LOW
+    }
+
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * The calculations which are waiting to be performed, mapped by their key
+     */
+    private final Map<Object, Task<?>> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Used to perform calculations of the same priority in the order they were submitted
+     */
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    public CalculationScheduler(int threads) {
+        this.executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, new PriorityBlockingQueue<>(), new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("luckperms-calculation-%d")
+                .build()
+        );
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public CalculationScheduler() {
+        this(Math.max(2, Runtime.getRuntime().availableProcessors() / 2));
+    }
+
+    /**
+     * Schedules a calculation.
+     *
+     * <p>If a calculation with an equal key is already waiting to be performed, the
+     * future of the existing calculation is returned instead, and its priority is
+     * raised if necessary.</p>
+     *
+     * @param key the key identifying the calculation
+     * @param priority the priority of the calculation
+     * @param supplier the calculation
+     * @param <R> the result type
+     * @return a future encapsulating the result of the calculation
+     */
+    @SuppressWarnings("unchecked")
+    public <R> CompletableFuture<R> submit(Object key, Priority priority, Supplier<R> supplier) {
+        this.submitted.increment();
+
+        Task<?>[] scheduled = new Task<?>[1];
+        Task<?> task = this.pending.compute(key, (k, existing) -> {
+            if (existing == null) {
+                return scheduled[0] = new Task<>(k, priority, supplier, new CompletableFuture<>());
+            }
+
+            this.coalesced.increment();
+            if (priority.compareTo(existing.priority) < 0) {
+                // replace the existing task with one of a higher priority.
+                // the existing task will no longer be pending, so won't run.
+                return scheduled[0] = existing.withPriority(priority);
+            }
+            return existing;
+        });
+
+        if (scheduled[0] != null) {
+            this.executor.execute(scheduled[0]);
+        }
+        return (CompletableFuture<R>) task.future;
+    }
+
+    /**
+     * Gets the number of calculations waiting to be performed.
+     *
+     * @return the queue depth
+     */
+    public int getQueueDepth() {
+        return this.pending.size();
+    }
+
+    /**
+     * Gets the number of calculations currently being performed.
+     *
+     * @return the number of active calculations
+     */
+    public int getActiveCount() {
+        return this.executor.getActiveCount();
+    }
+
+    /**
+     * Gets the total number of calculations which have been submitted.
+     *
+     * @return the number of submitted calculations
+     */
+    public long getSubmittedCount() {
+        return this.submitted.sum();
+    }
+
+    /**
+     * Gets the number of submitted calculations which were coalesced with an existing one.
+     *
+     * @return the number of coalesced calculations
+     */
+    public long getCoalescedCount() {
+        return this.coalesced.sum();
+    }
+
+    public void shutdown() {
+        this.executor.shutdown();
+    }
+
+    private final class Task<R> implements Runnable, Comparable<Task<?>> {
+        private final Object key;
+        private final Priority priority;
+        private final Supplier<R> supplier;
+        private final CompletableFuture<R> future;
+        private final long sequence;
+
+        private Task(Object key, Priority priority, Supplier<R> supplier, CompletableFuture<R> future) {
+            this.key = key;
+            this.priority = priority;
+            this.supplier = supplier;
+            this.future = future;
+            this.sequence = CalculationScheduler.this.sequence.getAndIncrement();
+        }
+
+        private Task<R> withPriority(Priority priority) {
+            return new Task<>(this.key, priority, this.supplier, this.future);
+        }
+
+        @Override
+        public void run() {
+            // once the task is no longer pending, any further requests will be scheduled separately.
+            // if the task has been replaced, the replacement will complete the future instead.
+            if (!CalculationScheduler.this.pending.remove(this.key, this)) {
+                return;
+            }
+
+            try {
+                this.future.complete(this.supplier.get());
+            } catch (Throwable t) {
+                this.future.completeExceptionally(t);
+            }
+        }
+
+        @Override
+        public int compareTo(Task<?> other) {
+            int i = this.priority.compareTo(other.priority);
+            if (i != 0) {
+                return i;
+            }
+            return Long.compare(this.sequence, other.sequence);
+        }
+    }
+
+}
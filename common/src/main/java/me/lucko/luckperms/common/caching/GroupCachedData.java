@@ -25,16 +25,68 @@
 
 package me.lucko.luckperms.common.caching;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import me.lucko.luckperms.api.Contexts;
 import me.lucko.luckperms.api.caching.GroupData;
+import me.lucko.luckperms.common.caching.type.PermissionSnapshot;
+import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.model.Group;
 
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Holds an easily accessible cache of a groups's data in a number of contexts
  */
 public class GroupCachedData extends HolderCachedData<Group> implements GroupData {
 
+    /**
+     * The cache used for {@link PermissionSnapshot} instances.
+     */
+    private final Cache<Contexts, PermissionSnapshot> snapshots = Caffeine.newBuilder()
+            .expireAfterAccess(2, TimeUnit.MINUTES)
+            .build();
+
     public GroupCachedData(Group holder) {
         super(holder);
+
+        // release our snapshots when the group changes. snapshots are also checked against
+        // the group state version, as they depend on the state of parent groups too.
+        holder.getStateListeners().add(this.snapshots::invalidateAll);
+    }
+
+    /**
+     * Gets a snapshot of the permissions exported by the group in the given contexts,
+     * calculating it if necessary.
+     *
+     * @param contexts the contexts
+     * @return the snapshot
+     */
+    public PermissionSnapshot getPermissionSnapshot(Contexts contexts) {
+        Objects.requireNonNull(contexts, "contexts");
+
+        long groupStateVersion = this.holder.getPlugin().getInheritanceHandler().getGroupStateVersion();
+
+        PermissionSnapshot snapshot = this.snapshots.getIfPresent(contexts);
+        if (snapshot == null || snapshot.getGroupStateVersion() != groupStateVersion) {
+            boolean applyShorthand = this.holder.getPlugin().getConfiguration().get(ConfigKeys.APPLYING_SHORTHAND);
+            snapshot = PermissionSnapshot.of(this.holder.getExportEntries(contexts), applyShorthand, groupStateVersion);
+            this.snapshots.put(contexts, snapshot);
+        }
+        return snapshot;
+    }
+
+    @Override
+    public void invalidateCaches() {
+        super.invalidateCaches();
+        this.snapshots.invalidateAll();
+    }
+
+    @Override
+    public void doCacheCleanup() {
+        super.doCacheCleanup();
+        this.snapshots.cleanUp();
     }
 
     @Override
@@ -28,19 +28,32 @@ package me.lucko.luckperms.common.caching;
 import com.github.benmanes.caffeine.cache.CacheLoader;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.google.common.collect.Maps;
 import me.lucko.luckperms.api.ChatMetaType;
 import me.lucko.luckperms.api.Contexts;
+import me.lucko.luckperms.api.LocalizedNode;
+import me.lucko.luckperms.api.Node;
 import me.lucko.luckperms.api.caching.CachedData;
 import me.lucko.luckperms.api.caching.MetaContexts;
 import me.lucko.luckperms.common.caching.type.MetaAccumulator;
 import me.lucko.luckperms.common.caching.type.MetaCache;
 import me.lucko.luckperms.common.caching.type.PermissionCache;
+import me.lucko.luckperms.common.caching.type.PermissionSnapshot;
 import me.lucko.luckperms.common.calculators.PermissionCalculatorMetadata;
+import me.lucko.luckperms.common.config.ConfigKeys;
+import me.lucko.luckperms.common.graph.TraversalAlgorithm;
+import me.lucko.luckperms.common.inheritance.InheritanceGraph;
+import me.lucko.luckperms.common.inheritance.InheritanceHandler;
 import me.lucko.luckperms.common.metastacking.SimpleMetaStack;
+import me.lucko.luckperms.common.model.Group;
 import me.lucko.luckperms.common.model.PermissionHolder;
+import me.lucko.luckperms.common.node.NodeFactory;
 
 import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
@@ -58,17 +71,21 @@ public abstract class HolderCachedData<T extends PermissionHolder> implements Ca
 
     /**
      * The cache used for {@link PermissionCache} instances.
+     *
+     * <p>Both caches are only created when data is first requested, as many
+     * holders are loaded without ever being checked.</p>
      */
-    private final LoadingCache<Contexts, PermissionCache> permission = Caffeine.newBuilder()
-            .expireAfterAccess(2, TimeUnit.MINUTES)
-            .build(new PermissionCacheLoader());
+    private volatile LoadingCache<Contexts, PermissionCache> permission = null;
 
     /**
      * The cache used for {@link MetaCache} instances.
      */
-    private final LoadingCache<MetaContexts, MetaCache> meta = Caffeine.newBuilder()
-            .expireAfterAccess(2, TimeUnit.MINUTES)
-            .build(new MetaCacheLoader());
+    private volatile LoadingCache<MetaContexts, MetaCache> meta = null;
+
+    /**
+     * The time when data was last requested from this instance
+     */
+    private volatile long lastRequested = 0L;
 
     public HolderCachedData(T holder) {
         this.holder = holder;
@@ -76,6 +93,79 @@ public abstract class HolderCachedData<T extends PermissionHolder> implements Ca
 
     protected abstract String getHolderName();
 
+    private LoadingCache<Contexts, PermissionCache> permissionCache() {
+        LoadingCache<Contexts, PermissionCache> cache = this.permission;
+        if (cache == null) {
+            synchronized (this) {
+                cache = this.permission;
+                if (cache == null) {
+                    cache = Caffeine.newBuilder()
+                            .expireAfterAccess(2, TimeUnit.MINUTES)
+                            .build(new PermissionCacheLoader());
+                    this.permission = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    private LoadingCache<MetaContexts, MetaCache> metaCache() {
+        LoadingCache<MetaContexts, MetaCache> cache = this.meta;
+        if (cache == null) {
+            synchronized (this) {
+                cache = this.meta;
+                if (cache == null) {
+                    cache = Caffeine.newBuilder()
+                            .expireAfterAccess(2, TimeUnit.MINUTES)
+                            .build(new MetaCacheLoader());
+                    this.meta = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    private Set<Contexts> cachedPermissionContexts() {
+        LoadingCache<Contexts, PermissionCache> cache = this.permission;
+        return cache == null ? Collections.emptySet() : new HashSet<>(cache.asMap().keySet());
+    }
+
+    private Set<MetaContexts> cachedMetaContexts() {
+        LoadingCache<MetaContexts, MetaCache> cache = this.meta;
+        return cache == null ? Collections.emptySet() : new HashSet<>(cache.asMap().keySet());
+    }
+
+    /**
+     * Records that data has been requested from this instance.
+     */
+    private void markRequested() {
+        // only write the field once a second, as this is called on every check
+        long now = System.currentTimeMillis();
+        if (now - this.lastRequested > 1000L) {
+            this.lastRequested = now;
+        }
+    }
+
+    /**
+     * Gets if data has been requested from this instance within the given time.
+     *
+     * @param duration the duration
+     * @param unit the unit of the duration
+     * @return if data has been requested recently
+     */
+    protected boolean wasRequestedWithin(long duration, TimeUnit unit) {
+        return System.currentTimeMillis() - this.lastRequested <= unit.toMillis(duration);
+    }
+
+    /**
+     * Gets the priority to use when scheduling the recalculation of this data.
+     *
+     * @return the calculation priority
+     */
+    protected CalculationScheduler.Priority getCalculationPriority() {
+        return CalculationScheduler.Priority.NORMAL;
+    }
+
     /**
      * Calculates a {@link PermissionCache} instance.
      *
@@ -89,17 +179,96 @@ public abstract class HolderCachedData<T extends PermissionHolder> implements Ca
         if (data == null) {
             PermissionCalculatorMetadata metadata = PermissionCalculatorMetadata.of(this.holder.getType(), getHolderName(), contexts.getContexts());
             data = new PermissionCache(contexts, metadata, this.holder.getPlugin().getCalculatorFactory());
+        } else if (updatePermissions(contexts, data)) {
+            return data;
         }
 
-        if (contexts == Contexts.allowAll()) {
-            data.setPermissions(this.holder.exportNodesAndShorthand(true));
-        } else {
-            data.setPermissions(this.holder.exportNodesAndShorthand(contexts, true));
+        // take note of the state versions before exporting, so any changes made
+        // during the calculation will be re-applied when the data is next updated
+        long version = this.holder.getChangeLog().getVersion();
+        long groupStateVersion = this.holder.getPlugin().getInheritanceHandler().getGroupStateVersion();
+
+        boolean applyShorthand = this.holder.getPlugin().getConfiguration().get(ConfigKeys.APPLYING_SHORTHAND);
+
+        // users can merge their own nodes over the shared snapshots of their parent groups,
+        // providing the inheritance tree is traversed depth first, (each parent is then
+        // traversed in full before moving onto the next)
+        if (this.holder.getType().isUser() && contexts.isApplyGroups() && this.holder.getPlugin().getConfiguration().get(ConfigKeys.INHERITANCE_TRAVERSAL_ALGORITHM) == TraversalAlgorithm.DEPTH_FIRST_PRE_ORDER) {
+            InheritanceHandler inheritanceHandler = this.holder.getPlugin().getInheritanceHandler();
+            InheritanceGraph graph = contexts == Contexts.allowAll() ? inheritanceHandler.getGraph() : inheritanceHandler.getGraph(contexts);
+
+            List<PermissionSnapshot> inherited = new ArrayList<>();
+            for (PermissionHolder parent : graph.successors(this.holder)) {
+                inherited.add(((Group) parent).getCachedData().getPermissionSnapshot(contexts));
+            }
+
+            data.setPermissions(this.holder.getOwnExportEntries(contexts), inherited, applyShorthand);
+            data.setVersion(version, groupStateVersion);
+            return data;
         }
 
+        List<LocalizedNode> entries = this.holder.getExportEntries(contexts);
+
+        // only track the holders own entries for users - the data of groups is always
+        // recalculated, as any change to a group changes the group state version
+        int ownEntries = -1;
+        if (this.holder.getType().isUser() && this.holder.isOwnEntriesFirst(contexts)) {
+            ownEntries = 0;
+            for (LocalizedNode entry : entries) {
+                if (!entry.getLocation().equals(this.holder.getObjectName())) {
+                    break;
+                }
+                ownEntries++;
+            }
+        }
+
+        data.setPermissions(entries, ownEntries, applyShorthand);
+        data.setVersion(version, groupStateVersion);
         return data;
     }
 
+    /**
+     * Attempts to incrementally update a {@link PermissionCache} instance, following
+     * changes to the holders own nodes.
+     *
+     * @param contexts the contexts the data was calculated in
+     * @param data the data
+     * @return true if the data was updated, false if it needs to be fully recalculated
+     */
+    private boolean updatePermissions(Contexts contexts, PermissionCache data) {
+        long version = this.holder.getChangeLog().getVersion();
+        long groupStateVersion = this.holder.getPlugin().getInheritanceHandler().getGroupStateVersion();
+
+        if (data.getGroupStateVersion() != groupStateVersion) {
+            return false;
+        }
+
+        List<Node> changes = this.holder.getChangeLog().getChangesSince(data.getVersion());
+        if (changes == null) {
+            return false;
+        }
+
+        if (!changes.isEmpty()) {
+            boolean applyShorthand = this.holder.getPlugin().getConfiguration().get(ConfigKeys.APPLYING_SHORTHAND);
+
+            Set<String> changeableKeys = new HashSet<>();
+            for (Node node : changes) {
+                // group nodes change inheritance, and shorthand nodes could affect any number of keys
+                if (node.isGroupNode() || (applyShorthand && !node.resolveShorthand().isEmpty())) {
+                    return false;
+                }
+                changeableKeys.add(node.getPermission().toLowerCase());
+            }
+
+            if (!data.updateOwnEntries(this.holder.getOwnExportEntries(contexts), applyShorthand, changeableKeys)) {
+                return false;
+            }
+        }
+
+        data.setVersion(version, groupStateVersion);
+        return true;
+    }
+
     /**
      * Calculates a {@link MetaCache} instance.
      *
@@ -112,33 +281,73 @@ public abstract class HolderCachedData<T extends PermissionHolder> implements Ca
 
         if (data == null) {
             data = new MetaCache(contexts);
+        } else if (updateMeta(data)) {
+            return data;
         }
 
+        // take note of the state versions before accumulating, so any changes made
+        // during the calculation will be re-applied when the data is next updated
+        long version = this.holder.getChangeLog().getVersion();
+        long groupStateVersion = this.holder.getPlugin().getInheritanceHandler().getGroupStateVersion();
+
         if (contexts.getContexts() == Contexts.allowAll()) {
             data.loadMeta(this.holder.accumulateMeta(newAccumulator(contexts)));
         } else {
             data.loadMeta(this.holder.accumulateMeta(newAccumulator(contexts), contexts.getContexts()));
         }
 
+        data.setVersion(version, groupStateVersion);
         return data;
     }
 
+    /**
+     * Checks if a {@link MetaCache} instance is still valid following changes to the
+     * holders own nodes, and updates its version if so.
+     *
+     * @param data the data
+     * @return true if the data is still valid, false if it needs to be recalculated
+     */
+    private boolean updateMeta(MetaCache data) {
+        long version = this.holder.getChangeLog().getVersion();
+        long groupStateVersion = this.holder.getPlugin().getInheritanceHandler().getGroupStateVersion();
+
+        if (data.getGroupStateVersion() != groupStateVersion) {
+            return false;
+        }
+
+        List<Node> changes = this.holder.getChangeLog().getChangesSince(data.getVersion());
+        if (changes == null) {
+            return false;
+        }
+
+        for (Node node : changes) {
+            if (node.isGroupNode() || node.isMeta() || node.isPrefix() || node.isSuffix() || NodeFactory.parseWeightNode(node.getPermission()) != null) {
+                return false;
+            }
+        }
+
+        data.setVersion(version, groupStateVersion);
+        return true;
+    }
+
     @Nonnull
     @Override
     public PermissionCache getPermissionData(@Nonnull Contexts contexts) {
         Objects.requireNonNull(contexts, "contexts");
+        markRequested();
 
         //noinspection ConstantConditions
-        return this.permission.get(contexts);
+        return permissionCache().get(contexts);
     }
 
     @Nonnull
     @Override
     public MetaCache getMetaData(@Nonnull MetaContexts contexts) {
         Objects.requireNonNull(contexts, "contexts");
+        markRequested();
 
         //noinspection ConstantConditions
-        return this.meta.get(contexts);
+        return metaCache().get(contexts);
     }
 
     @Nonnull
@@ -172,13 +381,13 @@ public abstract class HolderCachedData<T extends PermissionHolder> implements Ca
     @Override
     public void recalculatePermissions(@Nonnull Contexts contexts) {
         Objects.requireNonNull(contexts, "contexts");
-        this.permission.refresh(contexts);
+        permissionCache().refresh(contexts);
     }
 
     @Override
     public void recalculateMeta(@Nonnull MetaContexts contexts) {
         Objects.requireNonNull(contexts, "contexts");
-        this.meta.refresh(contexts);
+        metaCache().refresh(contexts);
     }
 
     @Override
@@ -192,14 +401,25 @@ public abstract class HolderCachedData<T extends PermissionHolder> implements Ca
     public CompletableFuture<PermissionCache> reloadPermissions(@Nonnull Contexts contexts) {
         Objects.requireNonNull(contexts, "contexts");
 
+        LoadingCache<Contexts, PermissionCache> cache = permissionCache();
+
         // get the previous value - to use when recalculating
-        PermissionCache previous = this.permission.getIfPresent(contexts);
+        PermissionCache previous = cache.getIfPresent(contexts);
+
+        // try to update the previous value in place
+        if (previous != null && updatePermissions(contexts, previous)) {
+            return CompletableFuture.completedFuture(previous);
+        }
 
         // invalidate the entry
-        this.permission.invalidate(contexts);
+        cache.invalidate(contexts);
 
         // repopulate the cache
-        return CompletableFuture.supplyAsync(() -> this.permission.get(contexts, c -> calculatePermissions(c, previous)));
+        return this.holder.getPlugin().getCalculationScheduler().submit(
+                Maps.immutableEntry(cache, contexts),
+                getCalculationPriority(),
+                () -> cache.get(contexts, c -> calculatePermissions(c, previous))
+        );
     }
 
     @Nonnull
@@ -207,14 +427,25 @@ public abstract class HolderCachedData<T extends PermissionHolder> implements Ca
     public CompletableFuture<MetaCache> reloadMeta(@Nonnull MetaContexts contexts) {
         Objects.requireNonNull(contexts, "contexts");
 
+        LoadingCache<MetaContexts, MetaCache> cache = metaCache();
+
         // get the previous value - to use when recalculating
-        MetaCache previous = this.meta.getIfPresent(contexts);
+        MetaCache previous = cache.getIfPresent(contexts);
+
+        // try to reuse the previous value
+        if (previous != null && updateMeta(previous)) {
+            return CompletableFuture.completedFuture(previous);
+        }
 
         // invalidate the entry
-        this.meta.invalidate(contexts);
+        cache.invalidate(contexts);
 
         // repopulate the cache
-        return CompletableFuture.supplyAsync(() -> this.meta.get(contexts, c -> calculateMeta(c, previous)));
+        return this.holder.getPlugin().getCalculationScheduler().submit(
+                Maps.immutableEntry(cache, contexts),
+                getCalculationPriority(),
+                () -> cache.get(contexts, c -> calculateMeta(c, previous))
+        );
     }
 
     @Nonnull
@@ -226,27 +457,25 @@ public abstract class HolderCachedData<T extends PermissionHolder> implements Ca
 
     @Override
     public void recalculatePermissions() {
-        Set<Contexts> keys = this.permission.asMap().keySet();
-        keys.forEach(this::recalculatePermissions);
+        cachedPermissionContexts().forEach(this::recalculatePermissions);
     }
 
     @Override
     public void recalculateMeta() {
-        Set<MetaContexts> keys = this.meta.asMap().keySet();
-        keys.forEach(this::recalculateMeta);
+        cachedMetaContexts().forEach(this::recalculateMeta);
     }
 
     @Nonnull
     @Override
     public CompletableFuture<Void> reloadPermissions() {
-        Set<Contexts> keys = new HashSet<>(this.permission.asMap().keySet());
+        Set<Contexts> keys = cachedPermissionContexts();
         return CompletableFuture.allOf(keys.stream().map(this::reloadPermissions).toArray(CompletableFuture[]::new));
     }
 
     @Nonnull
     @Override
     public CompletableFuture<Void> reloadMeta() {
-        Set<MetaContexts> keys = new HashSet<>(this.meta.asMap().keySet());
+        Set<MetaContexts> keys = cachedMetaContexts();
         return CompletableFuture.allOf(keys.stream().map(this::reloadMeta).toArray(CompletableFuture[]::new));
     }
 
@@ -263,34 +492,55 @@ public abstract class HolderCachedData<T extends PermissionHolder> implements Ca
     @Override
     public void invalidatePermissions(@Nonnull Contexts contexts) {
         Objects.requireNonNull(contexts, "contexts");
-        this.permission.invalidate(contexts);
+        LoadingCache<Contexts, PermissionCache> cache = this.permission;
+        if (cache != null) {
+            cache.invalidate(contexts);
+        }
     }
 
     @Override
     public void invalidateMeta(@Nonnull MetaContexts contexts) {
         Objects.requireNonNull(contexts, "contexts");
-        this.meta.invalidate(contexts);
+        LoadingCache<MetaContexts, MetaCache> cache = this.meta;
+        if (cache != null) {
+            cache.invalidate(contexts);
+        }
     }
 
     @Override
     public void invalidateMeta(@Nonnull Contexts contexts) {
         Objects.requireNonNull(contexts, "contexts");
-        this.meta.invalidate(this.holder.getPlugin().getContextManager().formMetaContexts(contexts));
+        invalidateMeta(this.holder.getPlugin().getContextManager().formMetaContexts(contexts));
     }
 
     @Override
     public void invalidatePermissionCalculators() {
-        this.permission.asMap().values().forEach(PermissionCache::invalidateCache);
+        LoadingCache<Contexts, PermissionCache> cache = this.permission;
+        if (cache != null) {
+            cache.asMap().values().forEach(PermissionCache::invalidateCache);
+        }
     }
 
     public void invalidateCaches() {
-        this.permission.invalidateAll();
-        this.meta.invalidateAll();
+        LoadingCache<Contexts, PermissionCache> permission = this.permission;
+        if (permission != null) {
+            permission.invalidateAll();
+        }
+        LoadingCache<MetaContexts, MetaCache> meta = this.meta;
+        if (meta != null) {
+            meta.invalidateAll();
+        }
     }
 
     public void doCacheCleanup() {
-        this.permission.cleanUp();
-        this.meta.cleanUp();
+        LoadingCache<Contexts, PermissionCache> permission = this.permission;
+        if (permission != null) {
+            permission.cleanUp();
+        }
+        LoadingCache<MetaContexts, MetaCache> meta = this.meta;
+        if (meta != null) {
+            meta.cleanUp();
+        }
     }
 
     private final class PermissionCacheLoader implements CacheLoader<Contexts, PermissionCache> {
@@ -28,6 +28,8 @@ package me.lucko.luckperms.common.caching;
 import me.lucko.luckperms.api.caching.UserData;
 import me.lucko.luckperms.common.model.User;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * Holds an easily accessible cache of a user's data in a number of contexts
  */
@@ -41,4 +43,17 @@ public class UserCachedData extends HolderCachedData<User> implements UserData {
     protected String getHolderName() {
         return this.holder.getFriendlyName();
     }
+
+    @Override
+    protected CalculationScheduler.Priority getCalculationPriority() {
+        // prioritise players who are online over users loaded for other reasons (commands, the API, etc)
+        if (this.holder.getPlugin().isPlayerOnline(this.holder.getUuid())) {
+            return CalculationScheduler.Priority.HIGH;
+        }
+        // then users whose data has been checked recently, e.g. by another plugin
+        if (wasRequestedWithin(2, TimeUnit.MINUTES)) {
+            return CalculationScheduler.Priority.RECENT;
+        }
+        return CalculationScheduler.Priority.LOW;
+    }
 }
@@ -60,10 +60,40 @@ public class MetaCache implements MetaData {
     private MetaStack prefixStack = null;
     private MetaStack suffixStack = null;
 
+    /**
+     * The version of the holders {@link me.lucko.luckperms.common.model.NodeChangeLog}
+     * this data was calculated at
+     */
+    private volatile long version = -1L;
+
+    /**
+     * The group state version this data was calculated at
+     */
+    private volatile long groupStateVersion = -1L;
+
     public MetaCache(MetaContexts metaContexts) {
         this.metaContexts = metaContexts;
     }
 
+    public long getVersion() {
+        return this.version;
+    }
+
+    public long getGroupStateVersion() {
+        return this.groupStateVersion;
+    }
+
+    /**
+     * Records the state versions this data was calculated at.
+     *
+     * @param version the holders node change log version
+     * @param groupStateVersion the group state version
+     */
+    public void setVersion(long version, long groupStateVersion) {
+        this.version = version;
+        this.groupStateVersion = groupStateVersion;
+    }
+
     public void loadMeta(MetaAccumulator meta) {
         this.lock.writeLock().lock();
         try {
@@ -26,6 +26,7 @@
 package me.lucko.luckperms.common.caching.type;
 
 import me.lucko.luckperms.api.Contexts;
+import me.lucko.luckperms.api.Node;
 import me.lucko.luckperms.api.Tristate;
 import me.lucko.luckperms.api.caching.PermissionData;
 import me.lucko.luckperms.common.calculators.CalculatorFactory;
@@ -35,7 +36,12 @@ import me.lucko.luckperms.common.verbose.CheckOrigin;
 
 import javax.annotation.Nonnull;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -65,6 +71,29 @@ public class PermissionCache implements PermissionData {
      */
     private final PermissionCalculator calculator;
 
+    /**
+     * The permissions exported from the holders own nodes, or null if the data isn't
+     * being tracked. (own nodes weren't exported first)
+     */
+    private Map<String, Boolean> ownPermissions = null;
+
+    /**
+     * The values which would have been inherited for each key in {@link #ownPermissions},
+     * had they not been overridden by the holders own nodes.
+     */
+    private Map<String, Boolean> overriddenPermissions = null;
+
+    /**
+     * The version of the holders {@link me.lucko.luckperms.common.model.NodeChangeLog}
+     * this data was calculated at
+     */
+    private volatile long version = -1L;
+
+    /**
+     * The group state version this data was calculated at
+     */
+    private volatile long groupStateVersion = -1L;
+
     public PermissionCache(Contexts contexts, PermissionCalculatorMetadata metadata, CalculatorFactory calculatorFactory) {
         this.contexts = contexts;
         this.permissions = new ConcurrentHashMap<>();
@@ -86,12 +115,157 @@ public class PermissionCache implements PermissionData {
         invalidateCache();
     }
 
-    public void setPermissions(Map<String, Boolean> toApply) {
+    private void setPermissions(Map<String, Boolean> toApply) {
         if (!this.permissions.equals(toApply)) {
             setPermissionsInternal(toApply);
         }
     }
 
+    /**
+     * Sets the permissions in this cache by exporting the given entries.
+     *
+     * <p>If the holders own entries were exported first (ownEntries is not negative),
+     * the information needed to later {@link #updateOwnEntries(List, boolean, Set) update}
+     * the own entries incrementally is also retained.</p>
+     *
+     * @param entries the entries, in order of priority
+     * @param ownEntries the number of entries at the start of the list which are the holders
+     *                   own entries, or -1 if the holders own entries weren't exported first
+     * @param applyShorthand if shorthand permissions should be applied
+     */
+    public synchronized void setPermissions(List<? extends Node> entries, int ownEntries, boolean applyShorthand) {
+        Exporter exporter = new Exporter(applyShorthand, ownEntries >= 0);
+
+        int i = 0;
+        for (Node node : entries) {
+            exporter.exportNode(node, i++ < ownEntries);
+        }
+
+        setPermissions(exporter);
+    }
+
+    /**
+     * Sets the permissions in this cache by exporting the holders own entries, followed
+     * by the snapshots of the groups they inherit.
+     *
+     * <p>The information needed to later {@link #updateOwnEntries(List, boolean, Set) update}
+     * the own entries incrementally is also retained.</p>
+     *
+     * @param ownEntries the holders own entries, in order of priority
+     * @param inherited the snapshots of the inherited groups, in order of priority
+     * @param applyShorthand if shorthand permissions should be applied
+     */
+    public synchronized void setPermissions(List<? extends Node> ownEntries, List<PermissionSnapshot> inherited, boolean applyShorthand) {
+        Exporter exporter = new Exporter(applyShorthand, true);
+
+        for (Node node : ownEntries) {
+            exporter.exportNode(node, true);
+        }
+        for (PermissionSnapshot snapshot : inherited) {
+            exporter.exportSnapshot(snapshot);
+        }
+
+        setPermissions(exporter);
+    }
+
+    private void setPermissions(Exporter exporter) {
+        this.ownPermissions = exporter.own;
+        this.overriddenPermissions = exporter.overridden;
+        setPermissions(exporter.permissions);
+    }
+
+    /**
+     * Attempts to update the permissions in this cache following a change to the holders
+     * own entries, without re-exporting any inherited entries.
+     *
+     * <p>This is only possible if the own entries were tracked when the data was last
+     * fully calculated, and if every key which changes as a result is in the given set of
+     * changeable keys. Keys which may have been expanded by shorthand, or which may
+     * affect inheritance should never be considered changeable.</p>
+     *
+     * @param ownEntries the holders own entries, in order of priority
+     * @param applyShorthand if shorthand permissions should be applied
+     * @param changeableKeys the keys which can be changed incrementally
+     * @return true if the update was successful, false if the data needs to be fully recalculated
+     */
+    public synchronized boolean updateOwnEntries(List<? extends Node> ownEntries, boolean applyShorthand, Set<String> changeableKeys) {
+        if (this.ownPermissions == null) {
+            return false;
+        }
+
+        Exporter exporter = new Exporter(applyShorthand, false);
+        for (Node node : ownEntries) {
+            exporter.exportNode(node, false);
+        }
+        Map<String, Boolean> own = exporter.permissions;
+
+        Set<String> keys = new HashSet<>(this.ownPermissions.keySet());
+        keys.addAll(own.keySet());
+
+        Map<String, Boolean> overridden = new HashMap<>(this.overriddenPermissions);
+        Map<String, Boolean> changes = new HashMap<>();
+        Set<String> removals = new HashSet<>();
+
+        for (String key : keys) {
+            Boolean before = this.ownPermissions.get(key);
+            Boolean after = own.get(key);
+            if (Objects.equals(before, after)) {
+                continue;
+            }
+
+            if (!changeableKeys.contains(key)) {
+                return false;
+            }
+
+            // the value which would be inherited if the holder didn't define the key themselves
+            Boolean inherited = before != null ? this.overriddenPermissions.get(key) : this.permissions.get(key);
+
+            if (after != null) {
+                changes.put(key, after);
+                if (inherited != null) {
+                    overridden.put(key, inherited);
+                }
+            } else {
+                overridden.remove(key);
+                if (inherited != null) {
+                    changes.put(key, inherited);
+                } else {
+                    removals.add(key);
+                }
+            }
+        }
+
+        this.ownPermissions = own;
+        this.overriddenPermissions = overridden;
+
+        if (!changes.isEmpty() || !removals.isEmpty()) {
+            this.permissions.putAll(changes);
+            this.permissions.keySet().removeAll(removals);
+            this.calculator.setSourcePermissions(this.permissions);
+            invalidateCache();
+        }
+        return true;
+    }
+
+    public long getVersion() {
+        return this.version;
+    }
+
+    public long getGroupStateVersion() {
+        return this.groupStateVersion;
+    }
+
+    /**
+     * Records the state versions this data was calculated at.
+     *
+     * @param version the holders node change log version
+     * @param groupStateVersion the group state version
+     */
+    public void setVersion(long version, long groupStateVersion) {
+        this.version = version;
+        this.groupStateVersion = groupStateVersion;
+    }
+
     public PermissionCalculator getCalculator() {
         return this.calculator;
     }
@@ -123,4 +297,57 @@ public class PermissionCache implements PermissionData {
     public Contexts getContexts() {
         return this.contexts;
     }
+
+    /**
+     * Exports entries into a permission map, optionally keeping track of the keys
+     * defined by the holders own entries.
+     */
+    private static final class Exporter {
+        private final boolean applyShorthand;
+        private final Map<String, Boolean> permissions = new HashMap<>();
+        private final Map<String, Boolean> own;
+        private final Map<String, Boolean> overridden;
+
+        private Exporter(boolean applyShorthand, boolean trackOwn) {
+            this.applyShorthand = applyShorthand;
+            this.own = trackOwn ? new HashMap<>() : null;
+            this.overridden = trackOwn ? new HashMap<>() : null;
+        }
+
+        private void exportNode(Node node, boolean isOwn) {
+            boolean value = node.getValuePrimitive();
+            if (!exportKey(node.getPermission().toLowerCase().intern(), value, isOwn) || !this.applyShorthand) {
+                return;
+            }
+
+            List<String> shorthand = node.resolveShorthand();
+            if (!shorthand.isEmpty()) {
+                for (String s : shorthand) {
+                    exportKey(s.toLowerCase().intern(), value, isOwn);
+                }
+            }
+        }
+
+        private void exportSnapshot(PermissionSnapshot snapshot) {
+            for (int i = 0; i < snapshot.size(); i++) {
+                boolean value = snapshot.getValue(i);
+                if (exportKey(snapshot.getKey(i), value, false)) {
+                    for (String s : snapshot.getShorthand(i)) {
+                        exportKey(s, value, false);
+                    }
+                }
+            }
+        }
+
+        private boolean exportKey(String key, boolean value, boolean isOwn) {
+            if (this.own != null) {
+                if (isOwn) {
+                    this.own.putIfAbsent(key, value);
+                } else if (this.own.containsKey(key)) {
+                    this.overridden.putIfAbsent(key, value);
+                }
+            }
+            return this.permissions.putIfAbsent(key, value) == null;
+        }
+    }
 }
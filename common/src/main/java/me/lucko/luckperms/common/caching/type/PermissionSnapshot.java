@@ -0,0 +1,137 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.caching.type;
+
+import me.lucko.luckperms.api.Node;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * An immutable, flattened view of the permissions exported by a group in a
+ * given set of contexts, including those it inherits.
+ *
+ * <p>Entries are held in order of priority. Only the first entry for each
+ * permission is retained, as later entries can never have any effect when
+ * exported. Shorthand is resolved ahead of time.</p>
+ *
+ * <p>Snapshots are shared by every holder which inherits the group, so the
+ * inheritance tree doesn't have to be walked for each of them.</p>
+ */
+public final class PermissionSnapshot {
+    private static final String[] NO_SHORTHAND = new String[0];
+
+    /**
+     * Creates a snapshot from the given export entries.
+     *
+     * @param entries the entries, in order of priority
+     * @param applyShorthand if shorthand should be resolved
+     * @param groupStateVersion the group state version the entries were obtained at
+     * @return a snapshot
+     */
+    public static PermissionSnapshot of(List<? extends Node> entries, boolean applyShorthand, long groupStateVersion) {
+        Set<String> seen = new HashSet<>();
+        List<Node> nodes = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+
+        for (Node node : entries) {
+            String key = node.getPermission().toLowerCase().intern();
+            if (seen.add(key)) {
+                nodes.add(node);
+                keys.add(key);
+            }
+        }
+
+        int size = nodes.size();
+        String[] keyArray = keys.toArray(new String[size]);
+        boolean[] values = new boolean[size];
+        String[][] shorthand = new String[size][];
+
+        for (int i = 0; i < size; i++) {
+            Node node = nodes.get(i);
+            values[i] = node.getValuePrimitive();
+
+            List<String> resolved = applyShorthand ? node.resolveShorthand() : null;
+            if (resolved == null || resolved.isEmpty()) {
+                shorthand[i] = NO_SHORTHAND;
+            } else {
+                String[] arr = new String[resolved.size()];
+                for (int j = 0; j < arr.length; j++) {
+                    arr[j] = resolved.get(j).toLowerCase().intern();
+                }
+                shorthand[i] = arr;
+            }
+        }
+
+        return new PermissionSnapshot(keyArray, values, shorthand, groupStateVersion);
+    }
+
+    private final String[] keys;
+    private final boolean[] values;
+    private final String[][] shorthand;
+    private final long groupStateVersion;
+
+    private PermissionSnapshot(String[] keys, boolean[] values, String[][] shorthand, long groupStateVersion) {
+        this.keys = keys;
+        this.values = values;
+        this.shorthand = shorthand;
+        this.groupStateVersion = groupStateVersion;
+    }
+
+    public int size() {
+        return this.keys.length;
+    }
+
+    /**
+     * Gets the permission of the entry at the given index, lowercased
+     *
+     * @param index the index
+     * @return the permission
+     */
+    public String getKey(int index) {
+        return this.keys[index];
+    }
+
+    public boolean getValue(int index) {
+        return this.values[index];
+    }
+
+    /**
+     * Gets the resolved shorthand of the entry at the given index, lowercased
+     *
+     * @param index the index
+     * @return the shorthand, or an empty array
+     */
+    public String[] getShorthand(int index) {
+        return this.shorthand[index];
+    }
+
+    public long getGroupStateVersion() {
+        return this.groupStateVersion;
+    }
+}
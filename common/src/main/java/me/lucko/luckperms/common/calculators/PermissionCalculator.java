@@ -25,23 +25,20 @@
 
 package me.lucko.luckperms.common.calculators;
 
-import com.github.benmanes.caffeine.cache.CacheLoader;
-import com.github.benmanes.caffeine.cache.Caffeine;
-import com.github.benmanes.caffeine.cache.LoadingCache;
 import com.google.common.collect.ImmutableList;
 import me.lucko.luckperms.api.Tristate;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.processors.PermissionProcessor;
 import me.lucko.luckperms.common.verbose.CheckOrigin;
+import me.lucko.luckperms.common.verbose.VerboseHandler;
 
-import javax.annotation.Nonnull;
 import java.util.List;
 import java.util.Map;
 
 /**
  * Calculates and caches permissions
  */
-public class PermissionCalculator implements CacheLoader<String, Tristate> {
+public class PermissionCalculator {
 
     /**
      * The plugin instance
@@ -59,9 +56,9 @@ public class PermissionCalculator implements CacheLoader<String, Tristate> {
     private final ImmutableList<PermissionProcessor> processors;
 
     /**
-     * Loading cache for permission checks
+     * Lookup table for permission checks. Replaced when the cache is invalidated.
      */
-    private final LoadingCache<String, Tristate> lookupCache = Caffeine.newBuilder().build(this);
+    private volatile PermissionLookupTable lookupTable = new PermissionLookupTable();
 
     public PermissionCalculator(LuckPermsPlugin plugin, PermissionCalculatorMetadata metadata, ImmutableList<PermissionProcessor> processors) {
         this.plugin = plugin;
@@ -79,22 +76,43 @@ public class PermissionCalculator implements CacheLoader<String, Tristate> {
      * @return the result
      */
     public Tristate getPermissionValue(String permission, CheckOrigin origin) {
+        VerboseHandler verboseHandler = this.plugin.getVerboseHandler();
+
+        // fast path: if the permission has already been calculated in exactly this form,
+        // and there are no verbose listeners, return the result without any further processing.
+        if (!verboseHandler.isListening()) {
+            Tristate result = this.lookupTable.get(permission);
+            if (result != null) {
+                return result;
+            }
+        }
+
         // convert the permission to lowercase, as all values in the backing map are also lowercase.
         // this allows fast case insensitive lookups
-        permission = permission.toLowerCase().intern();
+        String canonicalPermission = permission.toLowerCase().intern();
 
         // get the result
-        Tristate result = this.lookupCache.get(permission);
+        PermissionLookupTable lookupTable = this.lookupTable;
+        Tristate result = lookupTable.get(canonicalPermission);
+        if (result == null) {
+            result = calculate(canonicalPermission);
+            lookupTable.put(canonicalPermission, result);
+        }
+
+        // also store the result against the original form of the permission, so the
+        // next check for it can use the fast path
+        if (canonicalPermission != permission) {
+            lookupTable.put(permission, result);
+        }
 
         // log this permission lookup to the verbose handler
-        this.plugin.getVerboseHandler().offerCheckData(origin, this.metadata.getObjectName(), this.metadata.getContext(), permission, result);
+        verboseHandler.offerCheckData(origin, this.metadata.getObjectName(), this.metadata.getContext(), canonicalPermission, result);
 
         // return the result
         return result;
     }
 
-    @Override
-    public Tristate load(@Nonnull String permission) {
+    private Tristate calculate(String permission) {
         // offer the permission to the permission vault
         // we only need to do this once per permission, so it doesn't matter
         // that this call is behind the cache.
@@ -121,6 +139,9 @@ public class PermissionCalculator implements CacheLoader<String, Tristate> {
             processor.setSource(sourceMap);
             processor.refresh();
         }
+
+        // discard any results calculated using the previous source
+        invalidateCache();
     }
 
     public List<PermissionProcessor> getProcessors() {
@@ -128,6 +149,6 @@ public class PermissionCalculator implements CacheLoader<String, Tristate> {
     }
 
     public void invalidateCache() {
-        this.lookupCache.invalidateAll();
+        this.lookupTable = new PermissionLookupTable();
     }
 }
@@ -0,0 +1,132 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.calculators;
+
+import me.lucko.luckperms.api.Tristate;
+
+/**
+ * An open addressing hash table which maps permission strings to the result
+ * calculated for them.
+ *
+ * <p>Reads are lock-free and do not allocate. Entries are immutable, and are
+ * written to a free slot with a single reference store, so a reader will either
+ * see a complete entry or nothing at all. When the table needs to grow, the
+ * entries are copied into a new array, which is then published through a
+ * volatile reference.</p>
+ *
+ * <p>Instances are never cleared - the owning calculator discards the whole table
+ * when its cache is invalidated. This means that results which were computed
+ * against an old source map can never be written into the current table.</p>
+ */
+final class PermissionLookupTable {
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * The backing table. The length is always a power of two, and the table is
+     * never more than half full.
+     */
+    private volatile Entry[] table = new Entry[INITIAL_CAPACITY];
+
+    /**
+     * The number of entries in the table. Guarded by 'this'.
+     */
+    private int size = 0;
+
+    /**
+     * Gets the result for the given permission.
+     *
+     * @param permission the permission
+     * @return the result, or null if the table doesn't contain an entry for the permission
+     */
+    Tristate get(String permission) {
+        Entry[] table = this.table;
+        int mask = table.length - 1;
+        int hash = permission.hashCode();
+
+        for (int i = spread(hash) & mask; ; i = (i + 1) & mask) {
+            Entry e = table[i];
+            if (e == null) {
+                return null;
+            }
+            if (e.key == permission || (e.hash == hash && e.key.equals(permission))) {
+                return e.value;
+            }
+        }
+    }
+
+    /**
+     * Adds a result to the table, if it isn't already present.
+     *
+     * @param permission the permission
+     * @param value the result
+     */
+    synchronized void put(String permission, Tristate value) {
+        if (get(permission) != null) {
+            return;
+        }
+
+        Entry[] table = this.table;
+        if ((this.size + 1) * 2 > table.length) {
+            Entry[] resized = new Entry[table.length * 2];
+            for (Entry e : table) {
+                if (e != null) {
+                    insert(resized, e);
+                }
+            }
+            insert(resized, new Entry(permission, value));
+            this.table = resized;
+        } else {
+            insert(table, new Entry(permission, value));
+        }
+
+        this.size++;
+    }
+
+    private static void insert(Entry[] table, Entry entry) {
+        int mask = table.length - 1;
+        int i = spread(entry.hash) & mask;
+        while (table[i] != null) {
+            i = (i + 1) & mask;
+        }
+        table[i] = entry;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static final class Entry {
+        private final String key;
+        private final int hash;
+        private final Tristate value;
+
+        private Entry(String key, Tristate value) {
+            this.key = key;
+            this.hash = key.hashCode();
+            this.value = value;
+        }
+    }
+}
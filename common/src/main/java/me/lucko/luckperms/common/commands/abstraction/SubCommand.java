@@ -42,6 +42,7 @@ import me.lucko.luckperms.common.treeview.PermissionVault;
 import me.lucko.luckperms.common.treeview.TreeNode;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -195,16 +196,16 @@ public abstract class SubCommand<T> extends Command<T, Void> {
             return;
         }
 
-        if (sender.isImport()) {
-            plugin.getUpdateTaskBuffer().request();
-        } else {
-            plugin.getUpdateTaskBuffer().requestDirectly();
+        // only refresh the holders which actually inherit from the group
+        CompletableFuture<Void> refresh = plugin.getInheritanceHandler().refreshDependents(group);
+        if (!sender.isImport()) {
+            refresh.join();
         }
 
         if (!sender.isImport()) {
             Optional<InternalMessagingService> messagingService = plugin.getMessagingService();
             if (messagingService.isPresent() && plugin.getConfiguration().get(ConfigKeys.AUTO_PUSH_UPDATES)) {
-                messagingService.get().getUpdateBuffer().request();
+                messagingService.get().pushGroupUpdate(group);
             }
         }
     }
@@ -227,7 +228,7 @@ public abstract class SubCommand<T> extends Command<T, Void> {
         if (!sender.isImport()) {
             Optional<InternalMessagingService> messagingService = plugin.getMessagingService();
             if (messagingService.isPresent() && plugin.getConfiguration().get(ConfigKeys.AUTO_PUSH_UPDATES)) {
-                messagingService.get().getUpdateBuffer().request();
+                messagingService.get().pushTrackUpdate(track);
             }
         }
     }
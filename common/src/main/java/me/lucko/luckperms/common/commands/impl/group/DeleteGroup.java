@@ -82,7 +82,7 @@ public class DeleteGroup extends SingleCommand {
                 .action("delete")
                 .build().submit(plugin, sender);
 
-        plugin.getUpdateTaskBuffer().request();
+        plugin.getInheritanceHandler().refreshDependents(group);
         return CommandResult.SUCCESS;
     }
 
@@ -26,14 +26,13 @@
 package me.lucko.luckperms.common.commands.impl.log;
 
 import com.google.common.collect.ImmutableList;
-import me.lucko.luckperms.common.actionlog.Log;
 import me.lucko.luckperms.common.commands.abstraction.Command;
 import me.lucko.luckperms.common.commands.abstraction.MainCommand;
 import me.lucko.luckperms.common.commands.sender.Sender;
 import me.lucko.luckperms.common.locale.CommandSpec;
 import me.lucko.luckperms.common.locale.LocaleManager;
-import me.lucko.luckperms.common.locale.Message;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.storage.Storage;
 
 import java.util.Collections;
 import java.util.List;
@@ -41,11 +40,11 @@ import java.util.Optional;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
-public class LogMainCommand extends MainCommand<Log, Object> {
+public class LogMainCommand extends MainCommand<Storage, Object> {
     private final ReentrantLock lock = new ReentrantLock();
 
     public LogMainCommand(LocaleManager locale) {
-        super(CommandSpec.LOG.spec(locale), "Log", 1, ImmutableList.<Command<Log, ?>>builder()
+        super(CommandSpec.LOG.spec(locale), "Log", 1, ImmutableList.<Command<Storage, ?>>builder()
                 .add(new LogRecent(locale))
                 .add(new LogSearch(locale))
                 .add(new LogNotify(locale))
@@ -67,18 +66,12 @@ public class LogMainCommand extends MainCommand<Log, Object> {
     }
 
     @Override
-    protected Log getTarget(Object target, LuckPermsPlugin plugin, Sender sender) {
-        Log log = plugin.getStorage().getLog().join();
-
-        if (log == null) {
-            Message.LOG_LOAD_ERROR.send(sender);
-        }
-
-        return log;
+    protected Storage getTarget(Object target, LuckPermsPlugin plugin, Sender sender) {
+        return plugin.getStorage(); // each command queries the part of the log it needs from the storage
     }
 
     @Override
-    protected void cleanup(Log log, LuckPermsPlugin plugin) {
+    protected void cleanup(Storage storage, LuckPermsPlugin plugin) {
 
     }
 
@@ -89,7 +82,7 @@ public class LogMainCommand extends MainCommand<Log, Object> {
 
     @Override
     public List<String> tabComplete(LuckPermsPlugin plugin, Sender sender, List<String> args) {
-        final List<Command<Log, ?>> subs = getChildren().get().stream()
+        final List<Command<Storage, ?>> subs = getChildren().get().stream()
                 .filter(s -> s.isAuthorized(sender))
                 .collect(Collectors.toList());
 
@@ -106,7 +99,7 @@ public class LogMainCommand extends MainCommand<Log, Object> {
                     .collect(Collectors.toList());
         }
 
-        Optional<Command<Log, ?>> o = subs.stream()
+        Optional<Command<Storage, ?>> o = subs.stream()
                 .filter(s -> s.getName().equalsIgnoreCase(args.get(0)))
                 .limit(1)
                 .findAny();
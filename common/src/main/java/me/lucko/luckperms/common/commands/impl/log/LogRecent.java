@@ -26,7 +26,8 @@
 package me.lucko.luckperms.common.commands.impl.log;
 
 import me.lucko.luckperms.common.actionlog.ExtendedLogEntry;
-import me.lucko.luckperms.common.actionlog.Log;
+import me.lucko.luckperms.common.actionlog.LogFilter;
+import me.lucko.luckperms.common.actionlog.LogPage;
 import me.lucko.luckperms.common.commands.CommandPermission;
 import me.lucko.luckperms.common.commands.CommandResult;
 import me.lucko.luckperms.common.commands.abstraction.SubCommand;
@@ -37,6 +38,7 @@ import me.lucko.luckperms.common.locale.LocaleManager;
 import me.lucko.luckperms.common.locale.Message;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.storage.DataConstraints;
+import me.lucko.luckperms.common.storage.Storage;
 import me.lucko.luckperms.common.utils.DateUtil;
 import me.lucko.luckperms.common.utils.Predicates;
 import me.lucko.luckperms.common.utils.Uuids;
@@ -46,7 +48,7 @@ import java.util.Map;
 import java.util.SortedMap;
 import java.util.UUID;
 
-public class LogRecent extends SubCommand<Log> {
+public class LogRecent extends SubCommand<Storage> {
     private static final int ENTRIES_PER_PAGE = 10;
     
     public LogRecent(LocaleManager locale) {
@@ -54,10 +56,10 @@ public class LogRecent extends SubCommand<Log> {
     }
 
     @Override
-    public CommandResult execute(LuckPermsPlugin plugin, Sender sender, Log log, List<String> args, String label) {
+    public CommandResult execute(LuckPermsPlugin plugin, Sender sender, Storage storage, List<String> args, String label) {
         if (args.isEmpty()) {
             // No page or user
-            return showLog(log.getRecentMaxPages(ENTRIES_PER_PAGE), null, sender, log);
+            return showLog(LogPage.LATEST, null, sender, storage);
         }
 
         if (args.size() == 1) {
@@ -65,7 +67,7 @@ public class LogRecent extends SubCommand<Log> {
             try {
                 int p = Integer.parseInt(args.get(0));
                 // page
-                return showLog(p, null, sender, log);
+                return showLog(p, null, sender, storage);
             } catch (NumberFormatException ignored) {
             }
         }
@@ -86,7 +88,7 @@ public class LogRecent extends SubCommand<Log> {
                 }
             }
 
-            uuid = plugin.getStorage().getUUID(target.toLowerCase()).join();
+            uuid = storage.getUUID(target.toLowerCase()).join();
             if (uuid == null) {
                 if (!plugin.getConfiguration().get(ConfigKeys.USE_SERVER_UUID_CACHE)) {
                     Message.USER_NOT_FOUND.send(sender, target);
@@ -103,32 +105,34 @@ public class LogRecent extends SubCommand<Log> {
 
         if (args.size() != 2) {
             // Just user
-            return showLog(log.getRecentMaxPages(uuid, ENTRIES_PER_PAGE), uuid, sender, log);
+            return showLog(LogPage.LATEST, uuid, sender, storage);
         } else {
             try {
                 int p = Integer.parseInt(args.get(1));
                 // User and page
-                return showLog(p, uuid, sender, log);
+                return showLog(p, uuid, sender, storage);
             } catch (NumberFormatException e) {
                 // Invalid page
-                return showLog(-1, null, sender, log);
+                return showLog(-1, null, sender, storage);
             }
         }
     }
 
-    private static CommandResult showLog(int page, UUID filter, Sender sender, Log log) {
-        int maxPage = (filter != null) ? log.getRecentMaxPages(filter, ENTRIES_PER_PAGE) : log.getRecentMaxPages(ENTRIES_PER_PAGE);
-        if (maxPage == 0) {
+    private static CommandResult showLog(int page, UUID filter, Sender sender, Storage storage) {
+        LogPage logPage = storage.getLogPage((filter != null) ? LogFilter.actor(filter) : LogFilter.all(), page, ENTRIES_PER_PAGE).join();
+        if (logPage.getTotalEntries() == 0) {
             Message.LOG_NO_ENTRIES.send(sender);
             return CommandResult.STATE_ERROR;
         }
 
-        if (page < 1 || page > maxPage) {
+        int maxPage = logPage.getMaxPages();
+        if (!logPage.isInRange()) {
             Message.LOG_INVALID_PAGE_RANGE.send(sender, maxPage);
             return CommandResult.INVALID_ARGS;
         }
 
-        SortedMap<Integer, ExtendedLogEntry> entries = (filter != null) ? log.getRecent(page, filter, ENTRIES_PER_PAGE) : log.getRecent(page, ENTRIES_PER_PAGE);
+        page = logPage.getPageNo();
+        SortedMap<Integer, ExtendedLogEntry> entries = logPage.getEntries();
         if (filter != null) {
             String name = entries.values().stream().findAny().get().getActorName();
             if (name.contains("@")) {
@@ -25,6 +25,7 @@
 
 package me.lucko.luckperms.common.commands.impl.misc;
 
+import me.lucko.luckperms.common.caching.CalculationScheduler;
 import me.lucko.luckperms.common.commands.CommandPermission;
 import me.lucko.luckperms.common.commands.CommandResult;
 import me.lucko.luckperms.common.commands.abstraction.SingleCommand;
@@ -72,6 +73,11 @@ public class InfoCommand extends SingleCommand {
                 plugin.getTrackManager().getAll().size()
         );
 
+        CalculationScheduler calculationScheduler = plugin.getCalculationScheduler();
+        Message.EMPTY.send(sender, "&f-     &3Calculations: &a" + calculationScheduler.getQueueDepth() + " &7queued, &a" +
+                calculationScheduler.getActiveCount() + " &7active (&a" + calculationScheduler.getSubmittedCount() + "&7 submitted, &a" +
+                calculationScheduler.getCoalescedCount() + "&7 coalesced)");
+
         return CommandResult.SUCCESS;
     }
 
@@ -84,7 +84,7 @@ public class VerboseCommand extends SingleCommand {
 
             boolean notify = !mode.equals("record");
 
-            plugin.getVerboseHandler().registerListener(sender, parsedFilter, notify);
+            plugin.getVerboseHandler().registerListener(sender, parsedFilter, notify, plugin.getConfiguration().get(ConfigKeys.VERBOSE_TRACE_SAMPLING));
 
             if (notify) {
                 if (!filter.equals("")) {
@@ -104,6 +104,9 @@ public class AbstractConfiguration implements LuckPermsConfiguration, CacheLoade
         this.cache.invalidateAll(toInvalidate);
 
         loadAll();
+
+        // settings such as group weights affect inherited data
+        getPlugin().getInheritanceHandler().invalidateGroupState();
         getPlugin().getEventFactory().handleConfigReload();
     }
 
@@ -72,6 +72,16 @@ public class ConfigKeys {
      */
     public static final ConfigKey<Integer> SYNC_TIME = EnduringKey.wrap(IntegerKey.of("data.sync-minutes", -1));
 
+    /**
+     * The number of threads used to write buffered saves to the storage.
+     */
+    public static final ConfigKey<Integer> SAVE_PARALLELISM = EnduringKey.wrap(AbstractKey.of(c -> Math.max(1, c.getInt("data.save-parallelism", 2))));
+
+    /**
+     * The maximum number of saves which can be waiting to be written, before further saves have to wait.
+     */
+    public static final ConfigKey<Integer> SAVE_BACKLOG_LIMIT = EnduringKey.wrap(AbstractKey.of(c -> Math.max(1, c.getInt("data.save-backlog-limit", 1000))));
+
     /**
      * If permissions without a server context should be included.
      */
@@ -107,6 +117,11 @@ public class ConfigKeys {
      */
     public static final ConfigKey<Boolean> DEBUG_LOGINS = BooleanKey.of("debug-logins", false);
 
+    /**
+     * The rate at which verbose listeners capture stack traces for matched checks.
+     */
+    public static final ConfigKey<Integer> VERBOSE_TRACE_SAMPLING = AbstractKey.of(c -> Math.max(0, c.getInt("verbose-trace-sampling", 1)));
+
     /**
      * If LP should cancel login attempts for players whose permission data could not be loaded.
      */
@@ -177,6 +192,11 @@ public class ConfigKeys {
      */
     public static final ConfigKey<Boolean> APPLYING_REGEX = EnduringKey.wrap(BooleanKey.of("apply-regex", true));
 
+    /**
+     * If wildcard permissions should be resolved using a compiled permission trie
+     */
+    public static final ConfigKey<Boolean> USE_PERMISSION_TRIE = EnduringKey.wrap(BooleanKey.of("use-permission-trie", false));
+
     /**
      * If shorthand permissions are being applied
      */
@@ -437,6 +457,16 @@ public class ConfigKeys {
      */
     public static final ConfigKey<Boolean> AUTO_PUSH_UPDATES = EnduringKey.wrap(BooleanKey.of("auto-push-updates", true));
 
+    /**
+     * If LuckPerms should push updates for only the group or track which was changed, instead of a general update
+     */
+    public static final ConfigKey<Boolean> PUSH_TARGETED_UPDATES = EnduringKey.wrap(BooleanKey.of("push-targeted-updates", false));
+
+    /**
+     * If LuckPerms should include the nodes which were changed in updates pushed by the messaging service
+     */
+    public static final ConfigKey<Boolean> PUSH_NODE_CHANGES = EnduringKey.wrap(BooleanKey.of("push-node-changes", false));
+
     /**
      * If LuckPerms should push logging entries to connected servers via the messaging service
      */
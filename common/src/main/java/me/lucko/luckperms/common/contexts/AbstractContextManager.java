@@ -27,6 +27,7 @@ package me.lucko.luckperms.common.contexts;
 
 import com.github.benmanes.caffeine.cache.CacheLoader;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import com.github.benmanes.caffeine.cache.LoadingCache;
 import com.google.common.collect.ImmutableList;
 import me.lucko.luckperms.api.Contexts;
@@ -60,10 +61,19 @@ public abstract class AbstractContextManager<T> implements ContextManager<T> {
     private final List<ContextCalculator<? super T>> calculators = new CopyOnWriteArrayList<>();
     private final List<StaticContextCalculator> staticCalculators = new CopyOnWriteArrayList<>();
 
-    // caches context lookups
+    // if any of the registered calculators are not event-driven
+    private volatile boolean hasLegacyCalculators = false;
+
+    // caches the contexts given by event-driven calculators, until explicitly invalidated
+    private final LoadingCache<T, ImmutableContextSet> eventDrivenCache = Caffeine.newBuilder()
+            .weakKeys()
+            .build(new EventDrivenLoader());
+
+    // caches context lookups, until explicitly invalidated, or roughly every tick if
+    // the lookup included the results of legacy calculators
     private final LoadingCache<T, Contexts> lookupCache = Caffeine.newBuilder()
             .weakKeys()
-            .expireAfterWrite(50L, TimeUnit.MILLISECONDS) // expire roughly every tick
+            .expireAfter(new LookupExpiry())
             .build(new Loader());
 
     // caches static context lookups
@@ -169,6 +179,10 @@ public abstract class AbstractContextManager<T> implements ContextManager<T> {
     public void registerCalculator(ContextCalculator<? super T> calculator) {
         // calculators registered first should have priority (and be checked last.)
         this.calculators.add(0, calculator);
+        if (!calculator.isEventDriven()) {
+            this.hasLegacyCalculators = true;
+        }
+        invalidateCaches();
     }
 
     @Override
@@ -183,30 +197,77 @@ public abstract class AbstractContextManager<T> implements ContextManager<T> {
             throw new NullPointerException("subject");
         }
 
+        this.eventDrivenCache.invalidate(subject);
         this.lookupCache.invalidate(subject);
     }
 
+    @Override
+    public void invalidateCaches() {
+        this.eventDrivenCache.invalidateAll();
+        this.lookupCache.invalidateAll();
+        this.staticLookupCache.invalidateAll();
+    }
+
+    private final class EventDrivenLoader implements CacheLoader<T, ImmutableContextSet> {
+        @Override
+        public ImmutableContextSet load(@Nonnull T subject) {
+            return accumulate(subject, MutableContextSet.create(), true).makeImmutable();
+        }
+    }
+
     private final class Loader implements CacheLoader<T, Contexts> {
         @Override
         public Contexts load(@Nonnull T subject) {
-            MutableContextSet accumulator = MutableContextSet.create();
+            ImmutableContextSet contexts = AbstractContextManager.this.eventDrivenCache.get(subject);
 
-            for (ContextCalculator<? super T> calculator : AbstractContextManager.this.calculators) {
-                try {
-                    MutableContextSet ret = calculator.giveApplicableContext(subject, accumulator);
-                    //noinspection ConstantConditions
-                    if (ret == null) {
-                        throw new IllegalStateException(calculator.getClass() + " returned a null context set");
-                    }
-                    accumulator = ret;
-                } catch (Exception e) {
-                    AbstractContextManager.this.plugin.getLog().warn("An exception was thrown by " + getCalculatorClass(calculator) + " whilst calculating the context of subject " + subject);
-                    e.printStackTrace();
-                }
+            // apply the calculators which have to be re-run each time
+            if (AbstractContextManager.this.hasLegacyCalculators) {
+                contexts = accumulate(subject, contexts.mutableCopy(), false).makeImmutable();
+            }
+
+            return formContexts(subject, contexts);
+        }
+    }
+
+    private final class LookupExpiry implements Expiry<T, Contexts> {
+        private final long legacyExpiry = TimeUnit.MILLISECONDS.toNanos(50L);
+
+        @Override
+        public long expireAfterCreate(@Nonnull T subject, @Nonnull Contexts contexts, long currentTime) {
+            // registering a legacy calculator invalidates all lookups, so this is accurate
+            return AbstractContextManager.this.hasLegacyCalculators ? this.legacyExpiry : Long.MAX_VALUE;
+        }
+
+        @Override
+        public long expireAfterUpdate(@Nonnull T subject, @Nonnull Contexts contexts, long currentTime, long currentDuration) {
+            return expireAfterCreate(subject, contexts, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(@Nonnull T subject, @Nonnull Contexts contexts, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    private MutableContextSet accumulate(T subject, MutableContextSet accumulator, boolean eventDriven) {
+        for (ContextCalculator<? super T> calculator : this.calculators) {
+            if (calculator.isEventDriven() != eventDriven) {
+                continue;
             }
 
-            return formContexts(subject, accumulator.makeImmutable());
+            try {
+                MutableContextSet ret = calculator.giveApplicableContext(subject, accumulator);
+                //noinspection ConstantConditions
+                if (ret == null) {
+                    throw new IllegalStateException(calculator.getClass() + " returned a null context set");
+                }
+                accumulator = ret;
+            } catch (Exception e) {
+                this.plugin.getLog().warn("An exception was thrown by " + getCalculatorClass(calculator) + " whilst calculating the context of subject " + subject);
+                e.printStackTrace();
+            }
         }
+        return accumulator;
     }
 
     private final class StaticLoader implements CacheLoader<Object, Contexts> {
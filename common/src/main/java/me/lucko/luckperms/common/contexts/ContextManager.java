@@ -134,6 +134,11 @@ public interface ContextManager<T> {
      */
     void invalidateCache(T subject);
 
+    /**
+     * Invalidates the lookup caches for all subjects
+     */
+    void invalidateCaches();
+
     /**
      * Gets the calculators registered on the platform
      *
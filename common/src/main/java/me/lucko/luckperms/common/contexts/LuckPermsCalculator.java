@@ -53,4 +53,10 @@ public class LuckPermsCalculator implements StaticContextCalculator {
         return accumulator;
     }
 
+    @Override
+    public boolean isEventDriven() {
+        // only changes when the configuration is reloaded
+        return true;
+    }
+
 }
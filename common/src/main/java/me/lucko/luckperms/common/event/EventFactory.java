@@ -49,6 +49,7 @@ import me.lucko.luckperms.common.model.Track;
 import me.lucko.luckperms.common.model.User;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 
+import javax.annotation.Nullable;
 import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
@@ -73,6 +74,10 @@ public final class EventFactory {
         this.eventBus.fireEvent(event);
     }
 
+    public boolean shouldPost(Class<? extends LuckPermsEvent> eventClass) {
+        return this.eventBus.shouldPost(eventClass);
+    }
+
     public void handleGroupCacheLoad(Group group, GroupData data) {
         EventGroupCacheLoad event = new EventGroupCacheLoad(group.getApiDelegate(), data);
         fireEventAsync(event);
@@ -136,17 +141,30 @@ public final class EventFactory {
         fireEventAsync(event);
     }
 
-    public void handleNodeAdd(Node node, PermissionHolder target, Collection<Node> before, Collection<Node> after) {
+    public void handleNodeAdd(Node node, PermissionHolder target, @Nullable Collection<Node> before, @Nullable Collection<Node> after) {
+        // the snapshots are only taken if a handler is registered
+        if (before == null || after == null) {
+            return;
+        }
+
         EventNodeAdd event = new EventNodeAdd(node, getDelegate(target), ImmutableSet.copyOf(before), ImmutableSet.copyOf(after));
         fireEventAsync(event);
     }
 
-    public void handleNodeClear(PermissionHolder target, Collection<Node> before, Collection<Node> after) {
+    public void handleNodeClear(PermissionHolder target, @Nullable Collection<Node> before, @Nullable Collection<Node> after) {
+        if (before == null || after == null) {
+            return;
+        }
+
         EventNodeClear event = new EventNodeClear(getDelegate(target), ImmutableSet.copyOf(before), ImmutableSet.copyOf(after));
         fireEventAsync(event);
     }
 
-    public void handleNodeRemove(Node node, PermissionHolder target, Collection<Node> before, Collection<Node> after) {
+    public void handleNodeRemove(Node node, PermissionHolder target, @Nullable Collection<Node> before, @Nullable Collection<Node> after) {
+        if (before == null || after == null) {
+            return;
+        }
+
         EventNodeRemove event = new EventNodeRemove(node, getDelegate(target), ImmutableSet.copyOf(before), ImmutableSet.copyOf(after));
         fireEventAsync(event);
     }
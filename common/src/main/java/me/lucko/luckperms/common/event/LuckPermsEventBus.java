@@ -98,6 +98,21 @@ public class LuckPermsEventBus implements EventBus {
         }
     }
 
+    /**
+     * Gets if any handlers are registered which would receive events of the given type.
+     *
+     * @param eventClass the event class
+     * @return true if the event should be posted
+     */
+    public boolean shouldPost(Class<? extends LuckPermsEvent> eventClass) {
+        for (Map.Entry<Class<? extends LuckPermsEvent>, Set<LuckPermsEventHandler<?>>> ent : this.handlerMap.entrySet()) {
+            if (!ent.getValue().isEmpty() && ent.getKey().isAssignableFrom(eventClass)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public void fireEvent(LuckPermsEvent event) {
         if (event instanceof AbstractEvent) {
             ((AbstractEvent) event).setApi(this.apiProvider);
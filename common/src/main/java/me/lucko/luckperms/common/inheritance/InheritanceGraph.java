@@ -25,6 +25,9 @@
 
 package me.lucko.luckperms.common.inheritance;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.collect.ImmutableList;
 import me.lucko.luckperms.api.Contexts;
 import me.lucko.luckperms.api.Node;
 import me.lucko.luckperms.common.graph.Graph;
@@ -34,7 +37,9 @@ import me.lucko.luckperms.common.model.Group;
 import me.lucko.luckperms.common.model.PermissionHolder;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -55,15 +60,100 @@ public interface InheritanceGraph extends Graph<PermissionHolder> {
         return GraphTraversers.traverseUsing(algorithm, this, startNode);
     }
 
-    final class NonContextual implements InheritanceGraph {
-        private final LuckPermsPlugin plugin;
+    /**
+     * Base class for the graphs provided by {@link InheritanceHandler}.
+     *
+     * <p>The successors of each holder, and the traversals starting from each
+     * holder, are memoized. Memoized values are tagged with the holders
+     * {@link PermissionHolder#getChangeLog() change log} version and the
+     * {@link InheritanceHandler#getGroupStateVersion() group state version},
+     * and are recalculated once either has moved on - together these cover
+     * changes to the holder, to the weight of any group, and groups being
+     * loaded or unloaded.</p>
+     */
+    abstract class Memoizing implements InheritanceGraph {
+        protected final LuckPermsPlugin plugin;
 
-        NonContextual(LuckPermsPlugin plugin) {
+        /**
+         * The memoized state for each holder
+         */
+        private final Cache<PermissionHolder, Memo> memos = Caffeine.newBuilder()
+                .weakKeys()
+                .build();
+
+        Memoizing(LuckPermsPlugin plugin) {
             this.plugin = plugin;
         }
 
+        /**
+         * Resolves the successors of the given holder, in inheritance order.
+         *
+         * @param holder the holder
+         * @return the successors
+         */
+        protected abstract Set<Group> resolveSuccessors(PermissionHolder holder);
+
+        private Memo getMemo(PermissionHolder holder) {
+            // take note of the versions before resolving, so any change made
+            // meanwhile will cause the result to be recalculated next time
+            long version = holder.getChangeLog().getVersion();
+            long groupStateVersion = this.plugin.getInheritanceHandler().getGroupStateVersion();
+
+            Memo memo = this.memos.getIfPresent(holder);
+            if (memo == null || memo.version != version || memo.groupStateVersion != groupStateVersion) {
+                memo = new Memo(version, groupStateVersion, ImmutableList.copyOf(resolveSuccessors(holder)));
+                this.memos.put(holder, memo);
+            }
+            return memo;
+        }
+
         @Override
         public Iterable<? extends PermissionHolder> successors(PermissionHolder holder) {
+            return getMemo(holder).successors;
+        }
+
+        @Override
+        public Iterable<PermissionHolder> traverse(TraversalAlgorithm algorithm, PermissionHolder startNode) {
+            Memo memo = getMemo(startNode);
+
+            List<PermissionHolder> traversal;
+            synchronized (memo) {
+                traversal = memo.traversals.get(algorithm);
+            }
+
+            if (traversal == null) {
+                traversal = ImmutableList.copyOf(GraphTraversers.traverseUsing(algorithm, this, startNode));
+                synchronized (memo) {
+                    memo.traversals.put(algorithm, traversal);
+                }
+            }
+            return traversal;
+        }
+
+        /**
+         * The memoized state of a holder within a graph.
+         */
+        private static final class Memo {
+            private final long version;
+            private final long groupStateVersion;
+            private final List<Group> successors;
+            private final Map<TraversalAlgorithm, List<PermissionHolder>> traversals = new EnumMap<>(TraversalAlgorithm.class);
+
+            private Memo(long version, long groupStateVersion, List<Group> successors) {
+                this.version = version;
+                this.groupStateVersion = groupStateVersion;
+                this.successors = successors;
+            }
+        }
+    }
+
+    final class NonContextual extends Memoizing {
+        NonContextual(LuckPermsPlugin plugin) {
+            super(plugin);
+        }
+
+        @Override
+        protected Set<Group> resolveSuccessors(PermissionHolder holder) {
             Set<Group> successors = new TreeSet<>(holder.getInheritanceComparator());
             List<Node> nodes = holder.getOwnGroupNodes();
             for (Node n : nodes) {
@@ -76,8 +166,7 @@ public interface InheritanceGraph extends Graph<PermissionHolder> {
         }
     }
 
-    final class Contextual implements InheritanceGraph {
-        private final LuckPermsPlugin plugin;
+    final class Contextual extends Memoizing {
 
         /**
          * The contexts to resolve inheritance in.
@@ -85,12 +174,12 @@ public interface InheritanceGraph extends Graph<PermissionHolder> {
         private final Contexts context;
 
         Contextual(LuckPermsPlugin plugin, Contexts context) {
-            this.plugin = plugin;
+            super(plugin);
             this.context = context;
         }
 
         @Override
-        public Iterable<? extends PermissionHolder> successors(PermissionHolder holder) {
+        protected Set<Group> resolveSuccessors(PermissionHolder holder) {
             Set<Group> successors = new TreeSet<>(holder.getInheritanceComparator());
             List<Node> nodes = holder.getOwnGroupNodes(this.context.getContexts());
             for (Node n : nodes) {
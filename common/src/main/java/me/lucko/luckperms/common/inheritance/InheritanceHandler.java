@@ -28,9 +28,14 @@ package me.lucko.luckperms.common.inheritance;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.LoadingCache;
 import me.lucko.luckperms.api.Contexts;
+import me.lucko.luckperms.common.model.Group;
+import me.lucko.luckperms.common.model.PermissionHolder;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Provides {@link InheritanceGraph}s.
@@ -48,6 +53,16 @@ public class InheritanceHandler {
      */
     private final LoadingCache<Contexts, InheritanceGraph> contextualGraphs;
 
+    /**
+     * A version number which is incremented whenever the state of a group changes
+     */
+    private final AtomicLong groupStateVersion = new AtomicLong();
+
+    /**
+     * An index of the holders which inherit from each group
+     */
+    private final InheritanceIndex index = new InheritanceIndex();
+
     public InheritanceHandler(LuckPermsPlugin plugin) {
         this.plugin = plugin;
         this.nonContextualGraph = new InheritanceGraph.NonContextual(plugin);
@@ -64,4 +79,58 @@ public class InheritanceHandler {
         return this.contextualGraphs.get(contexts);
     }
 
+    public InheritanceIndex getIndex() {
+        return this.index;
+    }
+
+    /**
+     * Requests a refresh of the cached data of the given group, and of every
+     * loaded holder which inherits from it.
+     *
+     * <p>This is used in place of the full update task, so fires the same sync
+     * events, and calls {@link LuckPermsPlugin#onPostUpdate()} once the refresh
+     * is complete.</p>
+     *
+     * @param group the group which was changed
+     * @return a future which completes when the refresh is complete
+     */
+    public CompletableFuture<Void> refreshDependents(Group group) {
+        if (this.plugin.getEventFactory().handlePreSync(false)) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        Set<PermissionHolder> dependents = this.index.getDependents(group);
+
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[dependents.size() + 1];
+        futures[0] = group.getRefreshBuffer().request();
+
+        int i = 1;
+        for (PermissionHolder holder : dependents) {
+            futures[i++] = holder.getRefreshBuffer().request();
+        }
+        return CompletableFuture.allOf(futures).thenRun(() -> {
+            this.plugin.onPostUpdate();
+            this.plugin.getEventFactory().handlePostSync();
+        });
+    }
+
+    /**
+     * Gets the current group state version.
+     *
+     * <p>Data which was calculated from inherited groups is only valid for as
+     * long as this version remains the same.</p>
+     *
+     * @return the group state version
+     */
+    public long getGroupStateVersion() {
+        return this.groupStateVersion.get();
+    }
+
+    /**
+     * Marks that the state of a group has changed. (a group was modified, loaded or unloaded)
+     */
+    public void invalidateGroupState() {
+        this.groupStateVersion.incrementAndGet();
+    }
+
 }
@@ -0,0 +1,165 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.inheritance;
+
+import com.google.common.collect.ImmutableSet;
+import me.lucko.luckperms.api.Node;
+import me.lucko.luckperms.common.model.Group;
+import me.lucko.luckperms.common.model.PermissionHolder;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An inverted index of the inheritance relationships between loaded holders.
+ *
+ * <p>Maps each group to the holders which directly inherit from it, allowing
+ * the holders which depend on a group (either directly or transitively) to be
+ * found without walking every loaded holder.</p>
+ *
+ * <p>Group nodes are indexed regardless of their context, so the set of dependents
+ * returned is a superset of the holders actually affected in any given context.</p>
+ */
+public class InheritanceIndex {
+
+    /**
+     * Mapping of group name --> the holders which directly inherit from the group
+     */
+    private final Map<String, Set<PermissionHolder>> dependents = new HashMap<>();
+
+    /**
+     * Mapping of holder --> the names of the groups the holder is indexed under
+     */
+    private final Map<PermissionHolder, Set<String>> parents = new HashMap<>();
+
+    /**
+     * Updates the index entries for the given holder, following a change to its nodes.
+     *
+     * <p>The holders nodes are read whilst holding the index lock, so concurrent
+     * updates for the same holder can't leave an older set of nodes indexed.</p>
+     *
+     * @param holder the holder
+     */
+    public synchronized void update(PermissionHolder holder) {
+        Set<String> parents = new HashSet<>();
+        for (Node node : holder.getOwnGroupNodes()) {
+            parents.add(node.getGroupName().toLowerCase());
+        }
+
+        Set<String> previous = this.parents.get(holder);
+        if (previous == null ? parents.isEmpty() : previous.equals(parents)) {
+            return;
+        }
+
+        removeEdges(holder, previous);
+        if (parents.isEmpty()) {
+            this.parents.remove(holder);
+        } else {
+            this.parents.put(holder, parents);
+            for (String parent : parents) {
+                this.dependents.computeIfAbsent(parent, n -> new HashSet<>()).add(holder);
+            }
+        }
+    }
+
+    /**
+     * Removes the given holder from the index, as it has been unloaded.
+     *
+     * @param holder the holder
+     */
+    public synchronized void remove(PermissionHolder holder) {
+        removeEdges(holder, this.parents.remove(holder));
+    }
+
+    /**
+     * Removes all entries from the index.
+     */
+    public synchronized void clear() {
+        this.dependents.clear();
+        this.parents.clear();
+    }
+
+    /**
+     * Gets the holders which inherit from the given group, either directly or transitively.
+     *
+     * <p>The group itself is not included in the result.</p>
+     *
+     * @param group the group
+     * @return the dependent holders
+     */
+    public synchronized Set<PermissionHolder> getDependents(Group group) {
+        Set<PermissionHolder> ret = new LinkedHashSet<>();
+        Set<String> visited = new HashSet<>();
+        visited.add(group.getName());
+
+        Deque<String> queue = new ArrayDeque<>();
+        queue.add(group.getName());
+
+        String name;
+        while ((name = queue.poll()) != null) {
+            Set<PermissionHolder> holders = this.dependents.get(name);
+            if (holders == null) {
+                continue;
+            }
+
+            for (PermissionHolder holder : holders) {
+                if (holder.getType().isGroup()) {
+                    String dependentName = ((Group) holder).getName();
+                    if (visited.add(dependentName)) {
+                        ret.add(holder);
+                        queue.add(dependentName);
+                    }
+                } else {
+                    ret.add(holder);
+                }
+            }
+        }
+
+        return ImmutableSet.copyOf(ret);
+    }
+
+    private void removeEdges(PermissionHolder holder, Set<String> parents) {
+        if (parents == null) {
+            return;
+        }
+
+        for (String parent : parents) {
+            Set<PermissionHolder> holders = this.dependents.get(parent);
+            if (holders != null) {
+                holders.remove(holder);
+                if (holders.isEmpty()) {
+                    this.dependents.remove(parent);
+                }
+            }
+        }
+    }
+
+}
@@ -28,6 +28,8 @@ package me.lucko.luckperms.common.managers.group;
 import me.lucko.luckperms.common.managers.AbstractManager;
 import me.lucko.luckperms.common.model.Group;
 
+import java.util.Collection;
+
 public abstract class AbstractGroupManager<T extends Group> extends AbstractManager<String, Group, T> implements GroupManager<T> {
 
     @Override
@@ -55,6 +57,36 @@ public abstract class AbstractGroupManager<T extends Group> extends AbstractMana
         return null;
     }
 
+    @Override
+    public T getOrMake(String id) {
+        boolean loaded = isLoaded(id);
+        T group = super.getOrMake(id);
+        if (!loaded) {
+            group.getPlugin().getInheritanceHandler().invalidateGroupState();
+        }
+        return group;
+    }
+
+    @Override
+    public void unload(String id) {
+        T group = getIfLoaded(id);
+        super.unload(id);
+        if (group != null) {
+            group.getPlugin().getInheritanceHandler().getIndex().remove(group);
+            group.getPlugin().getInheritanceHandler().invalidateGroupState();
+        }
+    }
+
+    @Override
+    public void unloadAll() {
+        Collection<T> groups = getAll().values();
+        super.unloadAll();
+        for (T group : groups) {
+            group.getPlugin().getInheritanceHandler().getIndex().remove(group);
+            group.getPlugin().getInheritanceHandler().invalidateGroupState();
+        }
+    }
+
     @Override
     protected String sanitizeIdentifier(String s) {
         return s.toLowerCase();
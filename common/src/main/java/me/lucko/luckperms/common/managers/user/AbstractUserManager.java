@@ -26,7 +26,6 @@
 package me.lucko.luckperms.common.managers.user;
 
 import me.lucko.luckperms.api.Node;
-import me.lucko.luckperms.api.context.ImmutableContextSet;
 import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.managers.AbstractManager;
 import me.lucko.luckperms.common.model.User;
@@ -34,9 +33,13 @@ import me.lucko.luckperms.common.node.NodeFactory;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.references.UserIdentifier;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 public abstract class AbstractUserManager<T extends User> extends AbstractManager<UserIdentifier, User, T> implements UserManager<T> {
 
@@ -58,6 +61,22 @@ public abstract class AbstractUserManager<T extends User> extends AbstractManage
         return ret;
     }
 
+    @Override
+    public void unload(UserIdentifier id) {
+        T user = getIfLoaded(id);
+        super.unload(id);
+        if (user != null) {
+            this.plugin.getInheritanceHandler().getIndex().remove(user);
+        }
+    }
+
+    @Override
+    public void unloadAll() {
+        Collection<T> users = getAll().values();
+        super.unloadAll();
+        users.forEach(this.plugin.getInheritanceHandler().getIndex()::remove);
+    }
+
     @Override
     public T getByUsername(String name) {
         for (T user : getAll().values()) {
@@ -78,13 +97,16 @@ public abstract class AbstractUserManager<T extends User> extends AbstractManage
     public boolean giveDefaultIfNeeded(User user, boolean save) {
         boolean work = false;
 
+        // read the nodes without building the full immutable map, so a packed map stays packed
+        List<Node> nodes = user.getEnduringData().asList();
+
         // check that they are actually a member of their primary group, otherwise remove it
         if (this.plugin.getConfiguration().get(ConfigKeys.PRIMARY_GROUP_CALCULATION_METHOD).equals("stored")) {
             String pg = user.getPrimaryGroup().getValue();
             boolean has = false;
 
-            for (Node node : user.getEnduringNodes().get(ImmutableContextSet.empty())) {
-                if (node.isGroupNode() && node.getGroupName().equalsIgnoreCase(pg)) {
+            for (Node node : nodes) {
+                if (node.getFullContexts().isEmpty() && node.isGroupNode() && node.getGroupName().equalsIgnoreCase(pg)) {
                     has = true;
                     break;
                 }
@@ -92,7 +114,8 @@ public abstract class AbstractUserManager<T extends User> extends AbstractManage
 
             // need to find a new primary group for the user.
             if (!has) {
-                String group = user.getEnduringNodes().get(ImmutableContextSet.empty()).stream()
+                String group = nodes.stream()
+                        .filter(n -> n.getFullContexts().isEmpty())
                         .filter(Node::isGroupNode)
                         .findFirst()
                         .map(Node::getGroupName)
@@ -109,7 +132,7 @@ public abstract class AbstractUserManager<T extends User> extends AbstractManage
         // check that all users are member of at least one group
         boolean hasGroup = false;
         if (user.getPrimaryGroup().getStoredValue().isPresent()) {
-            for (Node node : user.getEnduringNodes().values()) {
+            for (Node node : nodes) {
                 if (node.hasSpecificContext()) {
                     continue;
                 }
@@ -146,10 +169,8 @@ public abstract class AbstractUserManager<T extends User> extends AbstractManage
 
     @Override
     public CompletableFuture<Void> updateAllUsers() {
-        return CompletableFuture.runAsync(
-                () -> this.plugin.getOnlinePlayers().forEach(u -> this.plugin.getStorage().loadUser(u, null).join()),
-                this.plugin.getScheduler().async()
-        );
+        Set<UUID> online = this.plugin.getOnlinePlayers().collect(Collectors.toSet());
+        return this.plugin.getStorage().loadUsers(online).thenApply(users -> null);
     }
 
     /**
@@ -160,11 +181,12 @@ public abstract class AbstractUserManager<T extends User> extends AbstractManage
      */
     @Override
     public boolean shouldSave(User user) {
-        if (user.getEnduringNodes().size() != 1) {
+        List<Node> nodes = user.getEnduringData().asList();
+        if (nodes.size() != 1) {
             return true;
         }
 
-        for (Node node : user.getEnduringNodes().values()) {
+        for (Node node : nodes) {
             // There's only one.
             if (!node.isGroupNode()) {
                 return true;
@@ -30,24 +30,37 @@ import me.lucko.luckperms.api.messenger.IncomingMessageConsumer;
 import me.lucko.luckperms.api.messenger.Messenger;
 import me.lucko.luckperms.api.messenger.MessengerProvider;
 import me.lucko.luckperms.api.messenger.message.Message;
+import me.lucko.luckperms.api.messenger.message.type.GroupUpdateMessage;
 import me.lucko.luckperms.api.messenger.message.type.LogMessage;
+import me.lucko.luckperms.api.messenger.message.type.NodeDeltaMessage;
+import me.lucko.luckperms.api.messenger.message.type.TrackUpdateMessage;
 import me.lucko.luckperms.api.messenger.message.type.UpdateMessage;
 import me.lucko.luckperms.api.messenger.message.type.UserUpdateMessage;
 import me.lucko.luckperms.common.actionlog.ExtendedLogEntry;
 import me.lucko.luckperms.common.buffers.BufferedRequest;
 import me.lucko.luckperms.common.config.ConfigKeys;
+import me.lucko.luckperms.common.messaging.message.GroupUpdateMessageImpl;
 import me.lucko.luckperms.common.messaging.message.LogMessageImpl;
+import me.lucko.luckperms.common.messaging.message.NodeDeltaMessageImpl;
+import me.lucko.luckperms.common.messaging.message.TrackUpdateMessageImpl;
 import me.lucko.luckperms.common.messaging.message.UpdateMessageImpl;
 import me.lucko.luckperms.common.messaging.message.UserUpdateMessageImpl;
+import me.lucko.luckperms.common.model.Group;
+import me.lucko.luckperms.common.model.NodeSyncState;
+import me.lucko.luckperms.common.model.PermissionHolder;
+import me.lucko.luckperms.common.model.Track;
 import me.lucko.luckperms.common.model.User;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 
 import javax.annotation.Nonnull;
-import java.util.*;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 public class LuckPermsMessagingService implements InternalMessagingService, IncomingMessageConsumer {
     private final LuckPermsPlugin plugin;
-    private final Set<UUID> receivedMessages;
+    private final UUID serverId = UUID.randomUUID();
+    private final ReceivedMessageSet receivedMessages;
     private final BufferedRequest<Void> updateBuffer;
 
     private final MessengerProvider messengerProvider;
@@ -60,7 +73,7 @@ public class LuckPermsMessagingService implements InternalMessagingService, Inco
         this.messenger = messengerProvider.obtain(this);
         Objects.requireNonNull(this.messenger, "messenger");
 
-        this.receivedMessages = Collections.synchronizedSet(new HashSet<>());
+        this.receivedMessages = new ReceivedMessageSet(10, TimeUnit.MINUTES);
         this.updateBuffer = new PushUpdateBuffer(plugin);
     }
 
@@ -89,6 +102,15 @@ public class LuckPermsMessagingService implements InternalMessagingService, Inco
         return this.updateBuffer;
     }
 
+    /**
+     * Gets the set of recently sent and received message ids
+     *
+     * @return the received message set
+     */
+    public ReceivedMessageSet getReceivedMessages() {
+        return this.receivedMessages;
+    }
+
     private UUID generatePingId() {
         UUID uuid = UUID.randomUUID();
         this.receivedMessages.add(uuid);
@@ -104,8 +126,34 @@ public class LuckPermsMessagingService implements InternalMessagingService, Inco
         });
     }
 
+    /**
+     * Pushes the saved changes made to the holder since they were last pushed, if
+     * node changes are being pushed.
+     *
+     * @param holder the holder
+     * @param holderType the type of the holder
+     * @param holderId the identifier of the holder
+     * @param description a description of the changes, for the log
+     * @return true if the changes were pushed, false if a regular update should be pushed instead
+     */
+    private boolean pushDelta(PermissionHolder holder, NodeDeltaMessage.HolderType holderType, String holderId, String description) {
+        if (!this.plugin.getConfiguration().get(ConfigKeys.PUSH_NODE_CHANGES)) {
+            return false;
+        }
+
+        return holder.getSyncState().pushDelta(delta -> {
+            UUID requestId = generatePingId();
+            this.plugin.getLog().info("[" + getName() + " Messaging] Sending " + description + " with id: " + requestId);
+            this.messenger.sendOutgoingMessage(new NodeDeltaMessageImpl(requestId, this.serverId, holderType, holderId, delta));
+        }, this.plugin.getScheduler().async());
+    }
+
     @Override
     public void pushUserUpdate(User user) {
+        if (pushDelta(user, NodeDeltaMessage.HolderType.USER, user.getUuid().toString(), "user changes for '" + user.getFriendlyName() + "'")) {
+            return;
+        }
+
         this.plugin.getScheduler().doAsync(() -> {
             UUID requestId = generatePingId();
             this.plugin.getLog().info("[" + getName() + " Messaging] Sending user ping for '" + user.getFriendlyName() + "' with id: " + requestId);
@@ -113,6 +161,40 @@ public class LuckPermsMessagingService implements InternalMessagingService, Inco
         });
     }
 
+    @Override
+    public void pushGroupUpdate(Group group) {
+        if (pushDelta(group, NodeDeltaMessage.HolderType.GROUP, group.getName(), "group changes for '" + group.getName() + "'")) {
+            return;
+        }
+
+        if (!this.plugin.getConfiguration().get(ConfigKeys.PUSH_TARGETED_UPDATES)) {
+            // older versions only understand the general update message
+            pushUpdate();
+            return;
+        }
+
+        this.plugin.getScheduler().doAsync(() -> {
+            UUID requestId = generatePingId();
+            this.plugin.getLog().info("[" + getName() + " Messaging] Sending group ping for '" + group.getName() + "' with id: " + requestId);
+            this.messenger.sendOutgoingMessage(new GroupUpdateMessageImpl(requestId, group.getName()));
+        });
+    }
+
+    @Override
+    public void pushTrackUpdate(Track track) {
+        if (!this.plugin.getConfiguration().get(ConfigKeys.PUSH_TARGETED_UPDATES)) {
+            // older versions only understand the general update message
+            pushUpdate();
+            return;
+        }
+
+        this.plugin.getScheduler().doAsync(() -> {
+            UUID requestId = generatePingId();
+            this.plugin.getLog().info("[" + getName() + " Messaging] Sending track ping for '" + track.getName() + "' with id: " + requestId);
+            this.messenger.sendOutgoingMessage(new TrackUpdateMessageImpl(requestId, track.getName()));
+        });
+    }
+
     @Override
     public void pushLog(LogEntry logEntry) {
         this.plugin.getScheduler().doAsync(() -> {
@@ -166,6 +248,96 @@ public class LuckPermsMessagingService implements InternalMessagingService, Inco
             this.plugin.getStorage().loadUser(user.getUuid(), null);
             return true;
 
+        } else if (message instanceof GroupUpdateMessage) {
+            GroupUpdateMessage msg = (GroupUpdateMessage) message;
+            if (!this.receivedMessages.add(msg.getId())) {
+                return false;
+            }
+
+            String groupName = msg.getGroup().toLowerCase();
+            this.plugin.getLog().info("[" + getName() + " Messaging] Received group update ping for '" + groupName + "' with id: " + msg.getId());
+
+            if (this.plugin.getEventFactory().handleNetworkPreSync(false, msg.getId())) {
+                return true;
+            }
+
+            reloadGroup(groupName);
+            return true;
+
+        } else if (message instanceof TrackUpdateMessage) {
+            TrackUpdateMessage msg = (TrackUpdateMessage) message;
+            if (!this.receivedMessages.add(msg.getId())) {
+                return false;
+            }
+
+            String trackName = msg.getTrack().toLowerCase();
+            this.plugin.getLog().info("[" + getName() + " Messaging] Received track update ping for '" + trackName + "' with id: " + msg.getId());
+
+            if (this.plugin.getEventFactory().handleNetworkPreSync(false, msg.getId())) {
+                return true;
+            }
+
+            this.plugin.getStorage().loadTrack(trackName).thenAccept(result -> {
+                if (!result.isPresent()) {
+                    // the track has since been deleted
+                    this.plugin.getTrackManager().unload(trackName);
+                }
+            });
+            return true;
+
+        } else if (message instanceof NodeDeltaMessage) {
+            NodeDeltaMessage msg = (NodeDeltaMessage) message;
+            if (!this.receivedMessages.add(msg.getId())) {
+                return false;
+            }
+
+            NodeSyncState.Delta delta = new NodeSyncState.Delta(msg.getRevision(), msg.getAdded(), msg.getRemoved());
+
+            if (msg.getHolderType() == NodeDeltaMessage.HolderType.USER) {
+                UUID uuid;
+                try {
+                    uuid = UUID.fromString(msg.getHolder());
+                } catch (IllegalArgumentException e) {
+                    return false;
+                }
+
+                User user = this.plugin.getUserManager().getIfLoaded(uuid);
+                if (user == null) {
+                    return true;
+                }
+
+                this.plugin.getLog().info("[" + getName() + " Messaging] Received user changes for '" + user.getFriendlyName() + "' with id: " + msg.getId());
+
+                if (this.plugin.getEventFactory().handleNetworkPreSync(false, msg.getId())) {
+                    return true;
+                }
+
+                // apply the changes directly, unless we've missed some
+                if (user.getSyncState().acceptRemoteRevision(msg.getOrigin(), delta.getRevision())) {
+                    user.applyRemoteChanges(delta);
+                    user.getRefreshBuffer().request();
+                } else {
+                    this.plugin.getStorage().loadUser(uuid, null);
+                }
+            } else {
+                String groupName = msg.getHolder().toLowerCase();
+                this.plugin.getLog().info("[" + getName() + " Messaging] Received group changes for '" + groupName + "' with id: " + msg.getId());
+
+                if (this.plugin.getEventFactory().handleNetworkPreSync(false, msg.getId())) {
+                    return true;
+                }
+
+                // apply the changes directly, unless we've missed some
+                Group group = this.plugin.getGroupManager().getIfLoaded(groupName);
+                if (group != null && group.getSyncState().acceptRemoteRevision(msg.getOrigin(), delta.getRevision())) {
+                    group.applyRemoteChanges(delta);
+                    this.plugin.getInheritanceHandler().refreshDependents(group);
+                } else {
+                    reloadGroup(groupName);
+                }
+            }
+            return true;
+
         } else if (message instanceof LogMessage) {
             LogMessage msg = (LogMessage) message;
             if (!this.receivedMessages.add(msg.getId())) {
@@ -196,13 +368,49 @@ public class LuckPermsMessagingService implements InternalMessagingService, Inco
             return consumeIncomingMessage(decoded);
         }
 
+        decoded = NodeDeltaMessageImpl.decode(encodedString);
+        if (decoded != null) {
+            return consumeIncomingMessage(decoded);
+        }
+
+        decoded = GroupUpdateMessageImpl.decode(encodedString);
+        if (decoded != null) {
+            return consumeIncomingMessage(decoded);
+        }
+
+        decoded = TrackUpdateMessageImpl.decode(encodedString);
+        if (decoded != null) {
+            return consumeIncomingMessage(decoded);
+        }
+
         decoded = LogMessageImpl.decode(encodedString);
         return decoded != null && consumeIncomingMessage(decoded);
     }
 
+    /**
+     * Reloads a group from storage, and then refreshes the holders which inherit from it.
+     *
+     * @param groupName the name of the group
+     */
+    private void reloadGroup(String groupName) {
+        this.plugin.getStorage().loadGroup(groupName).thenAccept(result -> {
+            Group group = result.orElse(null);
+            if (group == null) {
+                // the group has since been deleted
+                group = this.plugin.getGroupManager().getIfLoaded(groupName);
+                if (group == null) {
+                    return;
+                }
+                this.plugin.getGroupManager().unload(group);
+            }
+
+            this.plugin.getInheritanceHandler().refreshDependents(group);
+        });
+    }
+
     private final class PushUpdateBuffer extends BufferedRequest<Void> {
         public PushUpdateBuffer(LuckPermsPlugin plugin) {
-            super(2000L, 200L, plugin.getScheduler().async());
+            super(2000L, plugin.getScheduler().timer(), plugin.getScheduler().async());
         }
 
         @Override
@@ -0,0 +1,102 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.messaging;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps track of the ids of recently sent and received messages, so that
+ * duplicate messages can be ignored.
+ *
+ * <p>Ids are forgotten after a period of time, and the number of ids retained
+ * is bounded.</p>
+ */
+public class ReceivedMessageSet {
+
+    /**
+     * The maximum number of ids to retain
+     */
+    private static final long MAXIMUM_SIZE = 10000;
+
+    private final Cache<UUID, Boolean> ids;
+
+    /**
+     * The number of duplicate ids which have been seen
+     */
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * The number of new ids which have been seen
+     */
+    private final LongAdder misses = new LongAdder();
+
+    public ReceivedMessageSet(long duration, TimeUnit unit) {
+        this.ids = Caffeine.newBuilder()
+                .expireAfterWrite(duration, unit)
+                .maximumSize(MAXIMUM_SIZE)
+                .build();
+    }
+
+    /**
+     * Adds an id to the set.
+     *
+     * @param id the message id
+     * @return true if the id wasn't already present, false if the message is a duplicate
+     */
+    public boolean add(UUID id) {
+        if (this.ids.asMap().putIfAbsent(id, Boolean.TRUE) == null) {
+            this.misses.increment();
+            return true;
+        } else {
+            this.hits.increment();
+            return false;
+        }
+    }
+
+    /**
+     * Gets the number of times an id was added which was already present.
+     *
+     * @return the number of duplicate ids seen
+     */
+    public long getHits() {
+        return this.hits.sum();
+    }
+
+    /**
+     * Gets the number of times an id was added which wasn't already present.
+     *
+     * @return the number of new ids seen
+     */
+    public long getMisses() {
+        return this.misses.sum();
+    }
+
+}
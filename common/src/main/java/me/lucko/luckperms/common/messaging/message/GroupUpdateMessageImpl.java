@@ -0,0 +1,91 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.messaging.message;
+
+import me.lucko.luckperms.api.messenger.message.type.GroupUpdateMessage;
+
+import javax.annotation.Nonnull;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+
+public class GroupUpdateMessageImpl extends AbstractMessage implements GroupUpdateMessage {
+    private static final String GROUP_UPDATE_HEADER = "groupupdate:";
+
+    public static GroupUpdateMessageImpl decode(String msg) {
+        if (msg.startsWith(GROUP_UPDATE_HEADER) && msg.length() > GROUP_UPDATE_HEADER.length()) {
+            String content = msg.substring(GROUP_UPDATE_HEADER.length());
+            return decodeContent(content);
+        }
+
+        return null;
+    }
+
+    private final String groupName;
+
+    public GroupUpdateMessageImpl(UUID id, String groupName) {
+        super(id);
+        this.groupName = groupName;
+    }
+
+    @Nonnull
+    @Override
+    public String getGroup() {
+        return this.groupName;
+    }
+
+    @Nonnull
+    @Override
+    public String asEncodedString() {
+        return GROUP_UPDATE_HEADER + encodeContent(getId(), this.groupName);
+    }
+
+    private static String encodeContent(UUID id, String groupName) {
+        byte[] name = groupName.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buf = ByteBuffer.allocate(Long.BYTES * 2 + name.length);
+        buf.putLong(id.getMostSignificantBits());
+        buf.putLong(id.getLeastSignificantBits());
+        buf.put(name);
+        return Base64.getEncoder().encodeToString(buf.array());
+    }
+
+    private static GroupUpdateMessageImpl decodeContent(String s) {
+        try {
+            byte[] bytes = Base64.getDecoder().decode(s);
+            ByteBuffer buf = ByteBuffer.wrap(bytes);
+            UUID id = new UUID(buf.getLong(), buf.getLong());
+            String groupName = new String(bytes, buf.position(), buf.remaining(), StandardCharsets.UTF_8);
+            if (groupName.isEmpty()) {
+                return null;
+            }
+            return new GroupUpdateMessageImpl(id, groupName);
+        } catch (IllegalArgumentException | BufferUnderflowException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.messaging.message;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import me.lucko.luckperms.api.Node;
+import me.lucko.luckperms.api.messenger.message.type.NodeDeltaMessage;
+import me.lucko.luckperms.common.model.NodeSyncState;
+import me.lucko.luckperms.common.node.NodeModel;
+import me.lucko.luckperms.common.webeditor.WebEditor;
+
+import javax.annotation.Nonnull;
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * A message carrying the nodes which were added to and removed from a user or group.
+ */
+public class NodeDeltaMessageImpl extends AbstractMessage implements NodeDeltaMessage {
+    private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+    private static final String NODE_DELTA_HEADER = "nodedelta";
+
+    public static NodeDeltaMessageImpl decode(String msg) {
+        if (msg.startsWith(NODE_DELTA_HEADER) && msg.length() > NODE_DELTA_HEADER.length()) {
+            String content = msg.substring(NODE_DELTA_HEADER.length());
+
+            try {
+                return decodeContent(GSON.fromJson(content, JsonObject.class));
+            } catch (Exception e) {
+                return null;
+            }
+        }
+
+        return null;
+    }
+
+    private final UUID origin;
+    private final HolderType holderType;
+    private final String holder;
+    private final NodeSyncState.Delta delta;
+
+    public NodeDeltaMessageImpl(UUID id, UUID origin, HolderType holderType, String holder, NodeSyncState.Delta delta) {
+        super(id);
+        this.origin = origin;
+        this.holderType = holderType;
+        this.holder = holder;
+        this.delta = delta;
+    }
+
+    @Nonnull
+    @Override
+    public UUID getOrigin() {
+        return this.origin;
+    }
+
+    @Nonnull
+    @Override
+    public HolderType getHolderType() {
+        return this.holderType;
+    }
+
+    @Nonnull
+    @Override
+    public String getHolder() {
+        return this.holder;
+    }
+
+    @Override
+    public long getRevision() {
+        return this.delta.getRevision();
+    }
+
+    @Nonnull
+    @Override
+    public Set<Node> getAdded() {
+        return this.delta.getAdded();
+    }
+
+    @Nonnull
+    @Override
+    public Set<Node> getRemoved() {
+        return this.delta.getRemoved();
+    }
+
+    @Nonnull
+    @Override
+    public String asEncodedString() {
+        return NODE_DELTA_HEADER + GSON.toJson(encodeContent());
+    }
+
+    private static String uuidToString(UUID uuid) {
+        ByteBuffer buf = ByteBuffer.allocate(Long.BYTES * 2);
+        buf.putLong(uuid.getMostSignificantBits());
+        buf.putLong(uuid.getLeastSignificantBits());
+        return Base64.getEncoder().encodeToString(buf.array());
+    }
+
+    private static UUID uuidFromString(String s) {
+        try {
+            byte[] bytes = Base64.getDecoder().decode(s);
+            ByteBuffer buf = ByteBuffer.wrap(bytes);
+            return new UUID(buf.getLong(), buf.getLong());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private JsonObject encodeContent() {
+        JsonObject data = new JsonObject();
+
+        data.add("id", new JsonPrimitive(uuidToString(getId())));
+        data.add("origin", new JsonPrimitive(uuidToString(this.origin)));
+        data.add("type", new JsonPrimitive(this.holderType.name()));
+        data.add("holder", new JsonPrimitive(this.holder));
+        data.add("revision", new JsonPrimitive(this.delta.getRevision()));
+        data.add("added", WebEditor.serializePermissions(this.delta.getAdded().stream().map(NodeModel::fromNode)));
+        data.add("removed", WebEditor.serializePermissions(this.delta.getRemoved().stream().map(NodeModel::fromNode)));
+
+        return data;
+    }
+
+    private static NodeDeltaMessageImpl decodeContent(JsonObject object) {
+        UUID id = uuidFromString(object.get("id").getAsString());
+        UUID origin = uuidFromString(object.get("origin").getAsString());
+        if (id == null || origin == null) {
+            return null;
+        }
+
+        HolderType holderType = HolderType.valueOf(object.get("type").getAsString());
+        String holder = object.get("holder").getAsString();
+        long revision = object.get("revision").getAsLong();
+        Set<Node> added = decodeNodes(WebEditor.deserializePermissions(object.get("added").getAsJsonArray()));
+        Set<Node> removed = decodeNodes(WebEditor.deserializePermissions(object.get("removed").getAsJsonArray()));
+
+        return new NodeDeltaMessageImpl(id, origin, holderType, holder, new NodeSyncState.Delta(revision, added, removed));
+    }
+
+    private static Set<Node> decodeNodes(Set<NodeModel> models) {
+        ImmutableSet.Builder<Node> nodes = ImmutableSet.builder();
+        for (NodeModel model : models) {
+            nodes.add(model.toNode());
+        }
+        return nodes.build();
+    }
+
+}
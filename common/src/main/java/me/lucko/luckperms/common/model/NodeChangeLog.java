@@ -0,0 +1,108 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.model;
+
+import com.google.common.collect.ImmutableList;
+import me.lucko.luckperms.api.Node;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Records changes made to the nodes of a {@link PermissionHolder}.
+ *
+ * <p>Each change increments the version of the log. Changes which only affect
+ * a single node are retained (up to a limit), so that cached data calculated at
+ * an earlier version can be updated incrementally.</p>
+ */
+public final class NodeChangeLog {
+
+    /**
+     * The maximum number of single node changes to retain
+     */
+    private static final int MAX_CHANGES = 64;
+
+    /**
+     * The current version
+     */
+    private long version = 0;
+
+    /**
+     * The version at which {@link #changes} begin. Changes made before this
+     * version are no longer known.
+     */
+    private long baseVersion = 0;
+
+    /**
+     * The nodes changed since {@link #baseVersion}, in order
+     */
+    private final Deque<Node> changes = new ArrayDeque<>();
+
+    public synchronized long getVersion() {
+        return this.version;
+    }
+
+    /**
+     * Records a change which only affected the given node.
+     *
+     * @param node the node which was added or removed
+     */
+    public synchronized void recordChange(Node node) {
+        this.version++;
+        this.changes.addLast(node);
+
+        if (this.changes.size() > MAX_CHANGES) {
+            this.changes.removeFirst();
+            this.baseVersion++;
+        }
+    }
+
+    /**
+     * Records a change which could have affected any number of nodes.
+     */
+    public synchronized void recordFullChange() {
+        this.version++;
+        this.changes.clear();
+        this.baseVersion = this.version;
+    }
+
+    /**
+     * Gets the nodes which have changed since the given version.
+     *
+     * @param since the version
+     * @return the changed nodes, or null if the changes since the version aren't known
+     */
+    public synchronized List<Node> getChangesSince(long since) {
+        if (since < this.baseVersion || since > this.version) {
+            return null;
+        }
+
+        List<Node> changes = ImmutableList.copyOf(this.changes);
+        return changes.subList((int) (since - this.baseVersion), changes.size());
+    }
+
+}
@@ -26,15 +26,17 @@
 package me.lucko.luckperms.common.model;
 
 import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.MultimapBuilder;
+import com.google.common.collect.SetMultimap;
 import com.google.common.collect.SortedSetMultimap;
 import me.lucko.luckperms.api.LocalizedNode;
 import me.lucko.luckperms.api.Node;
+import me.lucko.luckperms.api.NodeEqualityPredicate;
 import me.lucko.luckperms.api.StandardNodeEquality;
 import me.lucko.luckperms.api.context.ContextSet;
 import me.lucko.luckperms.api.context.ImmutableContextSet;
-import me.lucko.luckperms.common.buffers.Cache;
 import me.lucko.luckperms.common.contexts.ContextSetComparator;
 import me.lucko.luckperms.common.node.ImmutableLocalizedNode;
 import me.lucko.luckperms.common.node.NodeComparator;
@@ -53,9 +55,22 @@ import java.util.function.Predicate;
  * are ordered according to the priority of the node, according to {@link NodeComparator}.</p>
  *
  * <p>Each holder has two of these maps, one for enduring and transient nodes.</p>
+ *
+ * <p>Most holders are loaded and then only ever read in full - saved, exported
+ * or listed through the API - so a map starts out, and is reset to, a packed
+ * form which holds just an array of the (shared) node instances. The sorted
+ * maps and indexes below are only built on the first filtered lookup or
+ * mutation.</p>
+ *
+ * <p>Two secondary indexes are maintained alongside the backing map - one of nodes
+ * keyed by their permission and context, used to find existing matches for a node,
+ * and one of the context sets in the map, used to find the sets satisfied by a
+ * given filter without scanning every key.</p>
  */
 public final class NodeMap {
 
+    private static final Node[] EMPTY_PACKED = new Node[0];
+
     /**
      * The holder which this map is for
      */
@@ -69,19 +84,35 @@ public final class NodeMap {
      * key, and finally by the overall size of the set. Nodes are ordered according to the priority rules
      * defined in {@link NodeComparator}.</p>
      */
-    private final SortedSetMultimap<ImmutableContextSet, Node> map = MultimapBuilder
-            .treeKeys(ContextSetComparator.reverse())
-            .treeSetValues(NodeComparator.reverse())
-            .build();
+    private SortedSetMultimap<ImmutableContextSet, Node> map = null;
 
     /**
      * Copy of {@link #map} which only contains group nodes
      * @see Node#isGroupNode()
      */
-    private final SortedSetMultimap<ImmutableContextSet, Node> inheritanceMap = MultimapBuilder
-            .treeKeys(ContextSetComparator.reverse())
-            .treeSetValues(NodeComparator.reverse())
-            .build();
+    private SortedSetMultimap<ImmutableContextSet, Node> inheritanceMap = null;
+
+    /**
+     * Index of the nodes in {@link #map}, keyed by their permission and context.
+     *
+     * <p>Nodes which are equal according to any {@link StandardNodeEquality}
+     * always share the same key.</p>
+     */
+    private ListMultimap<NodeKey, Node> nodeIndex = null;
+
+    /**
+     * Index of the non-empty context sets used as keys in {@link #map}.
+     *
+     * <p>Each set is indexed by one of its context pairs - a set can only be
+     * satisfied by a filter which contains that pair.</p>
+     */
+    private SetMultimap<Map.Entry<String, String>, ImmutableContextSet> contextIndex = null;
+
+    /**
+     * The nodes in the map, in the same order as {@link #map}, while the map
+     * is packed. Null once the map has been inflated.
+     */
+    private Node[] packed = EMPTY_PACKED;
 
     /**
      * The lock which synchronizes the instance
@@ -89,18 +120,30 @@ public final class NodeMap {
     private final ReentrantLock lock = new ReentrantLock();
 
     /**
-     * A cache which holds an immutable copy of the backing map
+     * An immutable copy of the backing map, or null if it needs to be rebuilt.
+     *
+     * <p>Only built whilst holding {@link #lock}, so that no other lock has to be
+     * acquired to invalidate it.</p>
      */
-    private final NodeMapCache cache = new NodeMapCache(this);
+    private volatile ImmutableSetMultimap<ImmutableContextSet, Node> immutable = null;
 
     NodeMap(PermissionHolder holder) {
         this.holder = holder;
     }
 
+    public int size() {
+        this.lock.lock();
+        try {
+            return this.map == null ? this.packed.length : this.map.size();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
     public List<Node> asList() {
         this.lock.lock();
         try {
-            return new ArrayList<>(this.map.values());
+            return new ArrayList<>(values());
         } finally {
             this.lock.unlock();
         }
@@ -109,7 +152,7 @@ public final class NodeMap {
     public LinkedHashSet<Node> asSet() {
         this.lock.lock();
         try {
-            return new LinkedHashSet<>(this.map.values());
+            return new LinkedHashSet<>(values());
         } finally {
             this.lock.unlock();
         }
@@ -124,7 +167,7 @@ public final class NodeMap {
     public void copyTo(Collection<? super Node> collection) {
         this.lock.lock();
         try {
-            collection.addAll(this.map.values());
+            collection.addAll(values());
         } finally {
             this.lock.unlock();
         }
@@ -133,10 +176,9 @@ public final class NodeMap {
     public void copyTo(Collection<? super Node> collection, ContextSet filter) {
         this.lock.lock();
         try {
-            for (Map.Entry<ImmutableContextSet, Collection<Node>> e : this.map.asMap().entrySet()) {
-                if (e.getKey().isSatisfiedBy(filter)) {
-                    collection.addAll(e.getValue());
-                }
+            inflate();
+            for (ImmutableContextSet context : getSatisfiedContexts(filter)) {
+                collection.addAll(this.map.get(context));
             }
         } finally {
             this.lock.unlock();
@@ -146,6 +188,15 @@ public final class NodeMap {
     public void copyGroupNodesTo(Collection<? super Node> collection) {
         this.lock.lock();
         try {
+            if (this.map == null) {
+                // no need to inflate the map just to find the group nodes
+                for (Node node : this.packed) {
+                    if (node.isGroupNode() && node.getValuePrimitive()) {
+                        collection.add(node);
+                    }
+                }
+                return;
+            }
             collection.addAll(this.inheritanceMap.values());
         } finally {
             this.lock.unlock();
@@ -155,10 +206,9 @@ public final class NodeMap {
     public void copyGroupNodesTo(Collection<? super Node> collection, ContextSet filter) {
         this.lock.lock();
         try {
-            for (Map.Entry<ImmutableContextSet, Collection<Node>> e : this.inheritanceMap.asMap().entrySet()) {
-                if (e.getKey().isSatisfiedBy(filter)) {
-                    collection.addAll(e.getValue());
-                }
+            inflate();
+            for (ImmutableContextSet context : getSatisfiedContexts(filter)) {
+                collection.addAll(this.inheritanceMap.get(context));
             }
         } finally {
             this.lock.unlock();
@@ -168,7 +218,7 @@ public final class NodeMap {
     public void copyToLocalized(Collection<LocalizedNode> collection) {
         this.lock.lock();
         try {
-            for (Node node : this.map.values()) {
+            for (Node node : values()) {
                 collection.add(ImmutableLocalizedNode.of(node, this.holder.getObjectName()));
             }
         } finally {
@@ -176,27 +226,81 @@ public final class NodeMap {
         }
     }
 
+    /**
+     * Searches for a node in the map which is equal to the given node.
+     *
+     * @param node the node to search for
+     * @param equalityPredicate how to match
+     * @return the matching node, if present
+     */
+    public Optional<Node> searchForMatch(Node node, NodeEqualityPredicate equalityPredicate) {
+        // the index can't be used for custom equality rules
+        if (!(equalityPredicate instanceof StandardNodeEquality)) {
+            for (Node n : immutable().values()) {
+                if (n.equals(node, equalityPredicate)) {
+                    return Optional.of(n);
+                }
+            }
+            return Optional.empty();
+        }
+
+        this.lock.lock();
+        try {
+            inflate();
+            for (Node n : this.nodeIndex.get(NodeKey.of(node, node.getFullContexts().makeImmutable()))) {
+                if (n.equals(node, equalityPredicate)) {
+                    return Optional.of(n);
+                }
+            }
+            return Optional.empty();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
     /**
      * Returns an immutable representation of the maps current state.
      *
      * @return an immutable copy
      */
     public ImmutableSetMultimap<ImmutableContextSet, Node> immutable() {
-        return this.cache.get();
+        ImmutableSetMultimap<ImmutableContextSet, Node> ret = this.immutable;
+        if (ret != null) {
+            return ret;
+        }
+
+        this.lock.lock();
+        try {
+            ret = this.immutable;
+            if (ret == null) {
+                ret = buildImmutable();
+                this.immutable = ret;
+            }
+            return ret;
+        } finally {
+            this.lock.unlock();
+        }
     }
 
     /**
-     * Invalidates the cache
+     * Invalidates the immutable copy of the map
      */
     void invalidate() {
-        this.cache.invalidate();
+        this.immutable = null;
     }
 
     void add(Node node) {
         this.lock.lock();
         try {
+            inflate();
             ImmutableContextSet context = node.getFullContexts().makeImmutable();
-            this.map.put(context, node);
+            boolean newContext = !this.map.containsKey(context);
+            if (this.map.put(context, node)) {
+                this.nodeIndex.put(NodeKey.of(node, context), node);
+                if (newContext) {
+                    indexContext(context);
+                }
+            }
             if (node.isGroupNode() && node.getValuePrimitive()) {
                 this.inheritanceMap.put(context, node);
             }
@@ -208,8 +312,22 @@ public final class NodeMap {
     void remove(Node node) {
         this.lock.lock();
         try {
+            inflate();
             ImmutableContextSet context = node.getFullContexts().makeImmutable();
-            this.map.get(context).removeIf(e -> e.equals(node, StandardNodeEquality.IGNORE_EXPIRY_TIME_AND_VALUE));
+
+            // find the matching nodes using the index
+            List<Node> matches = new ArrayList<>(1);
+            for (Node n : this.nodeIndex.get(NodeKey.of(node, context))) {
+                if (n.equals(node, StandardNodeEquality.IGNORE_EXPIRY_TIME_AND_VALUE)) {
+                    matches.add(n);
+                }
+            }
+
+            for (Node match : matches) {
+                if (removeFromMap(context, match)) {
+                    unindex(context, match);
+                }
+            }
             if (node.isGroupNode()) {
                 this.inheritanceMap.get(context).removeIf(e -> e.equals(node, StandardNodeEquality.IGNORE_EXPIRY_TIME_AND_VALUE));
             }
@@ -221,8 +339,11 @@ public final class NodeMap {
     private void removeExact(Node node) {
         this.lock.lock();
         try {
+            inflate();
             ImmutableContextSet context = node.getFullContexts().makeImmutable();
-            this.map.remove(context, node);
+            if (removeFromMap(context, node)) {
+                unindex(context, node);
+            }
             if (node.isGroupNode() && node.getValuePrimitive()) {
                 this.inheritanceMap.remove(context, node);
             }
@@ -241,11 +362,24 @@ public final class NodeMap {
         }
     }
 
+    void applyChanges(Collection<? extends Node> added, Collection<? extends Node> removed) {
+        this.lock.lock();
+        try {
+            for (Node node : removed) {
+                removeExact(node);
+            }
+            for (Node node : added) {
+                add(node);
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
     void clear() {
         this.lock.lock();
         try {
-            this.map.clear();
-            this.inheritanceMap.clear();
+            deflate(EMPTY_PACKED);
         } finally {
             this.lock.unlock();
         }
@@ -254,8 +388,12 @@ public final class NodeMap {
     void clear(ContextSet contextSet) {
         this.lock.lock();
         try {
+            inflate();
             ImmutableContextSet context = contextSet.makeImmutable();
-            this.map.removeAll(context);
+            for (Node node : this.map.removeAll(context)) {
+                this.nodeIndex.remove(NodeKey.of(node, context), node);
+            }
+            unindexContext(context);
             this.inheritanceMap.removeAll(context);
         } finally {
             this.lock.unlock();
@@ -265,11 +403,13 @@ public final class NodeMap {
     void setContent(Set<Node> set) {
         this.lock.lock();
         try {
-            this.map.clear();
-            this.inheritanceMap.clear();
+            // sort the nodes using a temporary map, then pack the result.
+            // the indexes are only built if the map is inflated again
+            SortedSetMultimap<ImmutableContextSet, Node> sorted = newBackingMap();
             for (Node n : set) {
-                add(n);
+                sorted.put(n.getFullContexts().makeImmutable(), n);
             }
+            deflate(sorted.values().toArray(EMPTY_PACKED));
         } finally {
             this.lock.unlock();
         }
@@ -278,15 +418,9 @@ public final class NodeMap {
     void setContent(Multimap<ImmutableContextSet, Node> multimap) {
         this.lock.lock();
         try {
-            this.map.clear();
-            this.inheritanceMap.clear();
-
-            this.map.putAll(multimap);
-            for (Map.Entry<ImmutableContextSet, Node> entry : this.map.entries()) {
-                if (entry.getValue().isGroupNode() && entry.getValue().getValuePrimitive()) {
-                    this.inheritanceMap.put(entry.getKey(), entry.getValue());
-                }
-            }
+            SortedSetMultimap<ImmutableContextSet, Node> sorted = newBackingMap();
+            sorted.putAll(multimap);
+            deflate(sorted.values().toArray(EMPTY_PACKED));
         } finally {
             this.lock.unlock();
         }
@@ -295,9 +429,21 @@ public final class NodeMap {
     boolean removeIf(Predicate<? super Node> predicate) {
         this.lock.lock();
         try {
+            if (this.map == null) {
+                // removing entries doesn't affect the order of the rest,
+                // so the packed array can just be filtered
+                Node[] filtered = Arrays.stream(this.packed).filter(predicate.negate()).toArray(Node[]::new);
+                if (filtered.length == this.packed.length) {
+                    return false;
+                }
+                this.packed = filtered;
+                return true;
+            }
+
             boolean ret = this.map.values().removeIf(predicate);
             if (ret) {
                 this.inheritanceMap.values().removeIf(predicate);
+                reindex();
             }
             return ret;
         } finally {
@@ -308,11 +454,21 @@ public final class NodeMap {
     boolean removeIf(ContextSet contextSet, Predicate<? super Node> predicate) {
         this.lock.lock();
         try {
+            inflate();
             ImmutableContextSet context = contextSet.makeImmutable();
             SortedSet<Node> nodes = this.map.get(context);
-            boolean ret = nodes.removeIf(predicate);
+            boolean ret = nodes.removeIf(n -> {
+                if (predicate.test(n)) {
+                    this.nodeIndex.remove(NodeKey.of(n, context), n);
+                    return true;
+                }
+                return false;
+            });
             if (ret) {
                 this.inheritanceMap.get(context).removeIf(predicate);
+                if (nodes.isEmpty()) {
+                    unindexContext(context);
+                }
             }
             return ret;
         } finally {
@@ -325,6 +481,14 @@ public final class NodeMap {
 
         this.lock.lock();
         try {
+            if (this.map == null) {
+                // avoid inflating the map unless there is something to remove
+                if (Arrays.stream(this.packed).noneMatch(Node::hasExpired)) {
+                    return false;
+                }
+                inflate();
+            }
+
             Iterator<Node> it = this.map.values().iterator();
             while (it.hasNext()) {
                 Node entry = it.next();
@@ -332,11 +496,13 @@ public final class NodeMap {
                     if (removed != null) {
                         removed.add(entry);
                     }
+                    ImmutableContextSet context = entry.getFullContexts().makeImmutable();
                     if (entry.isGroupNode() && entry.getValuePrimitive()) {
-                        this.inheritanceMap.remove(entry.getFullContexts().makeImmutable(), entry);
+                        this.inheritanceMap.remove(context, entry);
                     }
                     work = true;
                     it.remove();
+                    unindex(context, entry);
                 }
             }
         } finally {
@@ -346,22 +512,175 @@ public final class NodeMap {
         return work;
     }
 
-    private static final class NodeMapCache extends Cache<ImmutableSetMultimap<ImmutableContextSet, Node>> {
-        private final NodeMap handle;
+    /**
+     * Gets the nodes in the map, in order.
+     *
+     * @return the nodes
+     */
+    private Collection<Node> values() {
+        return this.map == null ? Arrays.asList(this.packed) : this.map.values();
+    }
 
-        private NodeMapCache(NodeMap handle) {
-            this.handle = handle;
+    private ImmutableSetMultimap<ImmutableContextSet, Node> buildImmutable() {
+        if (this.map != null) {
+            return ImmutableSetMultimap.copyOf(this.map);
         }
 
-        @Override
-        protected ImmutableSetMultimap<ImmutableContextSet, Node> supply() {
-            this.handle.lock.lock();
-            try {
-                return ImmutableSetMultimap.copyOf(this.handle.map);
-            } finally {
-                this.handle.lock.unlock();
+        ImmutableSetMultimap.Builder<ImmutableContextSet, Node> builder = ImmutableSetMultimap.builder();
+        for (Node node : this.packed) {
+            builder.put(node.getFullContexts().makeImmutable(), node);
+        }
+        return builder.build();
+    }
+
+    private static SortedSetMultimap<ImmutableContextSet, Node> newBackingMap() {
+        return MultimapBuilder
+                .treeKeys(ContextSetComparator.reverse())
+                .treeSetValues(NodeComparator.reverse())
+                .build();
+    }
+
+    /**
+     * Builds the backing map and indexes from the packed nodes, if the map is
+     * not already inflated.
+     */
+    private void inflate() {
+        if (this.map != null) {
+            return;
+        }
+
+        this.map = newBackingMap();
+        this.inheritanceMap = newBackingMap();
+        this.nodeIndex = MultimapBuilder.hashKeys().arrayListValues(1).build();
+        this.contextIndex = MultimapBuilder.hashKeys().hashSetValues().build();
+
+        Node[] nodes = this.packed;
+        this.packed = null;
+        for (Node node : nodes) {
+            add(node);
+        }
+
+        // the node comparator doesn't strictly order all nodes, so ties may come
+        // out of the rebuilt map in a different order to the packed array
+        this.immutable = null;
+    }
+
+    /**
+     * Discards the backing map and indexes, and replaces the content of the
+     * map with the given nodes.
+     *
+     * @param packed the nodes, in the order of the backing map
+     */
+    private void deflate(Node[] packed) {
+        this.map = null;
+        this.inheritanceMap = null;
+        this.nodeIndex = null;
+        this.contextIndex = null;
+        this.packed = packed;
+    }
+
+    /**
+     * Removes a node from the backing map.
+     *
+     * <p>The node comparator isn't always consistent for temporary nodes, so
+     * falls back to a scan of the context if the lookup fails.</p>
+     *
+     * @param context the context of the node
+     * @param node the node
+     * @return true if the node was removed
+     */
+    private boolean removeFromMap(ImmutableContextSet context, Node node) {
+        return this.map.remove(context, node) || this.map.get(context).removeIf(e -> e.equals(node));
+    }
+
+    private void unindex(ImmutableContextSet context, Node node) {
+        this.nodeIndex.remove(NodeKey.of(node, context), node);
+        if (!this.map.containsKey(context)) {
+            unindexContext(context);
+        }
+    }
+
+    private void indexContext(ImmutableContextSet context) {
+        if (!context.isEmpty()) {
+            this.contextIndex.put(context.toSet().iterator().next(), context);
+        }
+    }
+
+    private void unindexContext(ImmutableContextSet context) {
+        if (!context.isEmpty()) {
+            this.contextIndex.remove(context.toSet().iterator().next(), context);
+        }
+    }
+
+    /**
+     * Rebuilds the indexes from the backing map.
+     */
+    private void reindex() {
+        this.nodeIndex.clear();
+        this.contextIndex.clear();
+        for (Map.Entry<ImmutableContextSet, Collection<Node>> e : this.map.asMap().entrySet()) {
+            indexContext(e.getKey());
+            for (Node node : e.getValue()) {
+                this.nodeIndex.put(NodeKey.of(node, e.getKey()), node);
             }
         }
     }
 
+    /**
+     * Gets the context sets in the map which are satisfied by the given filter,
+     * in the same order as they appear in the map.
+     *
+     * @param filter the filter
+     * @return the satisfied context sets
+     */
+    private List<ImmutableContextSet> getSatisfiedContexts(ContextSet filter) {
+        List<ImmutableContextSet> contexts = new ArrayList<>();
+        if (this.map.containsKey(ImmutableContextSet.empty())) {
+            contexts.add(ImmutableContextSet.empty());
+        }
+
+        for (Map.Entry<String, String> pair : filter.toSet()) {
+            for (ImmutableContextSet context : this.contextIndex.get(pair)) {
+                if (context.isSatisfiedBy(filter)) {
+                    contexts.add(context);
+                }
+            }
+        }
+
+        contexts.sort(ContextSetComparator.reverse());
+        return contexts;
+    }
+
+    /**
+     * The key used by {@link #nodeIndex}.
+     */
+    private static final class NodeKey {
+        static NodeKey of(Node node, ImmutableContextSet context) {
+            return new NodeKey(node.getPermission(), context);
+        }
+
+        private final String permission;
+        private final ImmutableContextSet context;
+        private final int hashCode;
+
+        private NodeKey(String permission, ImmutableContextSet context) {
+            this.permission = permission;
+            this.context = context;
+            this.hashCode = 31 * permission.hashCode() + context.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) return true;
+            if (!(o instanceof NodeKey)) return false;
+            final NodeKey other = (NodeKey) o;
+            return this.hashCode == other.hashCode && this.permission.equals(other.permission) && this.context.equals(other.context);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hashCode;
+        }
+    }
+
 }
@@ -0,0 +1,194 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.model;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import me.lucko.luckperms.api.Node;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Tracks the state of a {@link PermissionHolder}s enduring nodes relative to
+ * the rest of the network, so that changes can be exchanged as deltas.
+ *
+ * <p>The baseline is the set of nodes the network is assumed to know about - it
+ * is established when the holder is loaded from storage, and advanced whenever
+ * saved changes are pushed, or changes are received.</p>
+ */
+public final class NodeSyncState {
+
+    /**
+     * The enduring nodes the network is assumed to know about, or null if unknown
+     */
+    private Set<Node> baseline = null;
+
+    /**
+     * The enduring nodes as they were last saved to storage, or null if unknown
+     */
+    private Set<Node> saved = null;
+
+    /**
+     * The revision of the last delta pushed from this server
+     */
+    private long revision = 0;
+
+    /**
+     * Completes once the last delta pushed from this server has been sent
+     */
+    private CompletableFuture<Void> outgoing = CompletableFuture.completedFuture(null);
+
+    /**
+     * The revision of the last delta received from each other server
+     */
+    private final Map<UUID, Long> remoteRevisions = new HashMap<>();
+
+    /**
+     * Resets the baseline, following a load from storage.
+     *
+     * @param nodes the nodes which were loaded
+     */
+    public synchronized void reset(Collection<Node> nodes) {
+        this.baseline = ImmutableSet.copyOf(nodes);
+        this.saved = this.baseline;
+    }
+
+    /**
+     * Records the nodes which were written by a successful save.
+     *
+     * @param nodes the nodes which were saved
+     */
+    public synchronized void markSaved(Collection<Node> nodes) {
+        this.saved = ImmutableSet.copyOf(nodes);
+    }
+
+    /**
+     * Calculates the saved changes which haven't been pushed yet, advances the
+     * baseline past them, and queues them to be sent.
+     *
+     * <p>Changes which haven't been saved are never included. Deltas for a holder
+     * are passed to the sender one at a time, in revision order.</p>
+     *
+     * @param sender the function which sends the delta
+     * @param executor the executor to send the delta on
+     * @return true if a delta was queued, false if there are no known changes to send
+     */
+    public synchronized boolean pushDelta(Consumer<Delta> sender, Executor executor) {
+        if (this.baseline == null || this.saved == null) {
+            return false;
+        }
+
+        Set<Node> added = ImmutableSet.copyOf(Sets.difference(this.saved, this.baseline));
+        Set<Node> removed = ImmutableSet.copyOf(Sets.difference(this.baseline, this.saved));
+        if (added.isEmpty() && removed.isEmpty()) {
+            return false;
+        }
+
+        Delta delta = new Delta(++this.revision, added, removed);
+        this.baseline = this.saved;
+
+        // chain onto the previous send, so deltas can't overtake each other
+        this.outgoing = this.outgoing.handleAsync((v, t) -> {
+            sender.accept(delta);
+            return null;
+        }, executor);
+        return true;
+    }
+
+    /**
+     * Records the receipt of a delta from another server.
+     *
+     * <p>Returns false if a previous delta from the server has been missed, in which
+     * case the delta shouldn't be applied, and the holder should be loaded from
+     * storage instead.</p>
+     *
+     * @param origin the id of the server the delta originated from
+     * @param revision the revision of the delta
+     * @return true if the delta directly follows the last one received
+     */
+    public synchronized boolean acceptRemoteRevision(UUID origin, long revision) {
+        Long previous = this.remoteRevisions.put(origin, revision);
+        return previous == null ? revision == 1 : revision == previous + 1;
+    }
+
+    /**
+     * Applies a delta received from another server to the baseline.
+     *
+     * @param delta the delta
+     */
+    synchronized void applyToBaseline(Delta delta) {
+        // the changes were saved by the other server, so also apply them to our record of storage
+        this.baseline = apply(this.baseline, delta);
+        this.saved = apply(this.saved, delta);
+    }
+
+    private static Set<Node> apply(Set<Node> nodes, Delta delta) {
+        if (nodes == null) {
+            return null;
+        }
+
+        Set<Node> result = new HashSet<>(nodes);
+        result.removeAll(delta.getRemoved());
+        result.addAll(delta.getAdded());
+        return ImmutableSet.copyOf(result);
+    }
+
+    /**
+     * A set of changes made to the enduring nodes of a holder.
+     */
+    public static final class Delta {
+        private final long revision;
+        private final Set<Node> added;
+        private final Set<Node> removed;
+
+        public Delta(long revision, Set<Node> added, Set<Node> removed) {
+            this.revision = revision;
+            this.added = added;
+            this.removed = removed;
+        }
+
+        public long getRevision() {
+            return this.revision;
+        }
+
+        public Set<Node> getAdded() {
+            return this.added;
+        }
+
+        public Set<Node> getRemoved() {
+            return this.removed;
+        }
+    }
+
+}
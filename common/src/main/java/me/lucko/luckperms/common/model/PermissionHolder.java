@@ -29,12 +29,17 @@ import com.google.common.collect.*;
 import me.lucko.luckperms.api.*;
 import me.lucko.luckperms.api.context.ContextSet;
 import me.lucko.luckperms.api.context.ImmutableContextSet;
+import me.lucko.luckperms.api.event.node.NodeAddEvent;
+import me.lucko.luckperms.api.event.node.NodeClearEvent;
+import me.lucko.luckperms.api.event.node.NodeMutateEvent;
+import me.lucko.luckperms.api.event.node.NodeRemoveEvent;
 import me.lucko.luckperms.common.buffers.BufferedRequest;
 import me.lucko.luckperms.common.buffers.Cache;
 import me.lucko.luckperms.common.caching.HolderCachedData;
 import me.lucko.luckperms.common.caching.handlers.StateListener;
 import me.lucko.luckperms.common.caching.type.MetaAccumulator;
 import me.lucko.luckperms.common.config.ConfigKeys;
+import me.lucko.luckperms.common.graph.TraversalAlgorithm;
 import me.lucko.luckperms.common.inheritance.InheritanceComparator;
 import me.lucko.luckperms.common.inheritance.InheritanceGraph;
 import me.lucko.luckperms.common.node.*;
@@ -44,6 +49,7 @@ import me.lucko.luckperms.common.references.GroupReference;
 import me.lucko.luckperms.common.references.HolderReference;
 import me.lucko.luckperms.common.references.HolderType;
 
+import javax.annotation.Nullable;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.Lock;
@@ -135,6 +141,18 @@ public abstract class PermissionHolder {
      */
     private final Set<StateListener> stateListeners = ConcurrentHashMap.newKeySet();
 
+    /**
+     * Records changes made to this holders nodes
+     * @see #getChangeLog()
+     */
+    private final NodeChangeLog changeLog = new NodeChangeLog();
+
+    /**
+     * Tracks the state of this holders nodes relative to other servers
+     * @see #getSyncState()
+     */
+    private final NodeSyncState syncState = new NodeSyncState();
+
     protected PermissionHolder(String objectName, LuckPermsPlugin plugin) {
         this.objectName = objectName;
         this.plugin = plugin;
@@ -156,7 +174,38 @@ public abstract class PermissionHolder {
         return this.stateListeners;
     }
 
+    public NodeChangeLog getChangeLog() {
+        return this.changeLog;
+    }
+
+    public NodeSyncState getSyncState() {
+        return this.syncState;
+    }
+
     private void invalidateCache() {
+        this.changeLog.recordFullChange();
+        this.plugin.getInheritanceHandler().getIndex().update(this);
+        invalidateCacheInternal();
+    }
+
+    /**
+     * Invalidates caches following a change which only affected a single node.
+     *
+     * @param node the node which was changed
+     */
+    private void invalidateCache(Node node) {
+        this.changeLog.recordChange(node);
+        if (node.isGroupNode()) {
+            this.plugin.getInheritanceHandler().getIndex().update(this);
+        }
+        invalidateCacheInternal();
+    }
+
+    private void invalidateCacheInternal() {
+        if (this.getType().isGroup()) {
+            this.plugin.getInheritanceHandler().invalidateGroupState();
+        }
+
         this.enduringNodes.invalidate();
         this.transientNodes.invalidate();
         this.weightCache.invalidate();
@@ -263,6 +312,17 @@ public abstract class PermissionHolder {
         invalidateCache();
     }
 
+    /**
+     * Applies a set of changes received from another server to this holders enduring nodes.
+     *
+     * @param delta the changes to apply
+     */
+    public void applyRemoteChanges(NodeSyncState.Delta delta) {
+        this.enduringNodes.applyChanges(delta.getAdded(), delta.getRemoved());
+        this.syncState.applyToBaseline(delta);
+        invalidateCache();
+    }
+
     public List<Node> getOwnNodes() {
         List<Node> ret = new ArrayList<>();
         this.transientNodes.copyTo(ret);
@@ -299,12 +359,12 @@ public abstract class PermissionHolder {
     }
 
     public boolean removeIf(Predicate<Node> predicate) {
-        ImmutableCollection<Node> before = getEnduringNodes().values();
+        ImmutableCollection<Node> before = getEnduringNodesForEvent(NodeClearEvent.class);
         if (!this.enduringNodes.removeIf(predicate)) {
             return false;
         }
         invalidateCache();
-        ImmutableCollection<Node> after = getEnduringNodes().values();
+        ImmutableCollection<Node> after = getEnduringNodesForEvent(NodeClearEvent.class);
 
         this.plugin.getEventFactory().handleNodeClear(this, before, after);
         return true;
@@ -405,16 +465,64 @@ public abstract class PermissionHolder {
             }
         }
 
+        filterEntries(entries, context);
+        return entries;
+    }
+
+    private static void filterEntries(List<? extends Node> entries, Contexts context) {
         if (!context.isIncludeGlobal()) {
             entries.removeIf(n -> !n.isGroupNode() && !n.isServerSpecific());
         }
         if (!context.isApplyGlobalWorldGroups()) {
             entries.removeIf(n -> !n.isGroupNode() && !n.isWorldSpecific());
         }
+    }
+
+    /**
+     * Gets the entries which are exported to form the holders permission data in the
+     * given contexts, in order of priority.
+     *
+     * @param context the contexts, or {@link Contexts#allowAll()}
+     * @return the entries
+     */
+    public List<LocalizedNode> getExportEntries(Contexts context) {
+        if (context == Contexts.allowAll()) {
+            return resolveInheritances();
+        }
+        return getAllEntries(context);
+    }
 
+    /**
+     * Gets the holders own entries which are exported to form the holders permission
+     * data in the given contexts, in order of priority.
+     *
+     * <p>If {@link #isOwnEntriesFirst(Contexts)}, the result is equal to the first
+     * entries returned by {@link #getExportEntries(Contexts)}.</p>
+     *
+     * @param context the contexts, or {@link Contexts#allowAll()}
+     * @return the entries
+     */
+    public List<Node> getOwnExportEntries(Contexts context) {
+        if (context == Contexts.allowAll()) {
+            return getOwnNodes();
+        }
+
+        List<Node> entries = getOwnNodes(context.getContexts());
+        filterEntries(entries, context);
         return entries;
     }
 
+    /**
+     * Gets if the holders own entries are the first to be exported in the given contexts,
+     * before any inherited entries.
+     *
+     * @param context the contexts
+     * @return true if the holders own entries are exported first
+     */
+    public boolean isOwnEntriesFirst(Contexts context) {
+        return !context.isApplyGroups() || this.plugin.getConfiguration().get(ConfigKeys.INHERITANCE_TRAVERSAL_ALGORITHM) != TraversalAlgorithm.DEPTH_FIRST_POST_ORDER;
+    }
+
     public SortedSet<LocalizedNode> getAllNodes(Contexts context) {
         List<LocalizedNode> entries = getAllEntries(context);
 
@@ -532,7 +640,7 @@ public abstract class PermissionHolder {
         // we don't call events for transient nodes
         boolean transientWork = this.transientNodes.auditTemporaryNodes(null);
 
-        ImmutableCollection<Node> before = getEnduringNodes().values();
+        ImmutableCollection<Node> before = getEnduringNodesForEvent(NodeRemoveEvent.class);
         Set<Node> removed = new HashSet<>();
 
         boolean enduringWork = this.enduringNodes.auditTemporaryNodes(removed);
@@ -541,7 +649,7 @@ public abstract class PermissionHolder {
             invalidateCache();
 
             // call event
-            ImmutableCollection<Node> after = getEnduringNodes().values();
+            ImmutableCollection<Node> after = getEnduringNodesForEvent(NodeRemoveEvent.class);
             for (Node r : removed) {
                 this.plugin.getEventFactory().handleNodeRemove(r, this, before, after);
             }
@@ -554,13 +662,23 @@ public abstract class PermissionHolder {
         return transientWork || enduringWork;
     }
 
-    private Optional<Node> searchForMatch(NodeMapType type, Node node, NodeEqualityPredicate equalityPredicate) {
-        for (Node n : getData(type).immutable().values()) {
-            if (n.equals(node, equalityPredicate)) {
-                return Optional.of(n);
-            }
+    /**
+     * Gets a snapshot of the enduring nodes to pass to an event, or null if
+     * nothing is listening for the event.
+     *
+     * @param eventClass the class of the event
+     * @return a snapshot of the enduring nodes, or null
+     */
+    @Nullable
+    private ImmutableCollection<Node> getEnduringNodesForEvent(Class<? extends NodeMutateEvent> eventClass) {
+        if (!this.plugin.getEventFactory().shouldPost(eventClass)) {
+            return null;
         }
-        return Optional.empty();
+        return getEnduringNodes().values();
+    }
+
+    private Optional<Node> searchForMatch(NodeMapType type, Node node, NodeEqualityPredicate equalityPredicate) {
+        return getData(type).searchForMatch(node, equalityPredicate);
     }
 
     /**
@@ -633,10 +751,10 @@ public abstract class PermissionHolder {
             return DataMutateResult.ALREADY_HAS;
         }
 
-        ImmutableCollection<Node> before = getEnduringNodes().values();
+        ImmutableCollection<Node> before = getEnduringNodesForEvent(NodeAddEvent.class);
         this.enduringNodes.add(node);
-        invalidateCache();
-        ImmutableCollection<Node> after = getEnduringNodes().values();
+        invalidateCache(node);
+        ImmutableCollection<Node> after = getEnduringNodesForEvent(NodeAddEvent.class);
 
         this.plugin.getEventFactory().handleNodeAdd(node, this, before, after);
         return DataMutateResult.SUCCESS;
@@ -663,10 +781,10 @@ public abstract class PermissionHolder {
                     Node newNode = node.toBuilder().setExpiry(previous.getExpiryUnixTime() + node.getSecondsTilExpiry()).build();
 
                     // Remove the old node & add the new one.
-                    ImmutableCollection<Node> before = getEnduringNodes().values();
+                    ImmutableCollection<Node> before = getEnduringNodesForEvent(NodeAddEvent.class);
                     this.enduringNodes.replace(newNode, previous);
-                    invalidateCache();
-                    ImmutableCollection<Node> after = getEnduringNodes().values();
+                    invalidateCache(newNode);
+                    ImmutableCollection<Node> after = getEnduringNodesForEvent(NodeAddEvent.class);
 
                     this.plugin.getEventFactory().handleNodeAdd(newNode, this, before, after);
                     return Maps.immutableEntry(DataMutateResult.SUCCESS, newNode);
@@ -683,10 +801,10 @@ public abstract class PermissionHolder {
                     // Only replace if the new expiry time is greater than the old one.
                     if (node.getExpiryUnixTime() > previous.getExpiryUnixTime()) {
 
-                        ImmutableCollection<Node> before = getEnduringNodes().values();
+                        ImmutableCollection<Node> before = getEnduringNodesForEvent(NodeAddEvent.class);
                         this.enduringNodes.replace(node, previous);
-                        invalidateCache();
-                        ImmutableCollection<Node> after = getEnduringNodes().values();
+                        invalidateCache(node);
+                        ImmutableCollection<Node> after = getEnduringNodesForEvent(NodeAddEvent.class);
 
                         this.plugin.getEventFactory().handleNodeAdd(node, this, before, after);
                         return Maps.immutableEntry(DataMutateResult.SUCCESS, node);
@@ -712,7 +830,7 @@ public abstract class PermissionHolder {
         }
 
         this.transientNodes.add(node);
-        invalidateCache();
+        invalidateCache(node);
         return DataMutateResult.SUCCESS;
     }
 
@@ -726,10 +844,10 @@ public abstract class PermissionHolder {
             return DataMutateResult.LACKS;
         }
 
-        ImmutableCollection<Node> before = getEnduringNodes().values();
+        ImmutableCollection<Node> before = getEnduringNodesForEvent(NodeRemoveEvent.class);
         this.enduringNodes.remove(node);
-        invalidateCache();
-        ImmutableCollection<Node> after = getEnduringNodes().values();
+        invalidateCache(node);
+        ImmutableCollection<Node> after = getEnduringNodesForEvent(NodeRemoveEvent.class);
 
         this.plugin.getEventFactory().handleNodeRemove(node, this, before, after);
         return DataMutateResult.SUCCESS;
@@ -746,7 +864,7 @@ public abstract class PermissionHolder {
         }
 
         this.transientNodes.remove(node);
-        invalidateCache();
+        invalidateCache(node);
         return DataMutateResult.SUCCESS;
     }
 
@@ -762,12 +880,13 @@ public abstract class PermissionHolder {
      * Clear all of the holders permission nodes
      */
     public boolean clearNodes() {
-        ImmutableCollection<Node> before = getEnduringNodes().values();
+        int sizeBefore = this.enduringNodes.size();
+        ImmutableCollection<Node> before = getEnduringNodesForEvent(NodeClearEvent.class);
         this.enduringNodes.clear();
         invalidateCache();
-        ImmutableCollection<Node> after = getEnduringNodes().values();
+        ImmutableCollection<Node> after = getEnduringNodesForEvent(NodeClearEvent.class);
 
-        if (before.size() == after.size()) {
+        if (sizeBefore == this.enduringNodes.size()) {
             return false;
         }
 
@@ -776,12 +895,13 @@ public abstract class PermissionHolder {
     }
 
     public boolean clearNodes(ContextSet contextSet) {
-        ImmutableCollection<Node> before = getEnduringNodes().values();
+        int sizeBefore = this.enduringNodes.size();
+        ImmutableCollection<Node> before = getEnduringNodesForEvent(NodeClearEvent.class);
         this.enduringNodes.clear(contextSet);
         invalidateCache();
-        ImmutableCollection<Node> after = getEnduringNodes().values();
+        ImmutableCollection<Node> after = getEnduringNodesForEvent(NodeClearEvent.class);
 
-        if (before.size() == after.size()) {
+        if (sizeBefore == this.enduringNodes.size()) {
             return false;
         }
 
@@ -790,7 +910,7 @@ public abstract class PermissionHolder {
     }
 
     public boolean clearParents(boolean giveDefault) {
-        ImmutableCollection<Node> before = getEnduringNodes().values();
+        ImmutableCollection<Node> before = getEnduringNodesForEvent(NodeClearEvent.class);
 
         if (!this.enduringNodes.removeIf(Node::isGroupNode)) {
             return false;
@@ -800,14 +920,14 @@ public abstract class PermissionHolder {
         }
 
         invalidateCache();
-        ImmutableCollection<Node> after = getEnduringNodes().values();
+        ImmutableCollection<Node> after = getEnduringNodesForEvent(NodeClearEvent.class);
 
         this.plugin.getEventFactory().handleNodeClear(this, before, after);
         return true;
     }
 
     public boolean clearParents(ContextSet contextSet, boolean giveDefault) {
-        ImmutableCollection<Node> before = getEnduringNodes().values();
+        ImmutableCollection<Node> before = getEnduringNodesForEvent(NodeClearEvent.class);
 
         if (!this.enduringNodes.removeIf(contextSet, Node::isGroupNode)) {
             return false;
@@ -817,55 +937,55 @@ public abstract class PermissionHolder {
         }
 
         invalidateCache();
-        ImmutableCollection<Node> after = getEnduringNodes().values();
+        ImmutableCollection<Node> after = getEnduringNodesForEvent(NodeClearEvent.class);
 
         this.plugin.getEventFactory().handleNodeClear(this, before, after);
         return true;
     }
 
     public boolean clearMeta(MetaType type) {
-        ImmutableCollection<Node> before = getEnduringNodes().values();
+        ImmutableCollection<Node> before = getEnduringNodesForEvent(NodeClearEvent.class);
         if (!this.enduringNodes.removeIf(type::matches)) {
             return false;
         }
         invalidateCache();
-        ImmutableCollection<Node> after = getEnduringNodes().values();
+        ImmutableCollection<Node> after = getEnduringNodesForEvent(NodeClearEvent.class);
 
         this.plugin.getEventFactory().handleNodeClear(this, before, after);
         return true;
     }
 
     public boolean clearMeta(MetaType type, ContextSet contextSet) {
-        ImmutableCollection<Node> before = getEnduringNodes().values();
+        ImmutableCollection<Node> before = getEnduringNodesForEvent(NodeClearEvent.class);
         if (!this.enduringNodes.removeIf(contextSet, type::matches)) {
             return false;
         }
         invalidateCache();
-        ImmutableCollection<Node> after = getEnduringNodes().values();
+        ImmutableCollection<Node> after = getEnduringNodesForEvent(NodeClearEvent.class);
 
         this.plugin.getEventFactory().handleNodeClear(this, before, after);
         return true;
     }
 
     public boolean clearMetaKeys(String key, boolean temp) {
-        ImmutableCollection<Node> before = getEnduringNodes().values();
+        ImmutableCollection<Node> before = getEnduringNodesForEvent(NodeClearEvent.class);
         if (!this.enduringNodes.removeIf(n -> n.isMeta() && (n.isTemporary() == temp) && n.getMeta().getKey().equalsIgnoreCase(key))) {
             return false;
         }
         invalidateCache();
-        ImmutableCollection<Node> after = getEnduringNodes().values();
+        ImmutableCollection<Node> after = getEnduringNodesForEvent(NodeClearEvent.class);
 
         this.plugin.getEventFactory().handleNodeClear(this, before, after);
         return true;
     }
 
     public boolean clearMetaKeys(String key, ContextSet contextSet, boolean temp) {
-        ImmutableCollection<Node> before = getEnduringNodes().values();
+        ImmutableCollection<Node> before = getEnduringNodesForEvent(NodeClearEvent.class);
         if (!this.enduringNodes.removeIf(contextSet, n -> n.isMeta() && (n.isTemporary() == temp) && n.getMeta().getKey().equalsIgnoreCase(key))) {
             return false;
         }
         invalidateCache();
-        ImmutableCollection<Node> after = getEnduringNodes().values();
+        ImmutableCollection<Node> after = getEnduringNodesForEvent(NodeClearEvent.class);
 
         this.plugin.getEventFactory().handleNodeClear(this, before, after);
         return true;
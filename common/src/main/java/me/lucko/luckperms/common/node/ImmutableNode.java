@@ -26,6 +26,8 @@
 package me.lucko.luckperms.common.node;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import me.lucko.luckperms.api.Contexts;
 import me.lucko.luckperms.api.Node;
 import me.lucko.luckperms.api.StandardNodeEquality;
@@ -54,11 +56,31 @@ public final class ImmutableNode implements Node {
     public static final char NODE_SEPARATOR = '.';
     public static final int NODE_SEPARATOR_CODE = Character.getNumericValue('.');
 
+    /**
+     * Pool of node instances currently in use.
+     *
+     * Most holders share the same handful of nodes (group membership, common
+     * permissions, default prefixes), so equal nodes built anywhere in the plugin
+     * are collapsed into a single instance. Entries are weakly referenced, and
+     * are dropped once no holder retains them.
+     */
+    private static final Interner<ImmutableNode> INTERNER = Interners.newWeakInterner();
+
+    /**
+     * Returns the canonical instance equal to the given node.
+     *
+     * @param node the node
+     * @return the pooled instance
+     */
+    static ImmutableNode intern(ImmutableNode node) {
+        return INTERNER.intern(node);
+    }
+
     private final String permission;
 
     private final boolean value;
 
-    private boolean override;
+    private final boolean override;
 
     // nullable
     private final String server;
@@ -94,14 +116,21 @@ public final class ImmutableNode implements Node {
 
     private final int hashCode;
 
-    // all nullable
-    private String groupName;
+    // nullable
+    private final String groupName;
     private final int wildcardLevel;
+
+    // the values below are only needed by a few callers, so they are computed
+    // on first access. the computation is idempotent and the results are
+    // immutable, so a racy initialisation is harmless - the volatile flag
+    // publishes the chat meta fields written before it.
+    private volatile boolean chatMetaParsed = false;
+    // all nullable
     private Map.Entry<String, String> meta;
     private Map.Entry<Integer, String> prefix;
     private Map.Entry<Integer, String> suffix;
 
-    private final List<String> resolvedShorthand;
+    private volatile List<String> resolvedShorthand = null;
 
     /**
      * Make an immutable node instance
@@ -135,10 +164,6 @@ public final class ImmutableNode implements Node {
         // define cached state
         this.groupName = NodeFactory.parseGroupNode(this.permission);
         this.wildcardLevel = this.permission.endsWith(WildcardProcessor.WILDCARD_SUFFIX) ? this.permission.chars().filter(num -> num == NODE_SEPARATOR_CODE).sum() : -1;
-        this.meta = NodeFactory.parseMetaNode(this.permission);
-        this.prefix = NodeFactory.parsePrefixNode(this.permission);
-        this.suffix = NodeFactory.parseSuffixNode(this.permission);
-        this.resolvedShorthand = ImmutableList.copyOf(ShorthandParser.parseShorthand(getPermission()));
         this.optServer = Optional.ofNullable(this.server);
         this.optWorld = Optional.ofNullable(this.world);
 
@@ -279,6 +304,7 @@ public final class ImmutableNode implements Node {
 
     @Override
     public boolean isMeta() {
+        parseChatMeta();
         return this.meta != null;
     }
 
@@ -291,6 +317,7 @@ public final class ImmutableNode implements Node {
 
     @Override
     public boolean isPrefix() {
+        parseChatMeta();
         return this.prefix != null;
     }
 
@@ -303,6 +330,7 @@ public final class ImmutableNode implements Node {
 
     @Override
     public boolean isSuffix() {
+        parseChatMeta();
         return this.suffix != null;
     }
 
@@ -313,6 +341,17 @@ public final class ImmutableNode implements Node {
         return this.suffix;
     }
 
+    private void parseChatMeta() {
+        if (this.chatMetaParsed) {
+            return;
+        }
+
+        this.meta = NodeFactory.parseMetaNode(this.permission);
+        this.prefix = NodeFactory.parsePrefixNode(this.permission);
+        this.suffix = NodeFactory.parseSuffixNode(this.permission);
+        this.chatMetaParsed = true;
+    }
+
     @Override
     public boolean shouldApplyWithContext(@Nonnull ContextSet context) {
         return getFullContexts().isSatisfiedBy(context, false);
@@ -321,7 +360,12 @@ public final class ImmutableNode implements Node {
     @Nonnull
     @Override
     public List<String> resolveShorthand() {
-        return this.resolvedShorthand;
+        List<String> shorthand = this.resolvedShorthand;
+        if (shorthand == null) {
+            shorthand = ImmutableList.copyOf(ShorthandParser.parseShorthand(this.permission));
+            this.resolvedShorthand = shorthand;
+        }
+        return shorthand;
     }
 
     @Override
@@ -162,6 +162,6 @@ class NodeBuilder implements Node.Builder {
     @Nonnull
     @Override
     public Node build() {
-        return new ImmutableNode(this.permission, this.value, this.override, this.expireAt, this.server, this.world, this.extraContexts.build());
+        return ImmutableNode.intern(new ImmutableNode(this.permission, this.value, this.override, this.expireAt, this.server, this.world, this.extraContexts.build()));
     }
 }
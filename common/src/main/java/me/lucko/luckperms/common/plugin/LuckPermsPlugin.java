@@ -30,6 +30,7 @@ import me.lucko.luckperms.api.platform.PlatformType;
 import me.lucko.luckperms.common.actionlog.LogDispatcher;
 import me.lucko.luckperms.common.api.LuckPermsApiProvider;
 import me.lucko.luckperms.common.buffers.BufferedRequest;
+import me.lucko.luckperms.common.caching.CalculationScheduler;
 import me.lucko.luckperms.common.caching.handlers.CachedStateManager;
 import me.lucko.luckperms.common.calculators.CalculatorFactory;
 import me.lucko.luckperms.common.commands.CommandManager;
@@ -180,6 +181,13 @@ public interface LuckPermsPlugin {
      */
     InheritanceHandler getInheritanceHandler();
 
+    /**
+     * Gets the scheduler used to recalculate cached data
+     *
+     * @return the calculation scheduler
+     */
+    CalculationScheduler getCalculationScheduler();
+
     /**
      * Gets the cached state manager for the platform.
      *
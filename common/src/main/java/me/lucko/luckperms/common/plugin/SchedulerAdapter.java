@@ -26,6 +26,7 @@
 package me.lucko.luckperms.common.plugin;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
 
 /**
  * A scheduler for running tasks using the systems provided by the platform
@@ -46,6 +47,16 @@ public interface SchedulerAdapter {
      */
     Executor sync();
 
+    /**
+     * Gets a scheduled executor, used to time delayed work such as buffered requests.
+     *
+     * <p>Tasks submitted to the timer should be short, and hand off any real work
+     * to another executor. The timer is shutdown along with this scheduler.</p>
+     *
+     * @return the timer
+     */
+    ScheduledExecutorService timer();
+
     /**
      * Executes a runnable async
      *
@@ -55,10 +55,16 @@ public class StoredHolder implements PrimaryGroupHolder {
 
     @Override
     public void setStoredValue(String storedValue) {
+        String previous = this.storedValue;
         if (storedValue == null || storedValue.isEmpty()) {
             this.storedValue = null;
         } else {
             this.storedValue = storedValue.toLowerCase();
         }
+
+        // the primary group affects the order in which the users parents are inherited
+        if (!Objects.equals(previous, this.storedValue)) {
+            this.user.getChangeLog().recordFullChange();
+        }
     }
 }
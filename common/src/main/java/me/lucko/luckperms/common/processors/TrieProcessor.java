@@ -0,0 +1,225 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.processors;
+
+import me.lucko.luckperms.api.Tristate;
+import me.lucko.luckperms.common.node.ImmutableNode;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Permission Processor which compiles the wildcard permissions in the source map
+ * into a dot-segmented trie.
+ *
+ * <p>Gives the same results as the {@link WildcardProcessor}, and takes its place
+ * in the processor chain, but resolves the most specific wildcard in a single
+ * walk over the permission string, without allocating. Exact matches are left
+ * to the {@link MapProcessor}.</p>
+ */
+public class TrieProcessor extends AbstractPermissionProcessor implements PermissionProcessor {
+    private static final String GLOBAL_WILDCARD_1 = "*";
+    private static final String GLOBAL_WILDCARD_2 = "'*'";
+
+    private TrieNode root = TrieNode.EMPTY;
+
+    @Override
+    public Tristate hasPermission(String permission) {
+        TrieNode node = this.root;
+        Tristate wildcard = Tristate.UNDEFINED;
+
+        int length = permission.length();
+        int start = 0;
+        while (true) {
+            int end = permission.indexOf(ImmutableNode.NODE_SEPARATOR, start);
+            if (end == -1) {
+                end = length;
+            }
+
+            node = node.child(permission, start, end);
+            if (node == null) {
+                break;
+            }
+
+            // the WildcardProcessor never checks the full permission
+            if (end == length) {
+                break;
+            }
+
+            // matches the behaviour of the WildcardProcessor, which ignores
+            // wildcards with an empty prefix
+            if (end != 0 && node.wildcard != Tristate.UNDEFINED) {
+                wildcard = node.wildcard;
+            }
+
+            start = end + 1;
+        }
+
+        if (wildcard != Tristate.UNDEFINED) {
+            return wildcard;
+        }
+
+        return this.root.wildcard;
+    }
+
+    @Override
+    public void refresh() {
+        TrieNode.Builder root = new TrieNode.Builder();
+
+        for (Map.Entry<String, Boolean> e : this.sourceMap.entrySet()) {
+            String key = e.getKey();
+            if (key.endsWith(WildcardProcessor.WILDCARD_SUFFIX)) {
+                String prefix = key.substring(0, key.length() - WildcardProcessor.WILDCARD_SUFFIX.length());
+                root.path(prefix).wildcard = Tristate.fromBoolean(e.getValue());
+            }
+        }
+
+        Tristate global = Tristate.fromNullableBoolean(this.sourceMap.get(GLOBAL_WILDCARD_1));
+        if (global == Tristate.UNDEFINED) {
+            global = Tristate.fromNullableBoolean(this.sourceMap.get(GLOBAL_WILDCARD_2));
+        }
+        root.wildcard = global;
+
+        this.root = root.build();
+    }
+
+    /**
+     * An immutable node within the trie
+     */
+    private static final class TrieNode {
+        private static final String[] NO_SEGMENTS = new String[0];
+        private static final TrieNode[] NO_CHILDREN = new TrieNode[0];
+        private static final TrieNode EMPTY = new TrieNode(NO_SEGMENTS, NO_CHILDREN, Tristate.UNDEFINED);
+
+        /**
+         * The segments of the child nodes, in natural order
+         */
+        private final String[] segments;
+
+        /**
+         * The child nodes, indexed according to {@link #segments}
+         */
+        private final TrieNode[] children;
+
+        /**
+         * The value for a wildcard (path.*) match on this node
+         */
+        private final Tristate wildcard;
+
+        private TrieNode(String[] segments, TrieNode[] children, Tristate wildcard) {
+            this.segments = segments;
+            this.children = children;
+            this.wildcard = wildcard;
+        }
+
+        /**
+         * Gets the child node for the given region of the permission string
+         *
+         * @param permission the permission string
+         * @param start the start index of the segment (inclusive)
+         * @param end the end index of the segment (exclusive)
+         * @return the child, or null if there isn't one
+         */
+        private TrieNode child(String permission, int start, int end) {
+            int low = 0;
+            int high = this.segments.length - 1;
+
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = compare(this.segments[mid], permission, start, end);
+
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return this.children[mid];
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Compares a segment to a region of a string, consistent with {@link String#compareTo(String)}.
+         */
+        private static int compare(String segment, String permission, int start, int end) {
+            int len1 = segment.length();
+            int len2 = end - start;
+            int lim = Math.min(len1, len2);
+
+            for (int i = 0; i < lim; i++) {
+                char c1 = segment.charAt(i);
+                char c2 = permission.charAt(start + i);
+                if (c1 != c2) {
+                    return c1 - c2;
+                }
+            }
+            return len1 - len2;
+        }
+
+        /**
+         * Mutable builder used to construct the trie when the processor is refreshed
+         */
+        private static final class Builder {
+            private final Map<String, Builder> children = new HashMap<>();
+            private Tristate wildcard = Tristate.UNDEFINED;
+
+            private Builder child(String segment) {
+                return this.children.computeIfAbsent(segment, s -> new Builder());
+            }
+
+            private Builder path(String path) {
+                Builder node = this;
+                int start = 0;
+                while (true) {
+                    int end = path.indexOf(ImmutableNode.NODE_SEPARATOR, start);
+                    if (end == -1) {
+                        return node.child(path.substring(start));
+                    }
+                    node = node.child(path.substring(start, end));
+                    start = end + 1;
+                }
+            }
+
+            private TrieNode build() {
+                if (this.children.isEmpty()) {
+                    return new TrieNode(NO_SEGMENTS, NO_CHILDREN, this.wildcard);
+                }
+
+                String[] segments = this.children.keySet().toArray(new String[0]);
+                Arrays.sort(segments);
+
+                TrieNode[] children = new TrieNode[segments.length];
+                for (int i = 0; i < segments.length; i++) {
+                    children[i] = this.children.get(segments[i]).build();
+                }
+
+                return new TrieNode(segments, children, this.wildcard);
+            }
+        }
+    }
+}
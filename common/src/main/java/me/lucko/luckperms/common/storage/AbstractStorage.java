@@ -29,11 +29,15 @@ import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import me.lucko.luckperms.api.HeldPermission;
 import me.lucko.luckperms.api.LogEntry;
+import me.lucko.luckperms.api.Node;
 import me.lucko.luckperms.api.event.cause.CreationCause;
 import me.lucko.luckperms.api.event.cause.DeletionCause;
 import me.lucko.luckperms.common.actionlog.Log;
+import me.lucko.luckperms.common.actionlog.LogFilter;
+import me.lucko.luckperms.common.actionlog.LogPage;
 import me.lucko.luckperms.common.api.delegates.model.ApiStorage;
 import me.lucko.luckperms.common.bulkupdate.BulkUpdate;
+import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.model.Group;
 import me.lucko.luckperms.common.model.Track;
 import me.lucko.luckperms.common.model.User;
@@ -54,7 +58,10 @@ public class AbstractStorage implements Storage {
     public static Storage create(LuckPermsPlugin plugin, AbstractDao backing) {
         Storage base = new AbstractStorage(plugin, backing);
         Storage phased = PhasedStorage.wrap(base);
-        BufferedOutputStorage buffered = BufferedOutputStorage.wrap(phased, 250L);
+        BufferedOutputStorage buffered = BufferedOutputStorage.wrap(phased, 250L,
+                plugin.getConfiguration().get(ConfigKeys.SAVE_PARALLELISM),
+                plugin.getConfiguration().get(ConfigKeys.SAVE_BACKLOG_LIMIT)
+        );
         plugin.getScheduler().asyncRepeating(buffered, 2L);
         return buffered;
     }
@@ -146,11 +153,21 @@ public class AbstractStorage implements Storage {
         return makeFuture(() -> this.dao.logAction(entry));
     }
 
+    @Override
+    public CompletableFuture<Void> logActions(List<LogEntry> entries) {
+        return makeFuture(() -> this.dao.logActions(entries));
+    }
+
     @Override
     public CompletableFuture<Log> getLog() {
         return makeFuture(this.dao::getLog);
     }
 
+    @Override
+    public CompletableFuture<LogPage> getLogPage(LogFilter filter, int pageNo, int entriesPerPage) {
+        return makeFuture(() -> this.dao.getLogPage(filter, pageNo, entriesPerPage));
+    }
+
     @Override
     public CompletableFuture<Void> applyBulkUpdate(BulkUpdate bulkUpdate) {
         return makeFuture(() -> this.dao.applyBulkUpdate(bulkUpdate));
@@ -161,15 +178,44 @@ public class AbstractStorage implements Storage {
         return makeFuture(() -> {
             User user = this.dao.loadUser(uuid, username);
             if (user != null) {
+                user.getSyncState().reset(user.getEnduringData().asList());
                 this.plugin.getEventFactory().handleUserLoad(user);
             }
             return user;
         });
     }
 
+    @Override
+    public CompletableFuture<Map<UUID, User>> loadUsers(Collection<UUID> uuids) {
+        return makeFuture(() -> {
+            Map<UUID, User> users = this.dao.loadUsers(uuids);
+            for (User user : users.values()) {
+                user.getSyncState().reset(user.getEnduringData().asList());
+                this.plugin.getEventFactory().handleUserLoad(user);
+            }
+            return users;
+        });
+    }
+
     @Override
     public CompletableFuture<Void> saveUser(User user) {
-        return makeFuture(() -> this.dao.saveUser(user));
+        return makeFuture(() -> {
+            List<Node> nodes = user.getEnduringData().asList();
+            this.dao.saveUser(user);
+            user.getSyncState().markSaved(nodes);
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> saveUsers(Collection<User> users) {
+        return makeFuture(() -> {
+            Map<User, List<Node>> nodes = new HashMap<>();
+            for (User user : users) {
+                nodes.put(user, user.getEnduringData().asList());
+            }
+            this.dao.saveUsers(users);
+            nodes.forEach((user, n) -> user.getSyncState().markSaved(n));
+        });
     }
 
     @Override
@@ -191,6 +237,7 @@ public class AbstractStorage implements Storage {
         return makeFuture(() -> {
             Group group = this.dao.createAndLoadGroup(name);
             if (group != null) {
+                group.getSyncState().reset(group.getEnduringData().asList());
                 this.plugin.getEventFactory().handleGroupCreate(group, cause);
             }
             return group;
@@ -202,6 +249,7 @@ public class AbstractStorage implements Storage {
         return makeFuture(() -> {
             Optional<Group> group = this.dao.loadGroup(name);
             if (group.isPresent()) {
+                group.get().getSyncState().reset(group.get().getEnduringData().asList());
                 this.plugin.getEventFactory().handleGroupLoad(group.get());
             }
             return group;
@@ -212,13 +260,32 @@ public class AbstractStorage implements Storage {
     public CompletableFuture<Void> loadAllGroups() {
         return makeFuture(() -> {
             this.dao.loadAllGroups();
+            for (Group group : this.plugin.getGroupManager().getAll().values()) {
+                group.getSyncState().reset(group.getEnduringData().asList());
+            }
             this.plugin.getEventFactory().handleGroupLoadAll();
         });
     }
 
     @Override
     public CompletableFuture<Void> saveGroup(Group group) {
-        return makeFuture(() -> this.dao.saveGroup(group));
+        return makeFuture(() -> {
+            List<Node> nodes = group.getEnduringData().asList();
+            this.dao.saveGroup(group);
+            group.getSyncState().markSaved(nodes);
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> saveGroups(Collection<Group> groups) {
+        return makeFuture(() -> {
+            Map<Group, List<Node>> nodes = new HashMap<>();
+            for (Group group : groups) {
+                nodes.put(group, group.getEnduringData().asList());
+            }
+            this.dao.saveGroups(groups);
+            nodes.forEach((group, n) -> group.getSyncState().markSaved(n));
+        });
     }
 
     @Override
@@ -30,6 +30,8 @@ import me.lucko.luckperms.api.LogEntry;
 import me.lucko.luckperms.api.event.cause.CreationCause;
 import me.lucko.luckperms.api.event.cause.DeletionCause;
 import me.lucko.luckperms.common.actionlog.Log;
+import me.lucko.luckperms.common.actionlog.LogFilter;
+import me.lucko.luckperms.common.actionlog.LogPage;
 import me.lucko.luckperms.common.api.delegates.model.ApiStorage;
 import me.lucko.luckperms.common.bulkupdate.BulkUpdate;
 import me.lucko.luckperms.common.model.Group;
@@ -61,14 +63,22 @@ public interface Storage {
 
     CompletableFuture<Void> logAction(LogEntry entry);
 
+    CompletableFuture<Void> logActions(List<LogEntry> entries);
+
     CompletableFuture<Log> getLog();
 
+    CompletableFuture<LogPage> getLogPage(LogFilter filter, int pageNo, int entriesPerPage);
+
     CompletableFuture<Void> applyBulkUpdate(BulkUpdate bulkUpdate);
 
     CompletableFuture<User> loadUser(UUID uuid, String username);
 
+    CompletableFuture<Map<UUID, User>> loadUsers(Collection<UUID> uuids);
+
     CompletableFuture<Void> saveUser(User user);
 
+    CompletableFuture<Void> saveUsers(Collection<User> users);
+
     CompletableFuture<Set<UUID>> getUniqueUsers();
 
     CompletableFuture<List<HeldPermission<UUID>>> getUsersWithPermission(String permission);
@@ -81,6 +91,8 @@ public interface Storage {
 
     CompletableFuture<Void> saveGroup(Group group);
 
+    CompletableFuture<Void> saveGroups(Collection<Group> groups);
+
     CompletableFuture<Void> deleteGroup(Group group, DeletionCause cause);
 
     CompletableFuture<List<HeldPermission<String>>> getGroupsWithPermission(String permission);
@@ -27,7 +27,10 @@ package me.lucko.luckperms.common.storage.dao;
 
 import me.lucko.luckperms.api.HeldPermission;
 import me.lucko.luckperms.api.LogEntry;
+import me.lucko.luckperms.common.actionlog.ExtendedLogEntry;
 import me.lucko.luckperms.common.actionlog.Log;
+import me.lucko.luckperms.common.actionlog.LogFilter;
+import me.lucko.luckperms.common.actionlog.LogPage;
 import me.lucko.luckperms.common.bulkupdate.BulkUpdate;
 import me.lucko.luckperms.common.model.Group;
 import me.lucko.luckperms.common.model.Track;
@@ -36,6 +39,7 @@ import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 
 import javax.annotation.Nullable;
 import java.util.*;
+import java.util.stream.Collectors;
 
 public abstract class AbstractDao {
 
@@ -65,14 +69,81 @@ public abstract class AbstractDao {
 
     public abstract void logAction(LogEntry entry) throws Exception;
 
+    /**
+     * Logs a number of actions.
+     *
+     * <p>Implementations which are able to should override this to write the
+     * entries together.</p>
+     *
+     * @param entries the entries to log
+     * @throws Exception if an exception occurs
+     */
+    public void logActions(List<LogEntry> entries) throws Exception {
+        for (LogEntry entry : entries) {
+            logAction(entry);
+        }
+    }
+
     public abstract Log getLog() throws Exception;
 
+    /**
+     * Gets a page of the entries in the action log which match a filter.
+     *
+     * <p>Implementations which are able to should override this to query
+     * only the entries on the page, rather than reading the whole log.</p>
+     *
+     * @param filter the filter
+     * @param pageNo the page number, or {@link LogPage#LATEST}
+     * @param entriesPerPage the number of entries on each page
+     * @return the page
+     * @throws Exception if an exception occurs
+     */
+    public LogPage getLogPage(LogFilter filter, int pageNo, int entriesPerPage) throws Exception {
+        SortedSet<ExtendedLogEntry> entries = getLog().getContent().stream()
+                .filter(filter)
+                .collect(Collectors.toCollection(TreeSet::new));
+        return LogPage.of(entries, pageNo, entriesPerPage);
+    }
+
     public abstract void applyBulkUpdate(BulkUpdate bulkUpdate) throws Exception;
 
     public abstract User loadUser(UUID uuid, String username) throws Exception;
 
+    /**
+     * Loads a number of users.
+     *
+     * <p>Implementations which are able to should override this to load the
+     * users in bulk.</p>
+     *
+     * @param uuids the uuids of the users to load
+     * @return the loaded users
+     * @throws Exception if an exception occurs
+     */
+    public Map<UUID, User> loadUsers(Collection<UUID> uuids) throws Exception {
+        Map<UUID, User> users = new HashMap<>();
+        for (UUID uuid : uuids) {
+            users.put(uuid, loadUser(uuid, null));
+        }
+        return users;
+    }
+
     public abstract void saveUser(User user) throws Exception;
 
+    /**
+     * Saves a number of users.
+     *
+     * <p>Implementations which are able to should override this to save the
+     * users together.</p>
+     *
+     * @param users the users to save
+     * @throws Exception if an exception occurs
+     */
+    public void saveUsers(Collection<User> users) throws Exception {
+        for (User user : users) {
+            saveUser(user);
+        }
+    }
+
     public abstract Set<UUID> getUniqueUsers() throws Exception;
 
     public abstract List<HeldPermission<UUID>> getUsersWithPermission(String permission) throws Exception;
@@ -85,6 +156,21 @@ public abstract class AbstractDao {
 
     public abstract void saveGroup(Group group) throws Exception;
 
+    /**
+     * Saves a number of groups.
+     *
+     * <p>Implementations which are able to should override this to save the
+     * groups together.</p>
+     *
+     * @param groups the groups to save
+     * @throws Exception if an exception occurs
+     */
+    public void saveGroups(Collection<Group> groups) throws Exception {
+        for (Group group : groups) {
+            saveGroup(group);
+        }
+    }
+
     public abstract void deleteGroup(Group group) throws Exception;
 
     public abstract List<HeldPermission<String>> getGroupsWithPermission(String permission) throws Exception;
@@ -29,6 +29,8 @@ import com.google.common.collect.ImmutableMap;
 import me.lucko.luckperms.api.HeldPermission;
 import me.lucko.luckperms.api.LogEntry;
 import me.lucko.luckperms.common.actionlog.Log;
+import me.lucko.luckperms.common.actionlog.LogFilter;
+import me.lucko.luckperms.common.actionlog.LogPage;
 import me.lucko.luckperms.common.bulkupdate.BulkUpdate;
 import me.lucko.luckperms.common.model.Group;
 import me.lucko.luckperms.common.model.Track;
@@ -91,11 +93,21 @@ public class SplitStorageDao extends AbstractDao {
         this.backing.get(this.types.get(SplitStorageType.LOG)).logAction(entry);
     }
 
+    @Override
+    public void logActions(List<LogEntry> entries) throws Exception {
+        this.backing.get(this.types.get(SplitStorageType.LOG)).logActions(entries);
+    }
+
     @Override
     public Log getLog() throws Exception {
         return this.backing.get(this.types.get(SplitStorageType.LOG)).getLog();
     }
 
+    @Override
+    public LogPage getLogPage(LogFilter filter, int pageNo, int entriesPerPage) throws Exception {
+        return this.backing.get(this.types.get(SplitStorageType.LOG)).getLogPage(filter, pageNo, entriesPerPage);
+    }
+
     @Override
     public void applyBulkUpdate(BulkUpdate bulkUpdate) throws Exception {
         StorageType userType = this.types.get(SplitStorageType.USER);
@@ -114,11 +126,21 @@ public class SplitStorageDao extends AbstractDao {
         return this.backing.get(this.types.get(SplitStorageType.USER)).loadUser(uuid, username);
     }
 
+    @Override
+    public Map<UUID, User> loadUsers(Collection<UUID> uuids) throws Exception {
+        return this.backing.get(this.types.get(SplitStorageType.USER)).loadUsers(uuids);
+    }
+
     @Override
     public void saveUser(User user) throws Exception {
         this.backing.get(this.types.get(SplitStorageType.USER)).saveUser(user);
     }
 
+    @Override
+    public void saveUsers(Collection<User> users) throws Exception {
+        this.backing.get(this.types.get(SplitStorageType.USER)).saveUsers(users);
+    }
+
     @Override
     public Set<UUID> getUniqueUsers() throws Exception {
         return this.backing.get(this.types.get(SplitStorageType.USER)).getUniqueUsers();
@@ -149,6 +171,11 @@ public class SplitStorageDao extends AbstractDao {
         this.backing.get(this.types.get(SplitStorageType.GROUP)).saveGroup(group);
     }
 
+    @Override
+    public void saveGroups(Collection<Group> groups) throws Exception {
+        this.backing.get(this.types.get(SplitStorageType.GROUP)).saveGroups(groups);
+    }
+
     @Override
     public void deleteGroup(Group group) throws Exception {
         this.backing.get(this.types.get(SplitStorageType.GROUP)).deleteGroup(group);
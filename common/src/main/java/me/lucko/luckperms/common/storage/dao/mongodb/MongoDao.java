@@ -30,6 +30,9 @@ import com.mongodb.*;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Sorts;
 import com.mongodb.client.model.UpdateOptions;
 import me.lucko.luckperms.api.HeldPermission;
 import me.lucko.luckperms.api.LogEntry;
@@ -39,6 +42,8 @@ import me.lucko.luckperms.api.context.ImmutableContextSet;
 import me.lucko.luckperms.api.context.MutableContextSet;
 import me.lucko.luckperms.common.actionlog.ExtendedLogEntry;
 import me.lucko.luckperms.common.actionlog.Log;
+import me.lucko.luckperms.common.actionlog.LogFilter;
+import me.lucko.luckperms.common.actionlog.LogPage;
 import me.lucko.luckperms.common.bulkupdate.BulkUpdate;
 import me.lucko.luckperms.common.managers.group.GroupManager;
 import me.lucko.luckperms.common.managers.track.TrackManager;
@@ -60,6 +65,11 @@ import java.util.stream.Collectors;
 
 public class MongoDao extends AbstractDao {
 
+    /**
+     * The maximum number of users to load (and hold the IO locks of) in a single query.
+     */
+    private static final int USER_LOAD_BATCH_SIZE = 500;
+
     private final StorageCredentials configuration;
     private MongoClient mongoClient;
     private MongoDatabase database;
@@ -100,6 +110,17 @@ public class MongoDao extends AbstractDao {
         }
         
         this.database = this.mongoClient.getDatabase(this.configuration.getDatabase());
+
+        // indexes used when querying pages of the action log
+        try {
+            MongoCollection<Document> c = this.database.getCollection(this.prefix + "action");
+            IndexOptions options = new IndexOptions().background(true);
+            c.createIndex(Indexes.descending("timestamp"), options);
+            c.createIndex(Indexes.ascending("actor"), options);
+            c.createIndex(Indexes.ascending("acted"), options);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
     }
 
     @Override
@@ -135,6 +156,20 @@ public class MongoDao extends AbstractDao {
     @Override
     public void logAction(LogEntry entry) {
         MongoCollection<Document> c = this.database.getCollection(this.prefix + "action");
+        c.insertOne(logEntryToDoc(entry));
+    }
+
+    @Override
+    public void logActions(List<LogEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        MongoCollection<Document> c = this.database.getCollection(this.prefix + "action");
+        c.insertMany(entries.stream().map(MongoDao::logEntryToDoc).collect(Collectors.toList()));
+    }
+
+    private static Document logEntryToDoc(LogEntry entry) {
         Document doc = new Document()
                 .append("timestamp", entry.getTimestamp())
                 .append("actor", entry.getActor())
@@ -147,7 +182,7 @@ public class MongoDao extends AbstractDao {
             doc.append("acted", entry.getActed().get());
         }
 
-        c.insertOne(doc);
+        return doc;
     }
 
     @Override
@@ -156,27 +191,59 @@ public class MongoDao extends AbstractDao {
         MongoCollection<Document> c = this.database.getCollection(this.prefix + "action");
         try (MongoCursor<Document> cursor = c.find().iterator()) {
             while (cursor.hasNext()) {
-                Document d = cursor.next();
+                log.add(logEntryFromDoc(cursor.next()));
+            }
+        }
+        return log.build();
+    }
 
-                UUID actedUuid = null;
-                if (d.containsKey("acted")) {
-                    actedUuid = d.get("acted", UUID.class);
-                }
+    @Override
+    public LogPage getLogPage(LogFilter filter, int pageNo, int entriesPerPage) {
+        MongoCollection<Document> c = this.database.getCollection(this.prefix + "action");
+
+        Document query = new Document();
+        filter.getActor().ifPresent(actor -> query.append("actor", actor));
+        filter.getType().ifPresent(type -> query.append("type", Character.toString(type.getCode())));
+        filter.getActed().ifPresent(acted -> query.append("acted", acted));
+        filter.getActedName().ifPresent(actedName -> query.append("actedName", actedName));
 
-                ExtendedLogEntry e = ExtendedLogEntry.build()
-                        .timestamp(d.getLong("timestamp"))
-                        .actor(d.get("actor", UUID.class))
-                        .actorName(d.getString("actorName"))
-                        .type(LogEntry.Type.valueOf(d.getString("type").toCharArray()[0]))
-                        .acted(actedUuid)
-                        .actedName(d.getString("actedName"))
-                        .action(d.getString("action"))
-                        .build();
+        int totalEntries = (int) c.count(query);
+
+        pageNo = LogPage.resolvePageNo(pageNo, totalEntries, entriesPerPage);
+        if (!LogPage.isInRange(pageNo, totalEntries, entriesPerPage)) {
+            return LogPage.of(Collections.emptyList(), pageNo, totalEntries, entriesPerPage);
+        }
 
-                log.add(e);
+        // read back from the most recent entry, so that the latest pages are the quickest to reach
+        List<ExtendedLogEntry> entries = new ArrayList<>();
+        try (MongoCursor<Document> cursor = c.find(query)
+                .sort(Sorts.descending("timestamp"))
+                .skip(LogPage.getOffsetFromLatest(pageNo, totalEntries, entriesPerPage))
+                .limit(LogPage.getPageSize(pageNo, totalEntries, entriesPerPage))
+                .iterator()) {
+            while (cursor.hasNext()) {
+                entries.add(logEntryFromDoc(cursor.next()));
             }
         }
-        return log.build();
+
+        return LogPage.of(entries, pageNo, totalEntries, entriesPerPage);
+    }
+
+    private static ExtendedLogEntry logEntryFromDoc(Document d) {
+        UUID actedUuid = null;
+        if (d.containsKey("acted")) {
+            actedUuid = d.get("acted", UUID.class);
+        }
+
+        return ExtendedLogEntry.build()
+                .timestamp(d.getLong("timestamp"))
+                .actor(d.get("actor", UUID.class))
+                .actorName(d.getString("actorName"))
+                .type(LogEntry.Type.valueOf(d.getString("type").toCharArray()[0]))
+                .acted(actedUuid)
+                .actedName(d.getString("actedName"))
+                .action(d.getString("action"))
+                .build();
     }
 
     @Override
@@ -239,38 +306,102 @@ public class MongoDao extends AbstractDao {
         try {
             MongoCollection<Document> c = this.database.getCollection(this.prefix + "users");
             try (MongoCursor<Document> cursor = c.find(new Document("_id", user.getUuid())).iterator()) {
-                if (cursor.hasNext()) {
-                    // User exists, let's load.
-                    Document d = cursor.next();
+                applyUserData(c, user, cursor.hasNext() ? cursor.next() : null);
+            }
+        } finally {
+            user.getIoLock().unlock();
+        }
+        user.getRefreshBuffer().requestDirectly();
+        return user;
+    }
 
-                    String name = d.getString("name");
-                    user.getPrimaryGroup().setStoredValue(d.getString("primaryGroup"));
+    @Override
+    public Map<UUID, User> loadUsers(Collection<UUID> uuids) {
+        // sort the users, so that their locks are always acquired in the same order
+        List<UUID> sorted = new ArrayList<>(new TreeSet<>(uuids));
+
+        Map<UUID, User> users = new HashMap<>();
+        for (int i = 0; i < sorted.size(); i += USER_LOAD_BATCH_SIZE) {
+            List<User> batch = new ArrayList<>();
+            for (UUID uuid : sorted.subList(i, Math.min(i + USER_LOAD_BATCH_SIZE, sorted.size()))) {
+                batch.add(this.plugin.getUserManager().getOrMake(UserIdentifier.of(uuid, null)));
+            }
 
-                    Set<Node> nodes = nodesFromDoc(d).stream().map(NodeModel::toNode).collect(Collectors.toSet());
-                    user.setEnduringNodes(nodes);
-                    user.setName(name, true);
+            loadUserBatch(batch);
+            for (User user : batch) {
+                users.put(user.getUuid(), user);
+            }
+        }
+        return users;
+    }
 
-                    boolean save = this.plugin.getUserManager().giveDefaultIfNeeded(user, false);
-                    if (user.getName().isPresent() && (name == null || !user.getName().get().equalsIgnoreCase(name))) {
-                        save = true;
-                    }
+    private void loadUserBatch(List<User> batch) {
+        int locked = 0;
+        try {
+            for (User user : batch) {
+                user.getIoLock().lock();
+                locked++;
+            }
 
-                    if (save | user.auditTemporaryPermissions()) {
-                        c.replaceOne(new Document("_id", user.getUuid()), userToDoc(user));
-                    }
-                } else {
-                    if (this.plugin.getUserManager().shouldSave(user)) {
-                        user.clearNodes();
-                        user.getPrimaryGroup().setStoredValue(null);
-                        this.plugin.getUserManager().giveDefaultIfNeeded(user, false);
-                    }
+            List<UUID> uuids = batch.stream().map(User::getUuid).collect(Collectors.toList());
+
+            MongoCollection<Document> c = this.database.getCollection(this.prefix + "users");
+            Map<UUID, Document> docs = new HashMap<>();
+            try (MongoCursor<Document> cursor = c.find(new Document("_id", new Document("$in", uuids))).iterator()) {
+                while (cursor.hasNext()) {
+                    Document d = cursor.next();
+                    docs.put(d.get("_id", UUID.class), d);
                 }
             }
+
+            for (User user : batch) {
+                applyUserData(c, user, docs.get(user.getUuid()));
+            }
         } finally {
-            user.getIoLock().unlock();
+            for (int i = 0; i < locked; i++) {
+                batch.get(i).getIoLock().unlock();
+            }
+        }
+
+        for (User user : batch) {
+            user.getRefreshBuffer().requestDirectly();
+        }
+    }
+
+    /**
+     * Applies the data loaded from storage to a user.
+     *
+     * <p>The caller must hold the users IO lock.</p>
+     *
+     * @param c the users collection
+     * @param user the user
+     * @param d the users document, or null if they have no data in storage
+     */
+    private void applyUserData(MongoCollection<Document> c, User user, Document d) {
+        if (d != null) {
+            // User exists, let's load.
+            String name = d.getString("name");
+            user.getPrimaryGroup().setStoredValue(d.getString("primaryGroup"));
+
+            Set<Node> nodes = nodesFromDoc(d).stream().map(NodeModel::toNode).collect(Collectors.toSet());
+            user.setEnduringNodes(nodes);
+            user.setName(name, true);
+
+            boolean save = this.plugin.getUserManager().giveDefaultIfNeeded(user, false);
+            if (user.getName().isPresent() && (name == null || !user.getName().get().equalsIgnoreCase(name))) {
+                save = true;
+            }
+
+            if (save | user.auditTemporaryPermissions()) {
+                c.replaceOne(new Document("_id", user.getUuid()), userToDoc(user));
+            }
+        } else {
+            if (this.plugin.getUserManager().shouldSave(user)) {
+                user.clearNodes();
+                user.getPrimaryGroup().setStoredValue(null);
+                this.plugin.getUserManager().giveDefaultIfNeeded(user, false);
+            }
         }
-        user.getRefreshBuffer().requestDirectly();
-        return user;
     }
 
     @Override
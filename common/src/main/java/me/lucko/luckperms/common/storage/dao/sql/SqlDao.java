@@ -25,7 +25,10 @@
 
 package me.lucko.luckperms.common.storage.dao.sql;
 
-import com.google.common.collect.Maps;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 import me.lucko.luckperms.api.HeldPermission;
@@ -33,11 +36,14 @@ import me.lucko.luckperms.api.LogEntry;
 import me.lucko.luckperms.api.Node;
 import me.lucko.luckperms.common.actionlog.ExtendedLogEntry;
 import me.lucko.luckperms.common.actionlog.Log;
+import me.lucko.luckperms.common.actionlog.LogFilter;
+import me.lucko.luckperms.common.actionlog.LogPage;
 import me.lucko.luckperms.common.bulkupdate.BulkUpdate;
 import me.lucko.luckperms.common.contexts.ContextSetJsonSerializer;
 import me.lucko.luckperms.common.managers.group.GroupManager;
 import me.lucko.luckperms.common.managers.track.TrackManager;
 import me.lucko.luckperms.common.model.Group;
+import me.lucko.luckperms.common.model.PermissionHolder;
 import me.lucko.luckperms.common.model.Track;
 import me.lucko.luckperms.common.model.User;
 import me.lucko.luckperms.common.node.NodeFactory;
@@ -47,6 +53,7 @@ import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.references.UserIdentifier;
 import me.lucko.luckperms.common.storage.dao.AbstractDao;
 import me.lucko.luckperms.common.storage.dao.sql.connection.AbstractConnectionFactory;
+import me.lucko.luckperms.common.storage.dao.sql.connection.file.H2ConnectionFactory;
 import me.lucko.luckperms.common.storage.dao.sql.connection.file.SQLiteConnectionFactory;
 import me.lucko.luckperms.common.storage.dao.sql.connection.hikari.PostgreConnectionFactory;
 
@@ -65,14 +72,22 @@ import java.util.stream.Collectors;
 public class SqlDao extends AbstractDao {
     private static final Type LIST_STRING_TYPE = new TypeToken<List<String>>(){}.getType();
 
-    private static final String USER_PERMISSIONS_SELECT = "SELECT permission, value, server, world, expiry, contexts FROM {prefix}user_permissions WHERE uuid=?";
-    private static final String USER_PERMISSIONS_DELETE_SPECIFIC = "DELETE FROM {prefix}user_permissions WHERE uuid=? AND permission=? AND value=? AND server=? AND world=? AND expiry=? AND contexts=?";
+    /**
+     * The maximum number of users to load in a single query. (kept below the
+     * bound parameter limit of the supported databases)
+     */
+    private static final int USER_LOAD_BATCH_SIZE = 500;
+
+    private static final String USER_PERMISSIONS_SELECT = "SELECT id, permission, value, server, world, expiry, contexts FROM {prefix}user_permissions WHERE uuid=?";
+    private static final String USER_PERMISSIONS_SELECT_MULTIPLE = "SELECT id, uuid, permission, value, server, world, expiry, contexts FROM {prefix}user_permissions WHERE uuid IN ({uuids})";
     private static final String USER_PERMISSIONS_DELETE = "DELETE FROM {prefix}user_permissions WHERE uuid=?";
+    private static final String USER_PERMISSIONS_DELETE_ID = "DELETE FROM {prefix}user_permissions WHERE id=?";
     private static final String USER_PERMISSIONS_INSERT = "INSERT INTO {prefix}user_permissions(uuid, permission, value, server, world, expiry, contexts) VALUES(?, ?, ?, ?, ?, ?, ?)";
     private static final String USER_PERMISSIONS_SELECT_DISTINCT = "SELECT DISTINCT uuid FROM {prefix}user_permissions";
     private static final String USER_PERMISSIONS_SELECT_PERMISSION = "SELECT uuid, value, server, world, expiry, contexts FROM {prefix}user_permissions WHERE permission=?";
 
-    private static final String PLAYER_SELECT = "SELECT username, primary_group FROM {prefix}players WHERE uuid=?";
+    private static final String PLAYER_SELECT_WITH_PERMISSIONS = "SELECT p.username, p.primary_group, up.id, up.permission, up.value, up.server, up.world, up.expiry, up.contexts FROM (SELECT CAST(? AS CHAR(36)) AS uuid) k LEFT JOIN {prefix}players p ON p.uuid=k.uuid LEFT JOIN {prefix}user_permissions up ON up.uuid=k.uuid";
+    private static final String PLAYER_SELECT_MULTIPLE = "SELECT uuid, username, primary_group FROM {prefix}players WHERE uuid IN ({uuids})";
     private static final String PLAYER_SELECT_UUID = "SELECT uuid FROM {prefix}players WHERE username=? LIMIT 1";
     private static final String PLAYER_SELECT_USERNAME = "SELECT username FROM {prefix}players WHERE uuid=? LIMIT 1";
     private static final String PLAYER_SELECT_PRIMARY_GROUP = "SELECT primary_group FROM {prefix}players WHERE uuid=? LIMIT 1";
@@ -81,9 +96,9 @@ public class SqlDao extends AbstractDao {
     private static final String PLAYER_DELETE = "DELETE FROM {prefix}players WHERE username=? AND NOT uuid=?";
     private static final String PLAYER_UPDATE_PRIMARY_GROUP = "UPDATE {prefix}players SET primary_group=? WHERE uuid=?";
 
-    private static final String GROUP_PERMISSIONS_SELECT = "SELECT permission, value, server, world, expiry, contexts FROM {prefix}group_permissions WHERE name=?";
+    private static final String GROUP_PERMISSIONS_SELECT = "SELECT id, permission, value, server, world, expiry, contexts FROM {prefix}group_permissions WHERE name=?";
     private static final String GROUP_PERMISSIONS_DELETE = "DELETE FROM {prefix}group_permissions WHERE name=?";
-    private static final String GROUP_PERMISSIONS_DELETE_SPECIFIC = "DELETE FROM {prefix}group_permissions WHERE name=? AND permission=? AND value=? AND server=? AND world=? AND expiry=? AND contexts=?";
+    private static final String GROUP_PERMISSIONS_DELETE_ID = "DELETE FROM {prefix}group_permissions WHERE id=?";
     private static final String GROUP_PERMISSIONS_INSERT = "INSERT INTO {prefix}group_permissions(name, permission, value, server, world, expiry, contexts) VALUES(?, ?, ?, ?, ?, ?, ?)";
     private static final String GROUP_PERMISSIONS_SELECT_PERMISSION = "SELECT name, value, server, world, expiry, contexts FROM {prefix}group_permissions WHERE permission=?";
 
@@ -101,12 +116,37 @@ public class SqlDao extends AbstractDao {
     private static final String TRACK_DELETE = "DELETE FROM {prefix}tracks WHERE name=?";
 
     private static final String ACTION_INSERT = "INSERT INTO {prefix}actions(time, actor_uuid, actor_name, type, acted_uuid, acted_name, action) VALUES(?, ?, ?, ?, ?, ?, ?)";
+    private static final String ACTION_INSERT_MULTIPLE = "INSERT INTO {prefix}actions(time, actor_uuid, actor_name, type, acted_uuid, acted_name, action) VALUES {values}";
+    private static final String ACTION_INSERT_VALUES = "(?, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * The maximum number of rows to insert in one statement. Kept low enough to
+     * stay within the parameter limit of older SQLite versions.
+     */
+    private static final int ACTION_INSERT_BATCH_SIZE = 100;
     private static final String ACTION_SELECT_ALL = "SELECT * FROM {prefix}actions";
+    private static final String ACTION_COUNT = "SELECT COUNT(*) FROM {prefix}actions{where}";
+    private static final String ACTION_SELECT_PAGE = "SELECT time, actor_uuid, actor_name, type, acted_uuid, acted_name, action FROM {prefix}actions{where} ORDER BY time DESC, id DESC LIMIT ? OFFSET ?";
+
+    private static final PermissionsTable USER_PERMISSIONS = new PermissionsTable(USER_PERMISSIONS_SELECT, USER_PERMISSIONS_INSERT, USER_PERMISSIONS_DELETE_ID);
+    private static final PermissionsTable GROUP_PERMISSIONS = new PermissionsTable(GROUP_PERMISSIONS_SELECT, GROUP_PERMISSIONS_INSERT, GROUP_PERMISSIONS_DELETE_ID);
 
     private final Gson gson;
     private final AbstractConnectionFactory provider;
     private final Function<String, String> prefix;
 
+    /**
+     * The ids and node hashes of the permission rows last read or written for
+     * each holder.
+     *
+     * <p>This allows holders to be saved by only writing the changes since
+     * they were last loaded or saved, without first reading back the rows
+     * currently in the table.</p>
+     */
+    private final Cache<PermissionHolder, PersistedNodes> persistedNodes = Caffeine.newBuilder()
+            .weakKeys()
+            .build();
+
     public SqlDao(LuckPermsPlugin plugin, AbstractConnectionFactory provider, String prefix) {
         super(plugin, provider.getName());
         this.provider = provider;
@@ -215,18 +255,39 @@ public class SqlDao extends AbstractDao {
     public void logAction(LogEntry entry) throws SQLException {
         try (Connection c = this.provider.getConnection()) {
             try (PreparedStatement ps = c.prepareStatement(this.prefix.apply(ACTION_INSERT))) {
-                ps.setLong(1, entry.getTimestamp());
-                ps.setString(2, entry.getActor().toString());
-                ps.setString(3, entry.getActorName());
-                ps.setString(4, Character.toString(entry.getType().getCode()));
-                ps.setString(5, entry.getActed().map(UUID::toString).orElse("null"));
-                ps.setString(6, entry.getActedName());
-                ps.setString(7, entry.getAction());
+                setActionParameters(ps, 0, entry);
                 ps.execute();
             }
         }
     }
 
+    @Override
+    public void logActions(List<LogEntry> entries) throws SQLException {
+        try (Connection c = this.provider.getConnection()) {
+            for (int i = 0; i < entries.size(); i += ACTION_INSERT_BATCH_SIZE) {
+                List<LogEntry> batch = entries.subList(i, Math.min(i + ACTION_INSERT_BATCH_SIZE, entries.size()));
+                String values = String.join(", ", Collections.nCopies(batch.size(), ACTION_INSERT_VALUES));
+
+                try (PreparedStatement ps = c.prepareStatement(this.prefix.apply(ACTION_INSERT_MULTIPLE.replace("{values}", values)))) {
+                    for (int j = 0; j < batch.size(); j++) {
+                        setActionParameters(ps, j * 7, batch.get(j));
+                    }
+                    ps.execute();
+                }
+            }
+        }
+    }
+
+    private static void setActionParameters(PreparedStatement ps, int offset, LogEntry entry) throws SQLException {
+        ps.setLong(offset + 1, entry.getTimestamp());
+        ps.setString(offset + 2, entry.getActor().toString());
+        ps.setString(offset + 3, entry.getActorName());
+        ps.setString(offset + 4, Character.toString(entry.getType().getCode()));
+        ps.setString(offset + 5, entry.getActed().map(UUID::toString).orElse("null"));
+        ps.setString(offset + 6, entry.getActedName());
+        ps.setString(offset + 7, entry.getAction());
+    }
+
     @Override
     public Log getLog() throws SQLException {
         final Log.Builder log = Log.builder();
@@ -234,18 +295,7 @@ public class SqlDao extends AbstractDao {
             try (PreparedStatement ps = c.prepareStatement(this.prefix.apply(ACTION_SELECT_ALL))) {
                 try (ResultSet rs = ps.executeQuery()) {
                     while (rs.next()) {
-                        final String actedUuid = rs.getString("acted_uuid");
-                        ExtendedLogEntry e = ExtendedLogEntry.build()
-                                .timestamp(rs.getLong("time"))
-                                .actor(UUID.fromString(rs.getString("actor_uuid")))
-                                .actorName(rs.getString("actor_name"))
-                                .type(LogEntry.Type.valueOf(rs.getString("type").toCharArray()[0]))
-                                .acted(actedUuid.equals("null") ? null : UUID.fromString(actedUuid))
-                                .actedName(rs.getString("acted_name"))
-                                .action(rs.getString("action"))
-                                .build();
-                        
-                        log.add(e);
+                        log.add(readLogEntry(rs));
                     }
                 }
             }
@@ -253,6 +303,80 @@ public class SqlDao extends AbstractDao {
         return log.build();
     }
 
+    @Override
+    public LogPage getLogPage(LogFilter filter, int pageNo, int entriesPerPage) throws SQLException {
+        List<String> parameters = new ArrayList<>();
+        String where = buildLogCondition(filter, parameters);
+
+        try (Connection c = this.provider.getConnection()) {
+            int totalEntries;
+            try (PreparedStatement ps = c.prepareStatement(this.prefix.apply(ACTION_COUNT.replace("{where}", where)))) {
+                for (int i = 0; i < parameters.size(); i++) {
+                    ps.setString(i + 1, parameters.get(i));
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    totalEntries = rs.next() ? rs.getInt(1) : 0;
+                }
+            }
+
+            pageNo = LogPage.resolvePageNo(pageNo, totalEntries, entriesPerPage);
+            if (!LogPage.isInRange(pageNo, totalEntries, entriesPerPage)) {
+                return LogPage.of(Collections.emptyList(), pageNo, totalEntries, entriesPerPage);
+            }
+
+            // read back from the most recent entry, so that the latest pages are the quickest to reach
+            List<ExtendedLogEntry> entries = new ArrayList<>();
+            try (PreparedStatement ps = c.prepareStatement(this.prefix.apply(ACTION_SELECT_PAGE.replace("{where}", where)))) {
+                for (int i = 0; i < parameters.size(); i++) {
+                    ps.setString(i + 1, parameters.get(i));
+                }
+                ps.setInt(parameters.size() + 1, LogPage.getPageSize(pageNo, totalEntries, entriesPerPage));
+                ps.setInt(parameters.size() + 2, LogPage.getOffsetFromLatest(pageNo, totalEntries, entriesPerPage));
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        entries.add(readLogEntry(rs));
+                    }
+                }
+            }
+
+            return LogPage.of(entries, pageNo, totalEntries, entriesPerPage);
+        }
+    }
+
+    private static String buildLogCondition(LogFilter filter, List<String> parameters) {
+        List<String> conditions = new ArrayList<>();
+        filter.getActor().ifPresent(actor -> {
+            conditions.add("actor_uuid=?");
+            parameters.add(actor.toString());
+        });
+        filter.getType().ifPresent(type -> {
+            conditions.add("type=?");
+            parameters.add(Character.toString(type.getCode()));
+        });
+        filter.getActed().ifPresent(acted -> {
+            conditions.add("acted_uuid=?");
+            parameters.add(acted.toString());
+        });
+        filter.getActedName().ifPresent(actedName -> {
+            conditions.add("acted_name=?");
+            parameters.add(actedName);
+        });
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+
+    private static ExtendedLogEntry readLogEntry(ResultSet rs) throws SQLException {
+        final String actedUuid = rs.getString("acted_uuid");
+        return ExtendedLogEntry.build()
+                .timestamp(rs.getLong("time"))
+                .actor(UUID.fromString(rs.getString("actor_uuid")))
+                .actorName(rs.getString("actor_name"))
+                .type(LogEntry.Type.valueOf(rs.getString("type").toCharArray()[0]))
+                .acted(actedUuid.equals("null") ? null : UUID.fromString(actedUuid))
+                .actedName(rs.getString("acted_name"))
+                .action(rs.getString("action"))
+                .build();
+    }
+
     @Override
     public void applyBulkUpdate(BulkUpdate bulkUpdate) throws SQLException {
         String queryString = bulkUpdate.buildAsSql();
@@ -272,6 +396,9 @@ public class SqlDao extends AbstractDao {
                 }
             }
         }
+
+        // the rows affected by the update aren't known
+        this.persistedNodes.invalidateAll();
     }
 
     @Override
@@ -279,192 +406,221 @@ public class SqlDao extends AbstractDao {
         User user = this.plugin.getUserManager().getOrMake(UserIdentifier.of(uuid, username));
         user.getIoLock().lock();
         try {
-            List<NodeModel> data = new ArrayList<>();
+            Map<NodeModel, List<Long>> rows = new HashMap<>();
             AtomicReference<String> primaryGroup = new AtomicReference<>(null);
             AtomicReference<String> userName = new AtomicReference<>(null);
 
-            // Collect user permissions
+            // Collect user meta (username & primary group) and permissions in one query.
+            // the player data is repeated on each row, and the permission columns are
+            // null if the user has no permissions.
             try (Connection c = this.provider.getConnection()) {
-                try (PreparedStatement ps = c.prepareStatement(this.prefix.apply(USER_PERMISSIONS_SELECT))) {
+                try (PreparedStatement ps = c.prepareStatement(this.prefix.apply(PLAYER_SELECT_WITH_PERMISSIONS))) {
                     ps.setString(1, user.getUuid().toString());
 
                     try (ResultSet rs = ps.executeQuery()) {
                         while (rs.next()) {
-                            String permission = rs.getString("permission");
-                            boolean value = rs.getBoolean("value");
-                            String server = rs.getString("server");
-                            String world = rs.getString("world");
-                            long expiry = rs.getLong("expiry");
-                            String contexts = rs.getString("contexts");
-                            data.add(deserializeNode(permission, value, server, world, expiry, contexts));
+                            if (userName.get() == null) {
+                                userName.set(rs.getString("username"));
+                                primaryGroup.set(rs.getString("primary_group"));
+                            }
+
+                            if (rs.getString("permission") != null) {
+                                readRow(rs, rows);
+                            }
                         }
                     }
                 }
             }
 
-            // Collect user meta (username & primary group)
-            try (Connection c = this.provider.getConnection()) {
-                try (PreparedStatement ps = c.prepareStatement(this.prefix.apply(PLAYER_SELECT))) {
-                    ps.setString(1, user.getUuid().toString());
+            this.persistedNodes.put(user, PersistedNodes.of(PersistedNodes.UNKNOWN_VERSION, hashRows(rows)));
+            applyUserData(user, rows.keySet(), userName.get(), primaryGroup.get());
+        } finally {
+            user.getIoLock().unlock();
+        }
+        user.getRefreshBuffer().requestDirectly();
+        return user;
+    }
 
-                    try (ResultSet rs = ps.executeQuery()) {
-                        if (rs.next()) {
-                            userName.set(rs.getString("username"));
-                            primaryGroup.set(rs.getString("primary_group"));
-                        }
-                    }
-                }
+
+    @Override
+    public Map<UUID, User> loadUsers(Collection<UUID> uuids) throws SQLException {
+        List<UUID> sorted = new ArrayList<>(new TreeSet<>(uuids));
+
+        Map<UUID, User> users = new HashMap<>();
+        for (int i = 0; i < sorted.size(); i += USER_LOAD_BATCH_SIZE) {
+            List<User> batch = new ArrayList<>();
+            for (UUID uuid : sorted.subList(i, Math.min(i + USER_LOAD_BATCH_SIZE, sorted.size()))) {
+                batch.add(this.plugin.getUserManager().getOrMake(UserIdentifier.of(uuid, null)));
             }
 
-            // update username & primary group
-            String pg = primaryGroup.get();
-            if (pg == null) {
-                pg = NodeFactory.DEFAULT_GROUP_NAME;
+            loadUserBatch(batch);
+            for (User user : batch) {
+                users.put(user.getUuid(), user);
             }
-            user.getPrimaryGroup().setStoredValue(pg);
+        }
+        return users;
+    }
 
-            // Update their username to what was in the storage if the one in the local instance is null
-            user.setName(userName.get(), true);
+    private void loadUserBatch(List<User> batch) throws SQLException {
+        // the users aren't locked while the batch is read, so take note of their
+        // persisted rows, to tell if they're saved or loaded by something else meanwhile
+        List<PersistedNodes> previous = new ArrayList<>(batch.size());
+        for (User user : batch) {
+            previous.add(this.persistedNodes.getIfPresent(user));
+        }
 
-            // If the user has any data in storage
-            if (!data.isEmpty()) {
-                Set<Node> nodes = data.stream().map(NodeModel::toNode).collect(Collectors.toSet());
-                user.setEnduringNodes(nodes);
+        Map<UUID, Map<NodeModel, List<Long>>> rows = new HashMap<>();
+        Map<UUID, String> userNames = new HashMap<>();
+        Map<UUID, String> primaryGroups = new HashMap<>();
 
-                // Save back to the store if data they were given any defaults or had permissions expire
-                if (this.plugin.getUserManager().giveDefaultIfNeeded(user, false) | user.auditTemporaryPermissions()) {
-                    // This should be fine, as the lock will be acquired by the same thread.
-                    saveUser(user);
+        String in = String.join(", ", Collections.nCopies(batch.size(), "?"));
+        try (Connection c = this.provider.getConnection()) {
+            try (PreparedStatement ps = c.prepareStatement(this.prefix.apply(USER_PERMISSIONS_SELECT_MULTIPLE.replace("{uuids}", in)))) {
+                for (int i = 0; i < batch.size(); i++) {
+                    ps.setString(i + 1, batch.get(i).getUuid().toString());
                 }
 
-            } else {
-                // User has no data in storage.
-                if (this.plugin.getUserManager().shouldSave(user)) {
-                    user.clearNodes();
-                    user.getPrimaryGroup().setStoredValue(null);
-                    this.plugin.getUserManager().giveDefaultIfNeeded(user, false);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        UUID uuid = UUID.fromString(rs.getString("uuid"));
+                        readRow(rs, rows.computeIfAbsent(uuid, x -> new HashMap<>()));
+                    }
                 }
             }
-        } finally {
-            user.getIoLock().unlock();
-        }
-        user.getRefreshBuffer().requestDirectly();
-        return user;
-    }
 
-    @Override
-    public void saveUser(User user) throws SQLException {
-        user.getIoLock().lock();
-        try {
-            // Empty data - just delete from the DB.
-            if (!this.plugin.getUserManager().shouldSave(user)) {
-                try (Connection c = this.provider.getConnection()) {
-                    try (PreparedStatement ps = c.prepareStatement(this.prefix.apply(USER_PERMISSIONS_DELETE))) {
-                        ps.setString(1, user.getUuid().toString());
-                        ps.execute();
-                    }
-                    try (PreparedStatement ps = c.prepareStatement(this.prefix.apply(PLAYER_UPDATE_PRIMARY_GROUP))) {
-                        ps.setString(1, NodeFactory.DEFAULT_GROUP_NAME);
-                        ps.setString(2, user.getUuid().toString());
-                        ps.execute();
+            try (PreparedStatement ps = c.prepareStatement(this.prefix.apply(PLAYER_SELECT_MULTIPLE.replace("{uuids}", in)))) {
+                for (int i = 0; i < batch.size(); i++) {
+                    ps.setString(i + 1, batch.get(i).getUuid().toString());
+                }
+
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        UUID uuid = UUID.fromString(rs.getString("uuid"));
+                        userNames.put(uuid, rs.getString("username"));
+                        primaryGroups.put(uuid, rs.getString("primary_group"));
                     }
                 }
-                return;
             }
+        }
 
-            // Get a snapshot of current data.
-            Set<NodeModel> remote = new HashSet<>();
-            try (Connection c = this.provider.getConnection()) {
-                try (PreparedStatement ps = c.prepareStatement(this.prefix.apply(USER_PERMISSIONS_SELECT))) {
-                    ps.setString(1, user.getUuid().toString());
+        for (int i = 0; i < batch.size(); i++) {
+            User user = batch.get(i);
+            UUID uuid = user.getUuid();
 
-                    try (ResultSet rs = ps.executeQuery()) {
-                        while (rs.next()) {
-                            String permission = rs.getString("permission");
-                            boolean value = rs.getBoolean("value");
-                            String server = rs.getString("server");
-                            String world = rs.getString("world");
-                            long expiry = rs.getLong("expiry");
-                            String contexts = rs.getString("contexts");
-                            remote.add(deserializeNode(permission, value, server, world, expiry, contexts));
-                        }
-                    }
+            boolean stale;
+            user.getIoLock().lock();
+            try {
+                stale = this.persistedNodes.getIfPresent(user) != previous.get(i);
+                if (!stale) {
+                    Map<NodeModel, List<Long>> userRows = rows.getOrDefault(uuid, new HashMap<>());
+                    this.persistedNodes.put(user, PersistedNodes.of(PersistedNodes.UNKNOWN_VERSION, hashRows(userRows)));
+                    applyUserData(user, userRows.keySet(), userNames.get(uuid), primaryGroups.get(uuid));
                 }
+            } finally {
+                user.getIoLock().unlock();
             }
 
-            Set<NodeModel> local = user.getEnduringNodes().values().stream().map(NodeModel::fromNode).collect(Collectors.toSet());
-
-            Map.Entry<Set<NodeModel>, Set<NodeModel>> diff = compareSets(local, remote);
+            if (stale) {
+                // the rows read may be out of date, so load the user again by themselves
+                loadUser(uuid, null);
+            } else {
+                user.getRefreshBuffer().requestDirectly();
+            }
+        }
+    }
 
-            Set<NodeModel> toAdd = diff.getKey();
-            Set<NodeModel> toRemove = diff.getValue();
+    /**
+     * Applies the data loaded from storage to a user.
+     *
+     * <p>The caller must hold the users IO lock.</p>
+     *
+     * @param user the user
+     * @param data the users nodes
+     * @param userName the stored username, if any
+     * @param primaryGroup the stored primary group, if any
+     */
+    private void applyUserData(User user, Collection<NodeModel> data, String userName, String primaryGroup) throws SQLException {
+        // update username & primary group
+        user.getPrimaryGroup().setStoredValue(primaryGroup == null ? NodeFactory.DEFAULT_GROUP_NAME : primaryGroup);
+
+        // Update their username to what was in the storage if the one in the local instance is null
+        user.setName(userName, true);
+
+        // If the user has any data in storage
+        if (!data.isEmpty()) {
+            Set<Node> nodes = data.stream().map(NodeModel::toNode).collect(Collectors.toSet());
+            user.setEnduringNodes(nodes);
+
+            // Save back to the store if data they were given any defaults or had permissions expire
+            if (this.plugin.getUserManager().giveDefaultIfNeeded(user, false) | user.auditTemporaryPermissions()) {
+                // This should be fine, as the lock will be acquired by the same thread.
+                saveUser(user);
+            }
 
-            if (!toRemove.isEmpty()) {
-                try (Connection c = this.provider.getConnection()) {
-                    try (PreparedStatement ps = c.prepareStatement(this.prefix.apply(USER_PERMISSIONS_DELETE_SPECIFIC))) {
-                        for (NodeModel nd : toRemove) {
-                            ps.setString(1, user.getUuid().toString());
-                            ps.setString(2, nd.getPermission());
-                            ps.setBoolean(3, nd.getValue());
-                            ps.setString(4, nd.getServer());
-                            ps.setString(5, nd.getWorld());
-                            ps.setLong(6, nd.getExpiry());
-                            ps.setString(7, this.gson.toJson(ContextSetJsonSerializer.serializeContextSet(nd.getContexts())));
-                            ps.addBatch();
-                        }
-                        ps.executeBatch();
-                    }
-                }
+        } else {
+            // User has no data in storage.
+            if (this.plugin.getUserManager().shouldSave(user)) {
+                user.clearNodes();
+                user.getPrimaryGroup().setStoredValue(null);
+                this.plugin.getUserManager().giveDefaultIfNeeded(user, false);
             }
+        }
+    }
 
-            if (!toAdd.isEmpty()) {
-                try (Connection c = this.provider.getConnection()) {
-                    try (PreparedStatement ps = c.prepareStatement(this.prefix.apply(USER_PERMISSIONS_INSERT))) {
-                        for (NodeModel nd : toAdd) {
-                            ps.setString(1, user.getUuid().toString());
-                            ps.setString(2, nd.getPermission());
-                            ps.setBoolean(3, nd.getValue());
-                            ps.setString(4, nd.getServer());
-                            ps.setString(5, nd.getWorld());
-                            ps.setLong(6, nd.getExpiry());
-                            ps.setString(7, this.gson.toJson(ContextSetJsonSerializer.serializeContextSet(nd.getContexts())));
-                            ps.addBatch();
-                        }
-                        ps.executeBatch();
-                    }
-                }
+    @Override
+    public void saveUser(User user) throws SQLException {
+        saveUsers(Collections.singletonList(user));
+    }
+
+    @Override
+    public void saveUsers(Collection<User> users) throws SQLException {
+        List<User> sorted = new ArrayList<>(users);
+        sorted.sort(Comparator.comparing(User::getUuid));
+        writeHolders(sorted, this::writeUser);
+    }
+
+    private void writeUser(Connection c, User user, Map<PermissionHolder, PersistedNodes> written) throws SQLException {
+        // Empty data - just delete from the DB.
+        if (!this.plugin.getUserManager().shouldSave(user)) {
+            try (PreparedStatement ps = c.prepareStatement(this.prefix.apply(USER_PERMISSIONS_DELETE))) {
+                ps.setString(1, user.getUuid().toString());
+                ps.execute();
             }
+            try (PreparedStatement ps = c.prepareStatement(this.prefix.apply(PLAYER_UPDATE_PRIMARY_GROUP))) {
+                ps.setString(1, NodeFactory.DEFAULT_GROUP_NAME);
+                ps.setString(2, user.getUuid().toString());
+                ps.execute();
+            }
+            written.put(user, PersistedNodes.of(PersistedNodes.UNKNOWN_VERSION, Collections.emptyMap()));
+            return;
+        }
 
-            try (Connection c = this.provider.getConnection()) {
-                boolean hasPrimaryGroupSaved;
+        saveNodes(c, user, USER_PERMISSIONS, user.getUuid().toString(), written);
 
-                try (PreparedStatement ps = c.prepareStatement(this.prefix.apply(PLAYER_SELECT_PRIMARY_GROUP))) {
-                    ps.setString(1, user.getUuid().toString());
-                    try (ResultSet rs = ps.executeQuery()) {
-                        hasPrimaryGroupSaved = rs.next();
-                    }
-                }
+        boolean hasPrimaryGroupSaved;
 
-                if (hasPrimaryGroupSaved) {
-                    // update
-                    try (PreparedStatement ps = c.prepareStatement(this.prefix.apply(PLAYER_UPDATE_PRIMARY_GROUP))) {
-                        ps.setString(1, user.getPrimaryGroup().getStoredValue().orElse(NodeFactory.DEFAULT_GROUP_NAME));
-                        ps.setString(2, user.getUuid().toString());
-                        ps.execute();
-                    }
-                } else {
-                    // insert
-                    try (PreparedStatement ps = c.prepareStatement(this.prefix.apply(PLAYER_INSERT))) {
-                        ps.setString(1, user.getUuid().toString());
-                        ps.setString(2, user.getName().orElse("null"));
-                        ps.setString(3, user.getPrimaryGroup().getStoredValue().orElse(NodeFactory.DEFAULT_GROUP_NAME));
-                        ps.execute();
-                    }
-                }
+        try (PreparedStatement ps = c.prepareStatement(this.prefix.apply(PLAYER_SELECT_PRIMARY_GROUP))) {
+            ps.setString(1, user.getUuid().toString());
+            try (ResultSet rs = ps.executeQuery()) {
+                hasPrimaryGroupSaved = rs.next();
+            }
+        }
 
+        if (hasPrimaryGroupSaved) {
+            // update
+            try (PreparedStatement ps = c.prepareStatement(this.prefix.apply(PLAYER_UPDATE_PRIMARY_GROUP))) {
+                ps.setString(1, user.getPrimaryGroup().getStoredValue().orElse(NodeFactory.DEFAULT_GROUP_NAME));
+                ps.setString(2, user.getUuid().toString());
+                ps.execute();
+            }
+        } else {
+            // insert
+            try (PreparedStatement ps = c.prepareStatement(this.prefix.apply(PLAYER_INSERT))) {
+                ps.setString(1, user.getUuid().toString());
+                ps.setString(2, user.getName().orElse("null"));
+                ps.setString(3, user.getPrimaryGroup().getStoredValue().orElse(NodeFactory.DEFAULT_GROUP_NAME));
+                ps.execute();
             }
-        } finally {
-            user.getIoLock().unlock();
         }
     }
 
@@ -558,26 +714,13 @@ public class SqlDao extends AbstractDao {
         Group group = this.plugin.getGroupManager().getOrMake(name);
         group.getIoLock().lock();
         try {
-            List<NodeModel> data = new ArrayList<>();
-
+            Map<NodeModel, List<Long>> rows;
             try (Connection c = this.provider.getConnection()) {
-                try (PreparedStatement ps = c.prepareStatement(this.prefix.apply(GROUP_PERMISSIONS_SELECT))) {
-                    ps.setString(1, group.getName());
-
-                    try (ResultSet rs = ps.executeQuery()) {
-                        while (rs.next()) {
-                            String permission = rs.getString("permission");
-                            boolean value = rs.getBoolean("value");
-                            String server = rs.getString("server");
-                            String world = rs.getString("world");
-                            long expiry = rs.getLong("expiry");
-                            String contexts = rs.getString("contexts");
-                            data.add(deserializeNode(permission, value, server, world, expiry, contexts));
-                        }
-                    }
-                }
+                rows = selectRows(c, GROUP_PERMISSIONS, group.getName());
             }
+            this.persistedNodes.put(group, PersistedNodes.of(PersistedNodes.UNKNOWN_VERSION, hashRows(rows)));
 
+            Set<NodeModel> data = rows.keySet();
             if (!data.isEmpty()) {
                 Set<Node> nodes = data.stream().map(NodeModel::toNode).collect(Collectors.toSet());
                 group.setEnduringNodes(nodes);
@@ -626,84 +769,28 @@ public class SqlDao extends AbstractDao {
 
     @Override
     public void saveGroup(Group group) throws SQLException {
-        group.getIoLock().lock();
-        try {
-            // Empty data, just delete.
-            if (group.getEnduringNodes().isEmpty()) {
-                try (Connection c = this.provider.getConnection()) {
-                    try (PreparedStatement ps = c.prepareStatement(this.prefix.apply(GROUP_PERMISSIONS_DELETE))) {
-                        ps.setString(1, group.getName());
-                        ps.execute();
-                    }
-                }
-                return;
-            }
-
-            // Get a snapshot of current data
-            Set<NodeModel> remote = new HashSet<>();
-            try (Connection c = this.provider.getConnection()) {
-                try (PreparedStatement ps = c.prepareStatement(this.prefix.apply(GROUP_PERMISSIONS_SELECT))) {
-                    ps.setString(1, group.getName());
-
-                    try (ResultSet rs = ps.executeQuery()) {
-                        while (rs.next()) {
-                            String permission = rs.getString("permission");
-                            boolean value = rs.getBoolean("value");
-                            String server = rs.getString("server");
-                            String world = rs.getString("world");
-                            long expiry = rs.getLong("expiry");
-                            String contexts = rs.getString("contexts");
-                            remote.add(deserializeNode(permission, value, server, world, expiry, contexts));
-                        }
-                    }
-                }
-            }
-
-            Set<NodeModel> local = group.getEnduringNodes().values().stream().map(NodeModel::fromNode).collect(Collectors.toSet());
-
-            Map.Entry<Set<NodeModel>, Set<NodeModel>> diff = compareSets(local, remote);
-
-            Set<NodeModel> toAdd = diff.getKey();
-            Set<NodeModel> toRemove = diff.getValue();
+        saveGroups(Collections.singletonList(group));
+    }
 
-            if (!toRemove.isEmpty()) {
-                try (Connection c = this.provider.getConnection()) {
-                    try (PreparedStatement ps = c.prepareStatement(this.prefix.apply(GROUP_PERMISSIONS_DELETE_SPECIFIC))) {
-                        for (NodeModel nd : toRemove) {
-                            ps.setString(1, group.getName());
-                            ps.setString(2, nd.getPermission());
-                            ps.setBoolean(3, nd.getValue());
-                            ps.setString(4, nd.getServer());
-                            ps.setString(5, nd.getWorld());
-                            ps.setLong(6, nd.getExpiry());
-                            ps.setString(7, this.gson.toJson(ContextSetJsonSerializer.serializeContextSet(nd.getContexts())));
-                            ps.addBatch();
-                        }
-                        ps.executeBatch();
-                    }
-                }
-            }
+    @Override
+    public void saveGroups(Collection<Group> groups) throws SQLException {
+        List<Group> sorted = new ArrayList<>(groups);
+        sorted.sort(Comparator.comparing(Group::getName));
+        writeHolders(sorted, this::writeGroup);
+    }
 
-            if (!toAdd.isEmpty()) {
-                try (Connection c = this.provider.getConnection()) {
-                    try (PreparedStatement ps = c.prepareStatement(this.prefix.apply(GROUP_PERMISSIONS_INSERT))) {
-                        for (NodeModel nd : toAdd) {
-                            ps.setString(1, group.getName());
-                            ps.setString(2, nd.getPermission());
-                            ps.setBoolean(3, nd.getValue());
-                            ps.setString(4, nd.getServer());
-                            ps.setString(5, nd.getWorld());
-                            ps.setLong(6, nd.getExpiry());
-                            ps.setString(7, this.gson.toJson(ContextSetJsonSerializer.serializeContextSet(nd.getContexts())));
-                            ps.addBatch();
-                        }
-                        ps.executeBatch();
-                    }
-                }
+    private void writeGroup(Connection c, Group group, Map<PermissionHolder, PersistedNodes> written) throws SQLException {
+        // Empty data, just delete.
+        if (group.getEnduringNodes().isEmpty()) {
+            try (PreparedStatement ps = c.prepareStatement(this.prefix.apply(GROUP_PERMISSIONS_DELETE))) {
+                ps.setString(1, group.getName());
+                ps.execute();
             }
-        } finally {
-            group.getIoLock().unlock();
+            written.put(group, PersistedNodes.of(PersistedNodes.UNKNOWN_VERSION, Collections.emptyMap()));
+            return;
         }
+
+        saveNodes(c, group, GROUP_PERMISSIONS, group.getName(), written);
     }
 
     @Override
@@ -721,6 +808,7 @@ public class SqlDao extends AbstractDao {
                     ps.execute();
                 }
             }
+            this.persistedNodes.invalidate(group);
         } finally {
             group.getIoLock().unlock();
         }
@@ -984,25 +1072,362 @@ public class SqlDao extends AbstractDao {
     }
 
     /**
-     * Compares two sets
-     * @param local the local set
-     * @param remote the remote set
-     * @return the entries to add to remote, and the entries to remove from remote
+     * Writes a number of holders on a single connection, and records the rows
+     * written for each of them.
+     *
+     * <p>Where the connection allows it, the holders are written in a single
+     * transaction. The holders IO locks are held throughout, so the holders
+     * should be given in a consistent order.</p>
+     *
+     * @param holders the holders to write
+     * @param writer the function used to write each holder
      */
-    private static Map.Entry<Set<NodeModel>, Set<NodeModel>> compareSets(Set<NodeModel> local, Set<NodeModel> remote) {
-        // entries in local but not remote need to be added
+    private <T extends PermissionHolder> void writeHolders(List<T> holders, HolderWriter<T> writer) throws SQLException {
+        for (T holder : holders) {
+            holder.getIoLock().lock();
+        }
+        try {
+            Map<PermissionHolder, PersistedNodes> written = new HashMap<>();
+
+            try (Connection c = this.provider.getConnection()) {
+                // the flatfile connections are shared between threads, so can't be used for transactions
+                if (this.provider instanceof SQLiteConnectionFactory || this.provider instanceof H2ConnectionFactory) {
+                    boolean success = false;
+                    try {
+                        for (T holder : holders) {
+                            writer.write(c, holder, written);
+                        }
+                        success = true;
+                    } finally {
+                        this.persistedNodes.putAll(written);
+                        if (!success) {
+                            // the holder which failed may have been partly written
+                            holders.stream().filter(h -> !written.containsKey(h)).forEach(this.persistedNodes::invalidate);
+                        }
+                    }
+                    return;
+                }
+
+                c.setAutoCommit(false);
+                try {
+                    for (T holder : holders) {
+                        writer.write(c, holder, written);
+                    }
+                    c.commit();
+                } catch (SQLException | RuntimeException e) {
+                    try {
+                        c.rollback();
+                    } catch (SQLException ex) {
+                        e.addSuppressed(ex);
+                        // unsure what was written
+                        this.persistedNodes.invalidateAll(holders);
+                    }
+                    throw e;
+                } finally {
+                    c.setAutoCommit(true);
+                }
+            }
+
+            this.persistedNodes.putAll(written);
+        } finally {
+            for (T holder : holders) {
+                holder.getIoLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Saves the enduring nodes of a holder, by applying the changes made since
+     * its rows were last read or written.
+     *
+     * <p>The caller must hold the holders IO lock.</p>
+     *
+     * @param c the connection
+     * @param holder the holder
+     * @param table the table to save to
+     * @param identifier the identifier of the holder in the table
+     * @param written the rows written for each holder, to be recorded once committed
+     */
+    private void saveNodes(Connection c, PermissionHolder holder, PermissionsTable table, String identifier, Map<PermissionHolder, PersistedNodes> written) throws SQLException {
+        // take note of the version before reading the nodes, so that a change
+        // made meanwhile won't be treated as already saved
+        long version = holder.getChangeLog().getVersion();
+
+        PersistedNodes persisted = this.persistedNodes.getIfPresent(holder);
+        if (persisted != null && persisted.version == version) {
+            // nothing has changed since the holder was last saved
+            return;
+        }
+
+        Map<Long, NodeModel> local = new HashMap<>();
+        for (Node node : holder.getEnduringNodes().values()) {
+            NodeModel model = NodeModel.fromNode(node);
+            local.put(hashNode(model), model);
+        }
+
+        Map<Long, List<Long>> rows = persisted == null ? null : persisted.toRows();
+        if (rows != null) {
+            if (!applyChanges(c, table, identifier, local, rows)) {
+                // some of the rows had already been removed by something else, so
+                // the persisted state was out of date. read back the current rows
+                // and apply any remaining changes.
+                rows = hashRows(selectRows(c, table, identifier));
+                applyChanges(c, table, identifier, local, rows);
+            }
+        } else {
+            rows = hashRows(selectRows(c, table, identifier));
+            applyChanges(c, table, identifier, local, rows);
+        }
+
+        written.put(holder, PersistedNodes.of(version, rows));
+    }
+
+    /**
+     * Writes the changes needed to make the given rows match the local nodes.
+     *
+     * @param c the connection
+     * @param table the table
+     * @param identifier the identifier of the holder in the table
+     * @param local the nodes to save, keyed by their hash
+     * @param rows the ids of the current rows, keyed by the hash of their node. updated to reflect the changes
+     * @return false if any of the rows to be removed no longer existed
+     */
+    private boolean applyChanges(Connection c, PermissionsTable table, String identifier, Map<Long, NodeModel> local, Map<Long, List<Long>> rows) throws SQLException {
         // entries in remote but not local need to be removed
+        List<Long> toRemove = rows.keySet().stream().filter(h -> !local.containsKey(h)).collect(Collectors.toList());
 
-        Set<NodeModel> toAdd = new HashSet<>(local);
-        toAdd.removeAll(remote);
+        // entries in local but not remote need to be added
+        List<Long> toAdd = local.keySet().stream().filter(h -> !rows.containsKey(h)).collect(Collectors.toList());
 
-        Set<NodeModel> toRemove = new HashSet<>(remote);
-        toRemove.removeAll(local);
+        boolean consistent = true;
 
-        return Maps.immutableEntry(toAdd, toRemove);
+        if (!toRemove.isEmpty()) {
+            try (PreparedStatement ps = c.prepareStatement(this.prefix.apply(table.deleteById))) {
+                for (long hash : toRemove) {
+                    for (long id : rows.remove(hash)) {
+                        ps.setLong(1, id);
+                        ps.addBatch();
+                    }
+                }
+                for (int count : ps.executeBatch()) {
+                    if (count == 0) {
+                        consistent = false;
+                    }
+                }
+            }
+        }
+
+        if (!toAdd.isEmpty()) {
+            List<Long> keys = new ArrayList<>();
+            try (PreparedStatement ps = c.prepareStatement(this.prefix.apply(table.insert), Statement.RETURN_GENERATED_KEYS)) {
+                for (long hash : toAdd) {
+                    setNodeParameters(ps, identifier, local.get(hash));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+
+                try (ResultSet rs = ps.getGeneratedKeys()) {
+                    while (rs.next()) {
+                        keys.add(rs.getLong(1));
+                    }
+                } catch (SQLException e) {
+                    // not supported by the driver
+                    keys.clear();
+                }
+            }
+
+            // the keys can only be matched up if there is one for each row
+            boolean keysKnown = keys.size() == toAdd.size();
+            for (int i = 0; i < toAdd.size(); i++) {
+                List<Long> ids = new ArrayList<>(1);
+                if (keysKnown) {
+                    ids.add(keys.get(i));
+                }
+                rows.put(toAdd.get(i), ids);
+            }
+        }
+
+        return consistent;
+    }
+
+    private Map<NodeModel, List<Long>> selectRows(Connection c, PermissionsTable table, String identifier) throws SQLException {
+        Map<NodeModel, List<Long>> rows = new HashMap<>();
+        try (PreparedStatement ps = c.prepareStatement(this.prefix.apply(table.select))) {
+            ps.setString(1, identifier);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    readRow(rs, rows);
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Re-keys a set of rows by the hash of their node.
+     *
+     * @param rows the ids of the rows holding each node
+     * @return the ids of the rows, keyed by the hash of their node
+     */
+    private static Map<Long, List<Long>> hashRows(Map<NodeModel, List<Long>> rows) {
+        Map<Long, List<Long>> hashed = new HashMap<>(rows.size());
+        rows.forEach((node, ids) -> hashed.computeIfAbsent(hashNode(node), x -> new ArrayList<>(ids.size())).addAll(ids));
+        return hashed;
+    }
+
+    /**
+     * Calculates a 64 bit hash of a node, used to identify the rows holding it
+     * without keeping a copy of the node.
+     *
+     * @param node the node
+     * @return the hash
+     */
+    private static long hashNode(NodeModel node) {
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+        putString(hasher, node.getPermission());
+        hasher.putBoolean(node.getValue());
+        putString(hasher, node.getServer());
+        putString(hasher, node.getWorld());
+        hasher.putLong(node.getExpiry());
+
+        // sorted, so equal context sets always give the same hash
+        List<Map.Entry<String, String>> contexts = new ArrayList<>(node.getContexts().toSet());
+        contexts.sort((o1, o2) -> {
+            int i = o1.getKey().compareTo(o2.getKey());
+            return i != 0 ? i : o1.getValue().compareTo(o2.getValue());
+        });
+
+        hasher.putInt(contexts.size());
+        for (Map.Entry<String, String> context : contexts) {
+            putString(hasher, context.getKey());
+            putString(hasher, context.getValue());
+        }
+        return hasher.hash().asLong();
+    }
+
+    private static void putString(Hasher hasher, String s) {
+        s = String.valueOf(s);
+        hasher.putInt(s.length());
+        hasher.putString(s, StandardCharsets.UTF_8);
+    }
+
+    private void readRow(ResultSet rs, Map<NodeModel, List<Long>> rows) throws SQLException {
+        long id = rs.getLong("id");
+        String permission = rs.getString("permission");
+        boolean value = rs.getBoolean("value");
+        String server = rs.getString("server");
+        String world = rs.getString("world");
+        long expiry = rs.getLong("expiry");
+        String contexts = rs.getString("contexts");
+        rows.computeIfAbsent(deserializeNode(permission, value, server, world, expiry, contexts), x -> new ArrayList<>(1)).add(id);
+    }
+
+    private void setNodeParameters(PreparedStatement ps, String identifier, NodeModel nd) throws SQLException {
+        ps.setString(1, identifier);
+        ps.setString(2, nd.getPermission());
+        ps.setBoolean(3, nd.getValue());
+        ps.setString(4, nd.getServer());
+        ps.setString(5, nd.getWorld());
+        ps.setLong(6, nd.getExpiry());
+        ps.setString(7, this.gson.toJson(ContextSetJsonSerializer.serializeContextSet(nd.getContexts())));
     }
 
     private NodeModel deserializeNode(String permission, boolean value, String server, String world, long expiry, String contexts) {
         return NodeModel.of(permission, value, server, world, expiry, ContextSetJsonSerializer.deserializeContextSet(this.gson, contexts).makeImmutable());
     }
+
+    @FunctionalInterface
+    private interface HolderWriter<T extends PermissionHolder> {
+        void write(Connection c, T holder, Map<PermissionHolder, PersistedNodes> written) throws SQLException;
+    }
+
+    /**
+     * The queries used to read and write the rows of a permissions table.
+     */
+    private static final class PermissionsTable {
+        private final String select;
+        private final String insert;
+        private final String deleteById;
+
+        private PermissionsTable(String select, String insert, String deleteById) {
+            this.select = select;
+            this.insert = insert;
+            this.deleteById = deleteById;
+        }
+    }
+
+    /**
+     * The rows of a holder in a permissions table, as they were last read or written.
+     *
+     * <p>Only the id of each row and the hash of its node are kept, rather than a
+     * copy of the holders nodes.</p>
+     */
+    private static final class PersistedNodes {
+        /**
+         * Used when the rows don't correspond to a known version of the holders nodes
+         */
+        private static final long UNKNOWN_VERSION = -1L;
+
+        /**
+         * The version of the holders nodes which the rows were written from
+         */
+        private final long version;
+
+        /**
+         * The hash of the node held by each row, or null if the row ids aren't known
+         */
+        private final long[] hashes;
+
+        /**
+         * The id of each row, indexed according to {@link #hashes}
+         */
+        private final long[] ids;
+
+        private PersistedNodes(long version, long[] hashes, long[] ids) {
+            this.version = version;
+            this.hashes = hashes;
+            this.ids = ids;
+        }
+
+        private static PersistedNodes of(long version, Map<Long, List<Long>> rows) {
+            int size = 0;
+            for (List<Long> ids : rows.values()) {
+                if (ids.isEmpty()) {
+                    // inserted by a driver which doesn't return generated keys
+                    return new PersistedNodes(version, null, null);
+                }
+                size += ids.size();
+            }
+
+            long[] hashes = new long[size];
+            long[] ids = new long[size];
+            int i = 0;
+            for (Map.Entry<Long, List<Long>> e : rows.entrySet()) {
+                for (long id : e.getValue()) {
+                    hashes[i] = e.getKey();
+                    ids[i] = id;
+                    i++;
+                }
+            }
+            return new PersistedNodes(version, hashes, ids);
+        }
+
+        /**
+         * Gets the ids of the rows, keyed by the hash of their node.
+         *
+         * @return the rows, or null if they aren't known
+         */
+        private Map<Long, List<Long>> toRows() {
+            if (this.hashes == null) {
+                return null;
+            }
+
+            Map<Long, List<Long>> rows = new HashMap<>(this.hashes.length);
+            for (int i = 0; i < this.hashes.length; i++) {
+                rows.computeIfAbsent(this.hashes[i], x -> new ArrayList<>(1)).add(this.ids[i]);
+            }
+            return rows;
+        }
+    }
 }
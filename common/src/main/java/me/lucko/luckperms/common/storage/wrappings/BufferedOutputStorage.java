@@ -25,11 +25,15 @@
 
 package me.lucko.luckperms.common.storage.wrappings;
 
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import me.lucko.luckperms.api.HeldPermission;
 import me.lucko.luckperms.api.LogEntry;
 import me.lucko.luckperms.api.event.cause.CreationCause;
 import me.lucko.luckperms.api.event.cause.DeletionCause;
 import me.lucko.luckperms.common.actionlog.Log;
+import me.lucko.luckperms.common.actionlog.LogFilter;
+import me.lucko.luckperms.common.actionlog.LogPage;
 import me.lucko.luckperms.common.api.delegates.model.ApiStorage;
 import me.lucko.luckperms.common.buffers.Buffer;
 import me.lucko.luckperms.common.bulkupdate.BulkUpdate;
@@ -40,27 +44,101 @@ import me.lucko.luckperms.common.storage.Storage;
 import me.lucko.luckperms.common.storage.dao.AbstractDao;
 
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * A storage wrapping that passes save tasks through a buffer
+ * A storage wrapping that passes save tasks through a buffer.
+ *
+ * <p>Saves are written in batches on a pool of worker threads, so that a
+ * large number of pending saves don't have to wait on one another. Action log
+ * entries are queued and written together in the same way.</p>
  */
 public class BufferedOutputStorage implements Storage, Runnable {
-    public static BufferedOutputStorage wrap(Storage storage, long flushTime) {
-        return new BufferedOutputStorage(storage, flushTime);
+    public static BufferedOutputStorage wrap(Storage storage, long flushTime, int parallelism, int limit) {
+        return new BufferedOutputStorage(storage, flushTime, parallelism, limit);
     }
 
+    /**
+     * The maximum number of holders to save together
+     */
+    private static final int BATCH_SIZE = 100;
+
+    /**
+     * The maximum number of log entries to write together
+     */
+    private static final int LOG_BATCH_SIZE = 500;
+
+    /**
+     * The maximum number of log entries waiting to be written
+     */
+    private static final int LOG_QUEUE_CAPACITY = 10000;
+
     private final Storage delegate;
 
     private final long flushTime;
 
-    private final Buffer<User, Void> userOutputBuffer = Buffer.of(user -> BufferedOutputStorage.this.delegate.saveUser(user).join());
-    private final Buffer<Group, Void> groupOutputBuffer = Buffer.of(group -> BufferedOutputStorage.this.delegate.saveGroup(group).join());
-    private final Buffer<Track, Void> trackOutputBuffer = Buffer.of(track -> BufferedOutputStorage.this.delegate.saveTrack(track).join());
+    private final ThreadPoolExecutor executor;
+
+    private final Buffer<User, Void> userOutputBuffer;
+    private final Buffer<Group, Void> groupOutputBuffer;
+    private final Buffer<Track, Void> trackOutputBuffer;
+
+    private final BlockingQueue<PendingLogEntry> logQueue = new ArrayBlockingQueue<>(LOG_QUEUE_CAPACITY);
+
+    /**
+     * If a task is currently writing the entries in the log queue
+     */
+    private final AtomicBoolean logWriting = new AtomicBoolean(false);
+    private volatile CompletableFuture<Void> logWriter = CompletableFuture.completedFuture(null);
 
-    private BufferedOutputStorage(Storage delegate, long flushTime) {
+    private BufferedOutputStorage(Storage delegate, long flushTime, int parallelism, int limit) {
         this.delegate = delegate;
         this.flushTime = flushTime;
+
+        this.executor = new ThreadPoolExecutor(parallelism, parallelism, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("luckperms-save-%d")
+                .build()
+        );
+        this.executor.allowCoreThreadTimeOut(true);
+
+        this.userOutputBuffer = Buffer.of(users -> write(dao -> dao.saveUsers(users)), BATCH_SIZE, limit);
+        this.groupOutputBuffer = Buffer.of(groups -> write(dao -> dao.saveGroups(groups)), BATCH_SIZE, limit);
+        this.trackOutputBuffer = Buffer.of(tracks -> write(dao -> {
+            for (Track track : tracks) {
+                dao.saveTrack(track);
+            }
+        }), BATCH_SIZE, limit);
+    }
+
+    /**
+     * Performs a write using the dao on the worker pool, so that no more than
+     * the pools parallelism are running at once.
+     *
+     * @param write the write
+     * @return a future encapsulating the result of the write
+     */
+    private CompletableFuture<Void> write(DaoWrite write) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                write.run(this.delegate.getDao());
+            } catch (Exception e) {
+                Throwables.propagateIfPossible(e);
+                throw new CompletionException(e);
+            }
+        }, this.executor);
+    }
+
+    private interface DaoWrite {
+        void run(AbstractDao dao) throws Exception;
     }
 
     @Override
@@ -69,13 +147,27 @@ public class BufferedOutputStorage implements Storage, Runnable {
     }
 
     public void forceFlush() {
-        flush(-1);
+        // objects held back while a buffer was full are only moved into it once
+        // earlier saves complete, so keep flushing until nothing is left
+        do {
+            flush(-1).join();
+        } while (this.userOutputBuffer.hasWaiting() || this.groupOutputBuffer.hasWaiting() || this.trackOutputBuffer.hasWaiting());
+
+        // write any remaining log entries, and wait for those already being written
+        writeLogQueueNow();
+        this.logWriter.join();
     }
 
-    public void flush(long flushTime) {
-        this.userOutputBuffer.flush(flushTime);
-        this.groupOutputBuffer.flush(flushTime);
-        this.trackOutputBuffer.flush(flushTime);
+    public CompletableFuture<Void> flush(long flushTime) {
+        if (!this.logQueue.isEmpty()) {
+            scheduleLogWrite();
+        }
+
+        return CompletableFuture.allOf(
+                this.userOutputBuffer.flush(flushTime),
+                this.groupOutputBuffer.flush(flushTime),
+                this.trackOutputBuffer.flush(flushTime)
+        );
     }
 
     @Override
@@ -86,6 +178,7 @@ public class BufferedOutputStorage implements Storage, Runnable {
     @Override
     public void shutdown() {
         forceFlush();
+        this.executor.shutdown();
         this.delegate.shutdown();
     }
 
@@ -94,11 +187,25 @@ public class BufferedOutputStorage implements Storage, Runnable {
         return this.userOutputBuffer.enqueue(user);
     }
 
+    @Override
+    public CompletableFuture<Void> saveUsers(Collection<User> users) {
+        return CompletableFuture.allOf(users.stream()
+                .map(this.userOutputBuffer::enqueue)
+                .toArray(CompletableFuture[]::new));
+    }
+
     @Override
     public CompletableFuture<Void> saveGroup(Group group) {
         return this.groupOutputBuffer.enqueue(group);
     }
 
+    @Override
+    public CompletableFuture<Void> saveGroups(Collection<Group> groups) {
+        return CompletableFuture.allOf(groups.stream()
+                .map(this.groupOutputBuffer::enqueue)
+                .toArray(CompletableFuture[]::new));
+    }
+
     @Override
     public CompletableFuture<Void> saveTrack(Track track) {
         return this.trackOutputBuffer.enqueue(track);
@@ -166,6 +273,11 @@ public class BufferedOutputStorage implements Storage, Runnable {
         return this.delegate.loadUser(uuid, username);
     }
 
+    @Override
+    public CompletableFuture<Map<UUID, User>> loadUsers(Collection<UUID> uuids) {
+        return this.delegate.loadUsers(uuids);
+    }
+
     @Override
     public CompletableFuture<Track> createAndLoadTrack(String name, CreationCause cause) {
         return this.delegate.createAndLoadTrack(name, cause);
@@ -176,6 +288,11 @@ public class BufferedOutputStorage implements Storage, Runnable {
         return this.delegate.getLog();
     }
 
+    @Override
+    public CompletableFuture<LogPage> getLogPage(LogFilter filter, int pageNo, int entriesPerPage) {
+        return this.delegate.getLogPage(filter, pageNo, entriesPerPage);
+    }
+
     @Override
     public ApiStorage getApiDelegate() {
         return this.delegate.getApiDelegate();
@@ -208,7 +325,100 @@ public class BufferedOutputStorage implements Storage, Runnable {
 
     @Override
     public CompletableFuture<Void> logAction(LogEntry entry) {
-        return this.delegate.logAction(entry);
+        if (this.executor.isShutdown()) {
+            // nothing is left to write the queue, so write the entry straight away
+            return this.delegate.logAction(entry);
+        }
+
+        PendingLogEntry pending = new PendingLogEntry(entry);
+        if (!this.logQueue.offer(pending)) {
+            // the queue is full, wait for some of it to be written
+            scheduleLogWrite();
+            try {
+                this.logQueue.put(pending);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return this.delegate.logAction(entry);
+            }
+        }
+
+        if (this.logQueue.size() >= LOG_BATCH_SIZE) {
+            scheduleLogWrite();
+        }
+        return pending.future;
+    }
+
+    @Override
+    public CompletableFuture<Void> logActions(List<LogEntry> entries) {
+        return CompletableFuture.allOf(entries.stream()
+                .map(this::logAction)
+                .toArray(CompletableFuture[]::new));
+    }
+
+    /**
+     * Starts a task to write the entries in the log queue, if one isn't already running.
+     */
+    private void scheduleLogWrite() {
+        if (this.logWriting.compareAndSet(false, true)) {
+            try {
+                this.logWriter = CompletableFuture.runAsync(this::writeLogQueue, this.executor);
+            } catch (RejectedExecutionException e) {
+                // the worker pool has been shut down, so write the queue on this thread instead
+                this.logWriting.set(false);
+                writeLogQueueNow();
+            }
+        }
+    }
+
+    /**
+     * Writes the entries in the log queue on the calling thread.
+     */
+    private void writeLogQueueNow() {
+        List<PendingLogEntry> batch;
+        while (!(batch = drainLogQueue()).isEmpty()) {
+            writeLog(batch);
+        }
+    }
+
+    private void writeLogQueue() {
+        while (true) {
+            List<PendingLogEntry> batch = drainLogQueue();
+            if (batch.isEmpty()) {
+                this.logWriting.set(false);
+
+                // an entry may have been queued between draining the queue and clearing the flag
+                if (this.logQueue.isEmpty() || !this.logWriting.compareAndSet(false, true)) {
+                    return;
+                }
+                continue;
+            }
+
+            writeLog(batch);
+        }
+    }
+
+    private List<PendingLogEntry> drainLogQueue() {
+        List<PendingLogEntry> batch = new ArrayList<>();
+        this.logQueue.drainTo(batch, LOG_BATCH_SIZE);
+        return batch;
+    }
+
+    private void writeLog(List<PendingLogEntry> batch) {
+        List<LogEntry> entries = new ArrayList<>(batch.size());
+        for (PendingLogEntry pending : batch) {
+            entries.add(pending.entry);
+        }
+
+        try {
+            this.delegate.getDao().logActions(entries);
+            for (PendingLogEntry pending : batch) {
+                pending.future.complete(null);
+            }
+        } catch (Exception e) {
+            for (PendingLogEntry pending : batch) {
+                pending.future.completeExceptionally(e);
+            }
+        }
     }
 
     @Override
@@ -221,4 +431,12 @@ public class BufferedOutputStorage implements Storage, Runnable {
         return this.delegate.loadGroup(name);
     }
 
+    private static final class PendingLogEntry {
+        private final LogEntry entry;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private PendingLogEntry(LogEntry entry) {
+            this.entry = entry;
+        }
+    }
 }
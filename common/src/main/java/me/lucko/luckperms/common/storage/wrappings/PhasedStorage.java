@@ -30,6 +30,8 @@ import me.lucko.luckperms.api.LogEntry;
 import me.lucko.luckperms.api.event.cause.CreationCause;
 import me.lucko.luckperms.api.event.cause.DeletionCause;
 import me.lucko.luckperms.common.actionlog.Log;
+import me.lucko.luckperms.common.actionlog.LogFilter;
+import me.lucko.luckperms.common.actionlog.LogPage;
 import me.lucko.luckperms.common.api.delegates.model.ApiStorage;
 import me.lucko.luckperms.common.bulkupdate.BulkUpdate;
 import me.lucko.luckperms.common.model.Group;
@@ -112,6 +114,16 @@ public class PhasedStorage implements Storage {
         }
     }
 
+    @Override
+    public CompletableFuture<Void> logActions(List<LogEntry> entries) {
+        this.phaser.register();
+        try {
+            return this.delegate.logActions(entries);
+        } finally {
+            this.phaser.arriveAndDeregister();
+        }
+    }
+
     @Override
     public CompletableFuture<Log> getLog() {
         this.phaser.register();
@@ -122,6 +134,16 @@ public class PhasedStorage implements Storage {
         }
     }
 
+    @Override
+    public CompletableFuture<LogPage> getLogPage(LogFilter filter, int pageNo, int entriesPerPage) {
+        this.phaser.register();
+        try {
+            return this.delegate.getLogPage(filter, pageNo, entriesPerPage);
+        } finally {
+            this.phaser.arriveAndDeregister();
+        }
+    }
+
     @Override
     public CompletableFuture<Void> applyBulkUpdate(BulkUpdate bulkUpdate) {
         this.phaser.register();
@@ -142,6 +164,16 @@ public class PhasedStorage implements Storage {
         }
     }
 
+    @Override
+    public CompletableFuture<Map<UUID, User>> loadUsers(Collection<UUID> uuids) {
+        this.phaser.register();
+        try {
+            return this.delegate.loadUsers(uuids);
+        } finally {
+            this.phaser.arriveAndDeregister();
+        }
+    }
+
     @Override
     public CompletableFuture<Void> saveUser(User user) {
         this.phaser.register();
@@ -152,6 +184,16 @@ public class PhasedStorage implements Storage {
         }
     }
 
+    @Override
+    public CompletableFuture<Void> saveUsers(Collection<User> users) {
+        this.phaser.register();
+        try {
+            return this.delegate.saveUsers(users);
+        } finally {
+            this.phaser.arriveAndDeregister();
+        }
+    }
+
     @Override
     public CompletableFuture<Set<UUID>> getUniqueUsers() {
         this.phaser.register();
@@ -212,6 +254,16 @@ public class PhasedStorage implements Storage {
         }
     }
 
+    @Override
+    public CompletableFuture<Void> saveGroups(Collection<Group> groups) {
+        this.phaser.register();
+        try {
+            return this.delegate.saveGroups(groups);
+        } finally {
+            this.phaser.arriveAndDeregister();
+        }
+    }
+
     @Override
     public CompletableFuture<Void> deleteGroup(Group group, DeletionCause cause) {
         this.phaser.register();
@@ -39,14 +39,13 @@ public class ExpireTemporaryTask implements Runnable {
 
     @Override
     public void run() {
-        boolean groupChanges = false;
         for (Group group : this.plugin.getGroupManager().getAll().values()) {
             if (shouldSkip(group)) {
                 continue;
             }
             if (group.auditTemporaryPermissions()) {
                 this.plugin.getStorage().saveGroup(group);
-                groupChanges = true;
+                this.plugin.getInheritanceHandler().refreshDependents(group);
             }
         }
 
@@ -56,15 +55,9 @@ public class ExpireTemporaryTask implements Runnable {
             }
             if (user.auditTemporaryPermissions()) {
                 this.plugin.getStorage().saveUser(user);
-                if (!groupChanges) {
-                    user.getRefreshBuffer().request();
-                }
+                user.getRefreshBuffer().request();
             }
         }
-
-        if (groupChanges) {
-            this.plugin.getUpdateTaskBuffer().request();
-        }
     }
 
     // return true if the holder's io lock is currently held, false otherwise
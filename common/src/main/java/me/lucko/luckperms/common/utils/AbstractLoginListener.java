@@ -29,8 +29,10 @@ import me.lucko.luckperms.common.assignments.AssignmentRule;
 import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.model.User;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.storage.Storage;
 
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Abstract listener utility for handling new player connections
@@ -48,14 +50,21 @@ public abstract class AbstractLoginListener {
         // register with the housekeeper to avoid accidental unloads
         this.plugin.getUserManager().getHouseKeeper().registerUsage(u);
 
+        Storage storage = this.plugin.getStorage().noBuffer();
+
+        // look up the existing uuid data and load the user at the same time,
+        // rather than waiting for one round trip before starting the next
+        CompletableFuture<String> nameLookup = storage.getName(u);
+        CompletableFuture<User> userLoad = storage.loadUser(u, username);
+
         // save uuid data.
-        String name = this.plugin.getStorage().noBuffer().getName(u).join();
+        String name = nameLookup.join();
         if (name == null) {
             this.plugin.getEventFactory().handleUserFirstLogin(u, username);
         }
-        this.plugin.getStorage().noBuffer().saveUUIDData(u, username);
+        storage.saveUUIDData(u, username);
 
-        User user = this.plugin.getStorage().noBuffer().loadUser(u, username).join();
+        User user = userLoad.join();
         if (user == null) {
             throw new NullPointerException("User is null");
         } else {
@@ -68,8 +77,13 @@ public abstract class AbstractLoginListener {
             }
 
             // If they were given a default, persist the new assignments back to the storage.
+            // the user is already set up locally, so there's no need to hold up the login for this.
             if (save) {
-                this.plugin.getStorage().noBuffer().saveUser(user).join();
+                storage.saveUser(user).exceptionally(e -> {
+                    this.plugin.getLog().warn("Unable to save default assignments for " + username);
+                    e.printStackTrace();
+                    return null;
+                });
             }
 
             // Does some minimum pre-calculations to (maybe) speed things up later.
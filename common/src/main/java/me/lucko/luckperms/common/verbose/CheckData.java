@@ -32,6 +32,7 @@ import me.lucko.luckperms.common.utils.StackTracePrinter;
 import me.lucko.luckperms.common.utils.gson.JArray;
 import me.lucko.luckperms.common.utils.gson.JObject;
 
+import javax.annotation.Nullable;
 import java.util.Map;
 
 /**
@@ -55,9 +56,12 @@ public class CheckData {
     private final ImmutableContextSet checkContext;
 
     /**
-     * The stack trace when the check took place
+     * The stack trace when the check took place, if one was sampled.
+     *
+     * <p>Held as a throwable so the frames are only resolved when they're printed.</p>
      */
-    private final StackTraceElement[] checkTrace;
+    @Nullable
+    private final Throwable checkTrace;
 
     /**
      * The permission which was checked for
@@ -69,7 +73,7 @@ public class CheckData {
      */
     private final Tristate result;
 
-    public CheckData(CheckOrigin checkOrigin, String checkTarget, ImmutableContextSet checkContext, StackTraceElement[] checkTrace, String permission, Tristate result) {
+    public CheckData(CheckOrigin checkOrigin, String checkTarget, ImmutableContextSet checkContext, @Nullable Throwable checkTrace, String permission, Tristate result) {
         this.checkOrigin = checkOrigin;
         this.checkTarget = checkTarget;
         this.checkContext = checkContext;
@@ -90,8 +94,12 @@ public class CheckData {
         return this.checkContext;
     }
 
+    public boolean hasCheckTrace() {
+        return this.checkTrace != null;
+    }
+
     public StackTraceElement[] getCheckTrace() {
-        return this.checkTrace;
+        return this.checkTrace == null ? new StackTraceElement[0] : this.checkTrace.getStackTrace();
     }
 
     public String getPermission() {
@@ -126,7 +134,7 @@ public class CheckData {
     public JsonObject toJson(StackTracePrinter tracePrinter) {
         return formBaseJson()
                 .add("trace", new JArray()
-                        .consume(arr -> tracePrinter.process(this.checkTrace, StackTracePrinter.elementToString(arr::add)))
+                        .consume(arr -> tracePrinter.process(getCheckTrace(), StackTracePrinter.elementToString(arr::add)))
                 )
                 .toJson();
     }
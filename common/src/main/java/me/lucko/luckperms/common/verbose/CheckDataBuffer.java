@@ -0,0 +1,123 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.verbose;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free ring buffer used to pass check data from the threads
+ * making permission checks to the verbose handler.
+ *
+ * <p>Each slot carries a sequence number which producers and the consumer use
+ * to claim it, so neither side ever blocks. If the buffer is full, offered
+ * elements are dropped rather than allowing the backlog to grow unbounded.</p>
+ *
+ * @param <E> the element type
+ */
+final class CheckDataBuffer<E> {
+
+    private final int mask;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+
+    // the next position to be written to
+    private final AtomicLong writePosition = new AtomicLong(0);
+    // the next position to be read from
+    private final AtomicLong readPosition = new AtomicLong(0);
+
+    CheckDataBuffer(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        }
+
+        this.mask = capacity - 1;
+        this.elements = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            this.sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Offers an element to the buffer.
+     *
+     * @param element the element
+     * @return true if the element was added, false if the buffer was full
+     */
+    boolean offer(E element) {
+        long pos = this.writePosition.get();
+        while (true) {
+            int index = (int) (pos & this.mask);
+            long diff = this.sequences.get(index) - pos;
+
+            if (diff == 0) {
+                // the slot is free, try to claim it
+                if (this.writePosition.compareAndSet(pos, pos + 1)) {
+                    this.elements.lazySet(index, element);
+                    this.sequences.set(index, pos + 1);
+                    return true;
+                }
+                pos = this.writePosition.get();
+            } else if (diff < 0) {
+                // the slot hasn't been consumed yet - the buffer is full
+                return false;
+            } else {
+                // another producer claimed the slot first
+                pos = this.writePosition.get();
+            }
+        }
+    }
+
+    /**
+     * Removes the next element from the buffer.
+     *
+     * @return the element, or null if the buffer is empty
+     */
+    E poll() {
+        long pos = this.readPosition.get();
+        while (true) {
+            int index = (int) (pos & this.mask);
+            long diff = this.sequences.get(index) - (pos + 1);
+
+            if (diff == 0) {
+                if (this.readPosition.compareAndSet(pos, pos + 1)) {
+                    E element = this.elements.get(index);
+                    this.elements.lazySet(index, null);
+                    this.sequences.set(index, pos + this.mask + 1);
+                    return element;
+                }
+                pos = this.readPosition.get();
+            } else if (diff < 0) {
+                // nothing has been written to the slot yet - the buffer is empty
+                return null;
+            } else {
+                pos = this.readPosition.get();
+            }
+        }
+    }
+}
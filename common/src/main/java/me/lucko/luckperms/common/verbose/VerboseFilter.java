@@ -25,20 +25,18 @@
 
 package me.lucko.luckperms.common.verbose;
 
-import com.google.common.collect.ImmutableList;
-import me.lucko.luckperms.common.utils.Scripting;
+import me.lucko.luckperms.api.Tristate;
 
-import javax.script.ScriptEngine;
-import javax.script.ScriptException;
+import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.StringTokenizer;
-import java.util.stream.Collectors;
 
 /**
  * Represents a verbose filter expression.
  *
- * <p>The filter is parsed when the instance is initialised - subsequent
- * evaluations should be relatively fast.</p>
+ * <p>The filter is compiled into a tree of matchers when the instance is
+ * initialised - subsequent evaluations should be relatively fast.</p>
  */
 public final class VerboseFilter {
 
@@ -46,10 +44,13 @@ public final class VerboseFilter {
     // syntax - and not the filter itself.
     private static final String DELIMITERS = " |&()!";
 
-    // the script engine to use when evaluating the expression
-    private final ScriptEngine engine;
-    // the parsed expression
-    private final List<Token> expression;
+    // the filter string
+    private final String filter;
+    // the compiled expression, or null if the filter is blank
+    private final Expression expression;
+    // an index of the terms in the expression, used to quickly reject checks
+    // which can't possibly match. null if the expression can't be indexed.
+    private final TermIndex index;
 
     /**
      * Compiles a {@link VerboseFilter} instance for the given filter string
@@ -59,116 +60,78 @@ public final class VerboseFilter {
      * @throws InvalidFilterException if the filter is invalid
      */
     public static VerboseFilter parse(String filter) throws InvalidFilterException {
-        ScriptEngine engine = Scripting.getScriptEngine();
-        if (engine == null) {
-            throw new RuntimeException("Script engine not present");
-        }
-
-        return new VerboseFilter(engine, filter);
+        return new VerboseFilter(filter);
     }
 
-    private VerboseFilter(ScriptEngine engine, String filter) throws InvalidFilterException {
-        this.engine = engine;
+    private VerboseFilter(String filter) throws InvalidFilterException {
+        this.filter = filter;
 
-        if (filter.isEmpty()) {
-            this.expression = ImmutableList.of();
+        if (filter.trim().isEmpty()) {
+            this.expression = null;
+            this.index = null;
         } else {
             try {
-                this.expression = generateExpression(engine, filter);
+                this.expression = new Parser(filter).parse();
             } catch (Exception e) {
                 throw new InvalidFilterException("Exception occurred whilst generating an expression for '" + filter + "'", e);
             }
+            this.index = TermIndex.build(this.expression);
         }
     }
 
     /**
-     * Parses a filter string into a list of 'tokens' forming the expression.
-     *
-     * Each token either represents part of the expressions syntax
-     * (logical and, logical or, brackets, or space) or a value.
+     * Evaluates whether the check data passes the filter
      *
-     * @param engine the script engine to test the expression with
-     * @param filter the filter string
-     * @return a parsed list of expressions
-     * @throws ScriptException if the engine throws an exception whilst evaluating the expression
+     * @param data the check data
+     * @return if the check data passes the filter
      */
-    private static List<Token> generateExpression(ScriptEngine engine, String filter) throws ScriptException {
-        // tokenize the filter using the filter characters as delimiters.
-        StringTokenizer tokenizer = new StringTokenizer(filter, DELIMITERS, true);
-
-        // use the tokenizer to parse the string to a list of 'tokens'.
-        ImmutableList.Builder<Token> expressionBuilder = ImmutableList.builder();
-        while (tokenizer.hasMoreTokens()) {
-            String token = tokenizer.nextToken();
-
-            if (isDelimiter(token)) {
-                // if the token is a delimiter, just append it to the expression as a constant
-                expressionBuilder.add(new ConstantToken(token));
-            } else {
-                // otherwise consider it to be a value
-                expressionBuilder.add(new VariableToken(token));
-            }
-        }
-
-        // build & test the expression
-        List<Token> expression = expressionBuilder.build();
-        testExpression(expression, engine);
-        return expression;
-    }
-
-    private static void testExpression(List<Token> expression, ScriptEngine engine) throws ScriptException {
-        // build a dummy version of the expression.
-        // all values are simply replaced by "true"
-        String dummyExpression = expression.stream().map(Token::forDummyExpression).collect(Collectors.joining());
-
-        // do a test run - if the engine returns a result without throwing an exception
-        // and the result is a boolean, we can consider the expression to be valid
-        String result = engine.eval(dummyExpression).toString();
-        if (!result.equals("true") && !result.equals("false")) {
-            throw new IllegalArgumentException("Expected true/false but got '" + result + "' instead.");
-        }
+    public boolean evaluate(CheckData data) {
+        return evaluate(data.getCheckTarget(), data.getPermission(), data.getResult());
     }
 
     /**
-     * Evaluates whether the check data passes the filter
+     * Evaluates whether a check passes the filter
      *
-     * @param data the check data
-     * @return if the check data passes the filter
+     * @param checkTarget the target of the check
+     * @param permission the permission which was checked for
+     * @param result the result of the check
+     * @return if the check passes the filter
      */
-    public boolean evaluate(CheckData data) {
-        if (this.expression.isEmpty()) {
+    public boolean evaluate(String checkTarget, String permission, Tristate result) {
+        if (this.expression == null) {
             return true;
         }
 
-        // build an expression string for the passed check data.
-        String expressionString = this.expression.stream().map(token -> token.forExpression(data)).collect(Collectors.joining());
-
-        // evaluate the expression using the script engine
-        try {
-            String result = this.engine.eval(expressionString).toString();
-
-            // validate return value
-            if (!result.equals("true") && !result.equals("false")) {
-                throw new IllegalArgumentException("Expected true/false but got '" + result + "' instead.");
-            }
-
-            // return the result of the expression
-            return Boolean.parseBoolean(result);
-
-        } catch (Throwable ex) {
-            // print the error & return false
-            ex.printStackTrace();
+        if (this.index != null && !this.index.mightMatch(checkTarget, permission, result)) {
             return false;
         }
+
+        return this.expression.test(checkTarget, permission, result);
+    }
+
+    /**
+     * Gets if a check could possibly pass the filter, without fully evaluating it.
+     *
+     * <p>This only consults the index of the filters terms, so is much cheaper than
+     * {@link #evaluate(String, String, Tristate)}, but may return true for checks
+     * which don't actually pass.</p>
+     *
+     * @param checkTarget the target of the check
+     * @param permission the permission which was checked for
+     * @param result the result of the check
+     * @return false if the check definitely doesn't pass the filter
+     */
+    public boolean mightMatch(String checkTarget, String permission, Tristate result) {
+        return this.index == null || this.index.mightMatch(checkTarget, permission, result);
     }
 
     public boolean isBlank() {
-        return this.expression.isEmpty();
+        return this.expression == null;
     }
 
     @Override
     public String toString() {
-        return this.expression.stream().map(Token::toString).collect(Collectors.joining());
+        return this.filter;
     }
 
     /**
@@ -192,96 +155,320 @@ public final class VerboseFilter {
     }
 
     /**
-     * Represents a part of an expression
+     * Recursive descent parser for filter strings.
+     *
+     * <p>Operator precedence follows the usual rules - '!' binds tightest,
+     * then '&amp;', then '|'. Operators may be written singly or doubled.</p>
      */
-    private interface Token {
+    private static final class Parser {
+        private final List<String> tokens = new ArrayList<>();
+        private int position = 0;
+
+        private Parser(String filter) {
+            // tokenize the filter using the filter characters as delimiters.
+            StringTokenizer tokenizer = new StringTokenizer(filter, DELIMITERS, true);
+            while (tokenizer.hasMoreTokens()) {
+                String token = tokenizer.nextToken();
+                if (!token.equals(" ")) {
+                    this.tokens.add(token);
+                }
+            }
+        }
+
+        Expression parse() {
+            Expression expression = parseOr();
+            if (this.position != this.tokens.size()) {
+                throw new IllegalArgumentException("Unexpected token '" + this.tokens.get(this.position) + "' at position " + this.position);
+            }
+            return expression;
+        }
+
+        private Expression parseOr() {
+            List<Expression> children = new ArrayList<>();
+            children.add(parseAnd());
+            while (acceptOperator("|")) {
+                children.add(parseAnd());
+            }
+            return children.size() == 1 ? children.get(0) : new Or(children);
+        }
+
+        private Expression parseAnd() {
+            List<Expression> children = new ArrayList<>();
+            children.add(parseUnary());
+            while (acceptOperator("&")) {
+                children.add(parseUnary());
+            }
+            return children.size() == 1 ? children.get(0) : new And(children);
+        }
+
+        private Expression parseUnary() {
+            if (this.position >= this.tokens.size()) {
+                throw new IllegalArgumentException("Unexpected end of expression");
+            }
+
+            String token = this.tokens.get(this.position++);
+            if (token.equals("!")) {
+                return new Not(parseUnary());
+            }
+            if (token.equals("(")) {
+                Expression expression = parseOr();
+                if (this.position >= this.tokens.size() || !this.tokens.get(this.position).equals(")")) {
+                    throw new IllegalArgumentException("Missing closing bracket");
+                }
+                this.position++;
+                return expression;
+            }
+            if (isDelimiter(token)) {
+                throw new IllegalArgumentException("Unexpected token '" + token + "' at position " + (this.position - 1));
+            }
+            return new Term(token);
+        }
+
+        private boolean acceptOperator(String operator) {
+            if (this.position >= this.tokens.size() || !this.tokens.get(this.position).equals(operator)) {
+                return false;
+            }
+            this.position++;
+
+            // allow the operator to be doubled, e.g. '&&'
+            if (this.position < this.tokens.size() && this.tokens.get(this.position).equals(operator)) {
+                this.position++;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Represents a compiled part of an expression
+     */
+    private interface Expression {
 
         /**
-         * Returns the value of this token when part of an evaluated expression
+         * Tests the expression against a check
          *
-         * @param data the data which an expression is being formed for
-         * @return the value to be used as part of the evaluated expression
+         * @param checkTarget the target of the check
+         * @param permission the permission which was checked for
+         * @param result the result of the check
+         * @return the result of the expression
          */
-        String forExpression(CheckData data);
+        boolean test(String checkTarget, String permission, Tristate result);
 
         /**
-         * Returns a 'dummy' value for this token in order to build a test
-         * expression.
+         * Returns the result of the expression if none of its terms match.
          *
-         * @return the value to be used as part of the test expression
+         * @return the result of the expression when all terms are false
          */
-        String forDummyExpression();
+        boolean testUnmatched();
+
+        /**
+         * Adds the terms within this expression to the given list
+         *
+         * @param terms the list to add to
+         */
+        void collectTerms(List<Term> terms);
 
     }
 
-    /**
-     * Represents a constant part of the expression - tokens will only ever
-     * consist of the characters defined in the {@link #DELIMITERS} string.
-     */
-    private static final class ConstantToken implements Token {
-        private final String string;
-
-        private ConstantToken(String string) {
-            // replace single '&' and '|' character with double values
-            if (string.equals("&")) {
-                string = "&&";
-            } else if (string.equals("|")) {
-                string = "||";
+    private static final class Or implements Expression {
+        private final Expression[] children;
+
+        private Or(List<Expression> children) {
+            this.children = children.toArray(new Expression[0]);
+        }
+
+        @Override
+        public boolean test(String checkTarget, String permission, Tristate result) {
+            for (Expression child : this.children) {
+                if (child.test(checkTarget, permission, result)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public boolean testUnmatched() {
+            for (Expression child : this.children) {
+                if (child.testUnmatched()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public void collectTerms(List<Term> terms) {
+            for (Expression child : this.children) {
+                child.collectTerms(terms);
+            }
+        }
+    }
+
+    private static final class And implements Expression {
+        private final Expression[] children;
+
+        private And(List<Expression> children) {
+            this.children = children.toArray(new Expression[0]);
+        }
+
+        @Override
+        public boolean test(String checkTarget, String permission, Tristate result) {
+            for (Expression child : this.children) {
+                if (!child.test(checkTarget, permission, result)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public boolean testUnmatched() {
+            for (Expression child : this.children) {
+                if (!child.testUnmatched()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public void collectTerms(List<Term> terms) {
+            for (Expression child : this.children) {
+                child.collectTerms(terms);
             }
+        }
+    }
+
+    private static final class Not implements Expression {
+        private final Expression child;
 
-            this.string = string;
+        private Not(Expression child) {
+            this.child = child;
         }
 
         @Override
-        public String forExpression(CheckData data) {
-            return this.string;
+        public boolean test(String checkTarget, String permission, Tristate result) {
+            return !this.child.test(checkTarget, permission, result);
         }
 
         @Override
-        public String forDummyExpression() {
-            return this.string;
+        public boolean testUnmatched() {
+            return !this.child.testUnmatched();
         }
 
         @Override
-        public String toString() {
-            return this.string;
+        public void collectTerms(List<Term> terms) {
+            this.child.collectTerms(terms);
         }
     }
 
     /**
-     * Represents a variable part of the token. When evaluated as an expression,
-     * this token will be replaced with a boolean 'true' or 'false' - depending
-     * on if the passed check data "matches" the value of this token.
+     * Represents a value within the expression.
      *
-     * The check data will be deemed a "match" if:
-     * - the target of the check is equal to the value of the token
-     * - the permission being checked for starts with the value of the token
-     * - the result of the check is equal to the value of the token
+     * The check will be deemed a "match" if:
+     * - the target of the check is equal to the value of the term
+     * - the permission being checked for starts with the value of the term
+     * - the result of the check is equal to the value of the term
+     *
+     * All comparisons are case insensitive.
      */
-    private static final class VariableToken implements Token {
+    private static final class Term implements Expression {
         private final String value;
 
-        private VariableToken(String value) {
+        // the result this term matches, or null if the value isn't a result
+        private final Tristate matchedResult;
+
+        private Term(String value) {
             this.value = value;
+
+            Tristate matchedResult = null;
+            for (Tristate tristate : Tristate.values()) {
+                if (tristate.name().equalsIgnoreCase(value)) {
+                    matchedResult = tristate;
+                    break;
+                }
+            }
+            this.matchedResult = matchedResult;
         }
 
         @Override
-        public String forExpression(CheckData data) {
-            return Boolean.toString(
-                    data.getCheckTarget().equalsIgnoreCase(this.value) ||
-                    data.getPermission().toLowerCase().startsWith(this.value.toLowerCase()) ||
-                    data.getResult().name().equalsIgnoreCase(this.value)
-            );
+        public boolean test(String checkTarget, String permission, Tristate result) {
+            return result == this.matchedResult ||
+                    permission.regionMatches(true, 0, this.value, 0, this.value.length()) ||
+                    checkTarget.equalsIgnoreCase(this.value);
         }
 
         @Override
-        public String forDummyExpression() {
-            return "true";
+        public boolean testUnmatched() {
+            return false;
         }
 
         @Override
-        public String toString() {
-            return this.value;
+        public void collectTerms(List<Term> terms) {
+            terms.add(this);
+        }
+    }
+
+    /**
+     * An index of the literal prefixes of the terms within an expression.
+     *
+     * <p>A check can only match a term if the first character of its permission
+     * or target is shared with the term, or if its result is named by the term. When
+     * the expression can't be satisfied without a matching term, checks failing this
+     * test can be rejected without evaluating the expression.</p>
+     */
+    private static final class TermIndex {
+        private static final int ASCII_LIMIT = 128;
+
+        static TermIndex build(Expression expression) {
+            // if the expression passes without any terms matching, every check
+            // has to be evaluated in full.
+            if (expression.testUnmatched()) {
+                return null;
+            }
+
+            List<Term> terms = new ArrayList<>();
+            expression.collectTerms(terms);
+
+            boolean[] firstChars = new boolean[ASCII_LIMIT];
+            EnumSet<Tristate> results = EnumSet.noneOf(Tristate.class);
+            for (Term term : terms) {
+                char c = term.value.charAt(0);
+
+                // case insensitive matching of other characters isn't
+                // guaranteed to be symmetric, so don't try to index them.
+                if (c >= ASCII_LIMIT) {
+                    return null;
+                }
+
+                firstChars[Character.toLowerCase(c)] = true;
+                if (term.matchedResult != null) {
+                    results.add(term.matchedResult);
+                }
+            }
+
+            return new TermIndex(firstChars, results);
+        }
+
+        private final boolean[] firstChars;
+        private final EnumSet<Tristate> results;
+
+        private TermIndex(boolean[] firstChars, EnumSet<Tristate> results) {
+            this.firstChars = firstChars;
+            this.results = results;
+        }
+
+        boolean mightMatch(String checkTarget, String permission, Tristate result) {
+            return this.results.contains(result) || hasFirstChar(permission) || hasFirstChar(checkTarget);
+        }
+
+        private boolean hasFirstChar(String string) {
+            if (string.isEmpty()) {
+                return false;
+            }
+
+            char c = string.charAt(0);
+            return c >= ASCII_LIMIT || this.firstChars[Character.toLowerCase(c)];
         }
     }
 
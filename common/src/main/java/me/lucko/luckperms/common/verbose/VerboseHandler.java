@@ -29,11 +29,11 @@ import me.lucko.luckperms.api.Tristate;
 import me.lucko.luckperms.api.context.ContextSet;
 import me.lucko.luckperms.common.commands.sender.Sender;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
-import java.util.Queue;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executor;
 
 /**
@@ -44,18 +44,21 @@ public class VerboseHandler implements Runnable {
     // the listeners currently registered
     private final Map<UUID, VerboseListener> listeners;
 
-    // a queue of check data
-    private final Queue<CheckData> queue;
+    // the maximum number of checks which can be waiting to be flushed
+    private static final int BUFFER_CAPACITY = 1 << 14;
+
+    // a buffer of check data, along with the listeners each check was matched by
+    private final CheckDataBuffer<MatchedCheck> buffer;
 
     // if there are any listeners currently registered
-    private boolean listening = false;
+    private volatile boolean listening = false;
 
     // if the handler should shutdown
     private boolean shutdown = false;
 
     public VerboseHandler(Executor executor) {
         this.listeners = new ConcurrentHashMap<>();
-        this.queue = new ConcurrentLinkedQueue<>();
+        this.buffer = new CheckDataBuffer<>(BUFFER_CAPACITY);
 
         executor.execute(this);
     }
@@ -63,8 +66,10 @@ public class VerboseHandler implements Runnable {
     /**
      * Offers check data to the handler, to be eventually passed onto listeners.
      *
-     * <p>The check data is added to a queue to be processed later, to avoid blocking
-     * the main thread each time a permission check is made.</p>
+     * <p>The filters of each listener are evaluated on the calling thread, and the
+     * check is only captured if at least one listener accepts it. Captured data is
+     * added to a buffer to be processed later, to avoid blocking the main thread
+     * each time a permission check is made.</p>
      *
      * @param checkOrigin the origin of the check
      * @param checkTarget the target of the permission check
@@ -78,11 +83,43 @@ public class VerboseHandler implements Runnable {
             return;
         }
 
+        List<VerboseListener> matched = null;
+        boolean captureTrace = false;
+
+        for (VerboseListener listener : this.listeners.values()) {
+            int sequence = listener.testCheck(checkTarget, permission, result);
+            if (sequence == 0) {
+                continue;
+            }
+
+            if (matched == null) {
+                matched = new ArrayList<>(2);
+            }
+            matched.add(listener);
+            captureTrace |= listener.shouldCaptureTrace(sequence);
+        }
+
+        // nothing matched, so there's no need to capture anything
+        if (matched == null) {
+            return;
+        }
+
+        // the stack trace itself is only resolved if the check is printed
         //noinspection ThrowableNotThrown
-        StackTraceElement[] trace = new Exception().getStackTrace();
+        Throwable trace = captureTrace ? new Throwable() : null;
 
-        // add the check data to a queue to be processed later.
-        this.queue.offer(new CheckData(checkOrigin, checkTarget, checkContext.makeImmutable(), trace, permission, result));
+        // add the check data to the buffer to be processed later.
+        CheckData data = new CheckData(checkOrigin, checkTarget, checkContext.makeImmutable(), trace, permission, result);
+        this.buffer.offer(new MatchedCheck(data, matched));
+    }
+
+    /**
+     * Gets if any listeners are currently registered
+     *
+     * @return true if check data is being collected
+     */
+    public boolean isListening() {
+        return this.listening;
     }
 
     /**
@@ -91,9 +128,10 @@ public class VerboseHandler implements Runnable {
      * @param sender the sender to notify, if notify is true
      * @param filter the filter string
      * @param notify if the sender should be notified in chat on each check
+     * @param traceSampling the rate at which stack traces should be captured for matched checks
      */
-    public void registerListener(Sender sender, VerboseFilter filter, boolean notify) {
-        this.listeners.put(sender.getUuid(), new VerboseListener(sender, filter, notify));
+    public void registerListener(Sender sender, VerboseFilter filter, boolean notify, int traceSampling) {
+        this.listeners.put(sender.getUuid(), new VerboseListener(sender, filter, notify, traceSampling));
         this.listening = true;
     }
 
@@ -138,9 +176,9 @@ public class VerboseHandler implements Runnable {
      * Flushes the current check data to the listeners.
      */
     public synchronized void flush() {
-        for (CheckData e; (e = this.queue.poll()) != null; ) {
-            for (VerboseListener listener : this.listeners.values()) {
-                listener.acceptData(e);
+        for (MatchedCheck e; (e = this.buffer.poll()) != null; ) {
+            for (VerboseListener listener : e.listeners) {
+                listener.acceptData(e.data);
             }
         }
     }
@@ -148,4 +186,14 @@ public class VerboseHandler implements Runnable {
     public void shutdown() {
         this.shutdown = true;
     }
+
+    private static final class MatchedCheck {
+        private final CheckData data;
+        private final List<VerboseListener> listeners;
+
+        private MatchedCheck(CheckData data, List<VerboseListener> listeners) {
+            this.data = data;
+            this.listeners = listeners;
+        }
+    }
 }
@@ -91,6 +91,8 @@ public class VerboseListener {
     private final VerboseFilter filter;
     // if we should notify the sender
     private final boolean notify;
+    // the rate at which stack traces are captured for matched checks, 0 to never capture
+    private final int traceSampling;
     // the number of checks we have processed
     private final AtomicInteger counter = new AtomicInteger(0);
     // the number of checks we have processed and accepted, based on the filter rules for this
@@ -99,29 +101,57 @@ public class VerboseListener {
     // the checks which passed the filter, up to a max size of #DATA_TRUNCATION
     private final List<CheckData> results = new ArrayList<>(DATA_TRUNCATION / 10);
 
-    public VerboseListener(Sender notifiedSender, VerboseFilter filter, boolean notify) {
+    public VerboseListener(Sender notifiedSender, VerboseFilter filter, boolean notify, int traceSampling) {
         this.notifiedSender = notifiedSender;
         this.filter = filter;
         this.notify = notify;
+        this.traceSampling = traceSampling;
     }
 
     /**
-     * Accepts and processes check data.
+     * Tests a check against the filter of this listener.
      *
-     * @param data the data to process
+     * <p>Called on the thread making the check, before any data is captured.</p>
+     *
+     * @param checkTarget the target of the permission check
+     * @param permission the permission which was checked for
+     * @param result the result of the permission check
+     * @return the sequence number of the check amongst those matched, or 0 if it didn't match
      */
-    public void acceptData(CheckData data) {
+    public int testCheck(String checkTarget, String permission, Tristate result) {
         // increment handled counter
         this.counter.incrementAndGet();
 
+        // cheaply reject checks which can't possibly match, before evaluating the full filter
+        if (!this.filter.mightMatch(checkTarget, permission, result)) {
+            return 0;
+        }
+
         // check if the data passes our filter
-        if (!this.filter.evaluate(data)) {
-            return;
+        if (!this.filter.evaluate(checkTarget, permission, result)) {
+            return 0;
         }
 
         // increment the matched filter
-        this.matchedCounter.incrementAndGet();
+        return this.matchedCounter.incrementAndGet();
+    }
+
+    /**
+     * Gets if a stack trace should be captured for the matched check with the given sequence number.
+     *
+     * @param sequence the sequence number returned by {@link #testCheck(String, String, Tristate)}
+     * @return true if a stack trace should be captured
+     */
+    public boolean shouldCaptureTrace(int sequence) {
+        return this.traceSampling > 0 && (sequence - 1) % this.traceSampling == 0;
+    }
 
+    /**
+     * Accepts and processes check data which has passed the filter.
+     *
+     * @param data the data to process
+     */
+    public void acceptData(CheckData data) {
         // record the check, if we have space for it
         if (this.results.size() < DATA_TRUNCATION) {
             this.results.add(data);
@@ -148,6 +178,12 @@ public class VerboseListener {
         List<String> hover = new ArrayList<>();
         hover.add("&bOrigin: &2" + data.getCheckOrigin().name());
         hover.add("&bContext: &r" + CommandUtils.contextSetToString(data.getCheckContext()));
+        if (!data.hasCheckTrace()) {
+            hover.add("&bTrace: &7not sampled");
+            sendHover(textComponent, hover);
+            return;
+        }
+
         hover.add("&bTrace: &r");
 
         Consumer<StackTraceElement> printer = StackTracePrinter.elementToString(str -> hover.add("&7" + str));
@@ -161,7 +197,10 @@ public class VerboseListener {
             hover.add("&f... and " + overflow + " more");
         }
 
-        // send the message
+        sendHover(textComponent, hover);
+    }
+
+    private void sendHover(TextComponent textComponent, List<String> hover) {
         HoverEvent hoverEvent = new HoverEvent(HoverEvent.Action.SHOW_TEXT, TextUtils.fromLegacy(TextUtils.joinNewline(hover.stream()), CommandManager.AMPERSAND_CHAR));
         TextComponent text = textComponent.toBuilder().applyDeep(comp -> comp.hoverEvent(hoverEvent)).build();
         this.notifiedSender.sendMessage(text);
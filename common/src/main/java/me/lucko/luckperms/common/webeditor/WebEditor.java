@@ -168,7 +168,7 @@ public final class WebEditor {
         }
     }
 
-    private static JsonArray serializePermissions(Stream<NodeModel> nodes) {
+    public static JsonArray serializePermissions(Stream<NodeModel> nodes) {
         JsonArray arr = new JsonArray();
         nodes.forEach(node -> {
             JsonObject attributes = new JsonObject();
@@ -41,6 +41,7 @@ import me.lucko.luckperms.common.api.ApiRegistrationUtil;
 import me.lucko.luckperms.common.api.LuckPermsApiProvider;
 import me.lucko.luckperms.common.buffers.BufferedRequest;
 import me.lucko.luckperms.common.buffers.UpdateTaskBuffer;
+import me.lucko.luckperms.common.caching.CalculationScheduler;
 import me.lucko.luckperms.common.caching.handlers.CachedStateManager;
 import me.lucko.luckperms.common.calculators.CalculatorFactory;
 import me.lucko.luckperms.common.commands.CommandPermission;
@@ -122,6 +123,7 @@ public class LPNukkitPlugin extends PluginBase implements LuckPermsPlugin {
     private PluginClassLoader pluginClassLoader;
     private DependencyManager dependencyManager;
     private InheritanceHandler inheritanceHandler;
+    private CalculationScheduler calculationScheduler;
     private CachedStateManager cachedStateManager;
     private ContextManager<Player> contextManager;
     private CalculatorFactory calculatorFactory;
@@ -192,6 +194,7 @@ public class LPNukkitPlugin extends PluginBase implements LuckPermsPlugin {
         // load internal managers
         getLog().info("Loading internal permission managers...");
         this.inheritanceHandler = new InheritanceHandler(this);
+        this.calculationScheduler = new CalculationScheduler();
         this.userManager = new StandardUserManager(this);
         this.groupManager = new StandardGroupManager(this);
         this.trackManager = new StandardTrackManager(this);
@@ -345,6 +348,7 @@ public class LPNukkitPlugin extends PluginBase implements LuckPermsPlugin {
 
         getLog().info("Shutting down internal scheduler...");
         this.scheduler.shutdown();
+        this.calculationScheduler.shutdown();
 
         // Nukkit will do this again when #onDisable completes, but we do it early to prevent NPEs elsewhere.
         getServer().getScheduler().cancelTask(this);
@@ -589,6 +593,11 @@ public class LPNukkitPlugin extends PluginBase implements LuckPermsPlugin {
         return this.inheritanceHandler;
     }
 
+    @Override
+    public CalculationScheduler getCalculationScheduler() {
+        return this.calculationScheduler;
+    }
+
     @Override
     public CalculatorFactory getCalculatorFactory() {
         return this.calculatorFactory;
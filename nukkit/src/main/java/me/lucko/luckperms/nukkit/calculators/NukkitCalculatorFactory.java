@@ -34,6 +34,7 @@ import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.processors.MapProcessor;
 import me.lucko.luckperms.common.processors.PermissionProcessor;
 import me.lucko.luckperms.common.processors.RegexProcessor;
+import me.lucko.luckperms.common.processors.TrieProcessor;
 import me.lucko.luckperms.common.processors.WildcardProcessor;
 import me.lucko.luckperms.common.references.HolderType;
 import me.lucko.luckperms.nukkit.LPNukkitPlugin;
@@ -62,7 +63,11 @@ public class NukkitCalculatorFactory extends AbstractCalculatorFactory {
         }
 
         if (this.plugin.getConfiguration().get(ConfigKeys.APPLYING_WILDCARDS)) {
-            processors.add(new WildcardProcessor());
+            if (this.plugin.getConfiguration().get(ConfigKeys.USE_PERMISSION_TRIE)) {
+                processors.add(new TrieProcessor());
+            } else {
+                processors.add(new WildcardProcessor());
+            }
         }
 
         if (this.plugin.getConfiguration().get(ConfigKeys.APPLY_NUKKIT_DEFAULT_PERMISSIONS) && metadata.getHolderType() == HolderType.USER) {
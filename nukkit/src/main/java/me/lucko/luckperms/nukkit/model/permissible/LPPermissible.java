@@ -240,7 +240,11 @@ public class LPPermissible extends PermissibleBase {
 
     @Override
     public void recalculatePermissions() {
-        // do nothing
+        // called by the server when the players op status changes, and by the
+        // superclass constructor, before our fields have been set
+        if (this.plugin != null) {
+            this.plugin.getContextManager().invalidateCache(this.player);
+        }
     }
 
     @Override
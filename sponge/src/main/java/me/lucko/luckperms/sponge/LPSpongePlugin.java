@@ -34,6 +34,7 @@ import me.lucko.luckperms.common.api.ApiRegistrationUtil;
 import me.lucko.luckperms.common.api.LuckPermsApiProvider;
 import me.lucko.luckperms.common.buffers.BufferedRequest;
 import me.lucko.luckperms.common.buffers.UpdateTaskBuffer;
+import me.lucko.luckperms.common.caching.CalculationScheduler;
 import me.lucko.luckperms.common.caching.handlers.CachedStateManager;
 import me.lucko.luckperms.common.calculators.CalculatorFactory;
 import me.lucko.luckperms.common.commands.CommandPermission;
@@ -173,6 +174,7 @@ public class LPSpongePlugin implements LuckPermsSpongePlugin {
     private PluginClassLoader pluginClassLoader;
     private DependencyManager dependencyManager;
     private InheritanceHandler inheritanceHandler;
+    private CalculationScheduler calculationScheduler;
     private CachedStateManager cachedStateManager;
     private ContextManager<Subject> contextManager;
     private CalculatorFactory calculatorFactory;
@@ -237,6 +239,7 @@ public class LPSpongePlugin implements LuckPermsSpongePlugin {
         // load internal managers
         getLog().info("Loading internal permission managers...");
         this.inheritanceHandler = new InheritanceHandler(this);
+        this.calculationScheduler = new CalculationScheduler();
         this.userManager = new SpongeUserManager(this);
         this.groupManager = new SpongeGroupManager(this);
         this.trackManager = new StandardTrackManager(this);
@@ -331,6 +334,7 @@ public class LPSpongePlugin implements LuckPermsSpongePlugin {
 
         getLog().info("Shutting down internal scheduler...");
         this.scheduler.shutdown();
+        this.calculationScheduler.shutdown();
 
         getLog().info("Goodbye!");
     }
@@ -608,6 +612,11 @@ public class LPSpongePlugin implements LuckPermsSpongePlugin {
         return this.inheritanceHandler;
     }
 
+    @Override
+    public CalculationScheduler getCalculationScheduler() {
+        return this.calculationScheduler;
+    }
+
     @Override
     public CalculatorFactory getCalculatorFactory() {
         return this.calculatorFactory;
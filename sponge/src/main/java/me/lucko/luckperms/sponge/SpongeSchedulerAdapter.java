@@ -25,6 +25,7 @@
 
 package me.lucko.luckperms.sponge;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import me.lucko.luckperms.common.plugin.SchedulerAdapter;
 import me.lucko.luckperms.common.plugin.SchedulerTask;
 import me.lucko.luckperms.common.utils.SafeIteration;
@@ -34,11 +35,19 @@ import org.spongepowered.api.scheduler.Task;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 
 public class SpongeSchedulerAdapter implements SchedulerAdapter {
     private final LPSpongePlugin plugin;
     private final Set<SchedulerTask> tasks = ConcurrentHashMap.newKeySet();
 
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+            .setDaemon(true)
+            .setNameFormat("luckperms-timer")
+            .build()
+    );
+
     public SpongeSchedulerAdapter(LPSpongePlugin plugin) {
         this.plugin = plugin;
     }
@@ -47,6 +56,11 @@ public class SpongeSchedulerAdapter implements SchedulerAdapter {
         return this.plugin.getSpongeScheduler();
     }
 
+    @Override
+    public ScheduledExecutorService timer() {
+        return this.timer;
+    }
+
     @Override
     public Executor async() {
         return this.plugin.getAsyncExecutorService();
@@ -122,6 +136,9 @@ public class SpongeSchedulerAdapter implements SchedulerAdapter {
     @Override
     public void shutdown() {
         SafeIteration.iterate(this.tasks, SchedulerTask::cancel);
+
+        // pending timers still fire, but nothing new can be scheduled
+        this.timer.shutdown();
     }
 
     private static final class SpongeSchedulerTask implements SchedulerTask {
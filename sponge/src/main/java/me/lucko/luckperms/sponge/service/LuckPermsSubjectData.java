@@ -468,7 +468,7 @@ public class LuckPermsSubjectData implements LPSubjectData {
                 User user = ((User) t);
                 return user.getRefreshBuffer().request();
             } else {
-                return this.service.getPlugin().getUpdateTaskBuffer().request();
+                return this.service.getPlugin().getInheritanceHandler().refreshDependents((Group) t);
             }
         } else {
             if (t.getType().isUser()) {
@@ -490,7 +490,7 @@ public class LuckPermsSubjectData implements LPSubjectData {
                         fut.complete(null);
                     }
 
-                    this.service.getPlugin().getUpdateTaskBuffer().request().thenAccept(fut::complete);
+                    this.service.getPlugin().getInheritanceHandler().refreshDependents(group).thenAccept(fut::complete);
                 }, this.service.getPlugin().getScheduler().async());
                 return fut;
             }
@@ -72,22 +72,13 @@ public class PersistedSubject implements LPSubject {
             .expireAfterAccess(20, TimeUnit.MINUTES)
             .build(lookup -> lookupOptionValue(lookup.getContexts(), lookup.getKey()));
 
-    private final BufferedRequest<Void> saveBuffer = new BufferedRequest<Void>(1000L, 500L, r -> PersistedSubject.this.service.getPlugin().getScheduler().doAsync(r)) {
-        @Override
-        protected Void perform() {
-            try {
-                PersistedSubject.this.service.getStorage().saveToFile(PersistedSubject.this);
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-            return null;
-        }
-    };
+    private final BufferedRequest<Void> saveBuffer;
 
     public PersistedSubject(String identifier, LuckPermsService service, PersistedCollection parentCollection) {
         this.identifier = identifier;
         this.service = service;
         this.parentCollection = parentCollection;
+        this.saveBuffer = new SaveBuffer(service);
 
         this.subjectData = new PersistedSubjectData(service, parentCollection.getIdentifier() + "/" + identifier + "/p", this);
         this.transientSubjectData = new CalculatedSubjectData(this, service, parentCollection.getIdentifier() + "/" + identifier + "/t");
@@ -306,4 +297,20 @@ public class PersistedSubject implements LPSubject {
     public Optional<String> getOption(ImmutableContextSet contexts, String key) {
         return this.optionLookupCache.get(OptionLookupKey.of(key, contexts));
     }
+
+    private final class SaveBuffer extends BufferedRequest<Void> {
+        private SaveBuffer(LuckPermsService service) {
+            super(1000L, service.getPlugin().getScheduler().timer(), r -> service.getPlugin().getScheduler().doAsync(r));
+        }
+
+        @Override
+        protected Void perform() {
+            try {
+                PersistedSubject.this.service.getStorage().saveToFile(PersistedSubject.this);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            return null;
+        }
+    }
 }